@@ -0,0 +1,83 @@
+package study.querydsl.loadtest;
+
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 엔드포인트별 응답 시간을 모두 모아서 정확한 백분위를 계산한다
+ * 응답 시간은 요청을 보냈어야 하는 시각부터 잰다 (밀린 요청의 대기 시간 포함).
+ */
+class LatencyRecorder {
+
+    private final Map<String, Samples> samples = new TreeMap<>();
+
+    synchronized void record(String endpoint, long nanos, boolean ok) {
+        Samples s = samples.computeIfAbsent(endpoint, k -> new Samples());
+        s.add(nanos);
+        if (!ok) {
+            s.errors++;
+        }
+    }
+
+    synchronized Map<String, Object> report(double seconds) {
+        Samples all = new Samples();
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        for (Map.Entry<String, Samples> entry : samples.entrySet()) {
+            endpoints.put(entry.getKey(), entry.getValue().summary(seconds));
+            all.addAll(entry.getValue());
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("total", all.summary(seconds));
+        report.put("endpoints", endpoints);
+        return report;
+    }
+
+    private static class Samples {
+        long[] nanos = new long[1024];
+        int size;
+        long errors;
+
+        void add(long value) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = value;
+        }
+
+        void addAll(Samples other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.nanos[i]);
+            }
+            errors += other.errors;
+        }
+
+        Map<String, Object> summary(double seconds) {
+            long[] sorted = Arrays.copyOf(nanos, size);
+            Arrays.sort(sorted);
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("requests", size);
+            summary.put("errors", errors);
+            summary.put("throughputRps", round(size / seconds));
+            summary.put("p50Ms", percentile(sorted, 0.50));
+            summary.put("p99Ms", percentile(sorted, 0.99));
+            summary.put("p999Ms", percentile(sorted, 0.999));
+            summary.put("maxMs", size == 0 ? 0 : round(sorted[size - 1] / 1_000_000.0));
+            return summary;
+        }
+
+        private static double percentile(long[] sorted, double q) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(q * sorted.length) - 1;
+            return round(sorted[Math.max(0, index)] / 1_000_000.0);
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 100) / 100.0;
+        }
+    }
+}
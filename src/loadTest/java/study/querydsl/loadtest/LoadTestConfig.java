@@ -0,0 +1,48 @@
+package study.querydsl.loadtest;
+
+
+import java.util.Properties;
+
+/**
+ * 부하 테스트 설정, 모두 -Dloadtest.xxx 시스템 프로퍼티로 바꿀 수 있다
+ * ex) ./gradlew loadTest -Dloadtest.members=1000000 -Dloadtest.rps=500
+ */
+public class LoadTestConfig {
+
+    //시드 데이터
+    final int members;
+    final int teams;
+    //팀 크기 분포 (Zipf 지수), 0 이면 균등, 클수록 앞쪽 팀에 회원이 몰린다
+    final double teamSkew;
+    //팀이 없는 회원 비율
+    final double noTeamRatio;
+    final long seed;
+
+    //부하
+    final int rps;
+    final int warmupSeconds;
+    final int durationSeconds;
+    final int concurrency;
+
+    //결과 파일
+    final String reportDir;
+    final String version;
+
+    LoadTestConfig(Properties p) {
+        members = Integer.parseInt(p.getProperty("loadtest.members", "200000"));
+        teams = Integer.parseInt(p.getProperty("loadtest.teams", "200"));
+        teamSkew = Double.parseDouble(p.getProperty("loadtest.team-skew", "1.1"));
+        noTeamRatio = Double.parseDouble(p.getProperty("loadtest.no-team-ratio", "0.05"));
+        seed = Long.parseLong(p.getProperty("loadtest.seed", "42"));
+        rps = Integer.parseInt(p.getProperty("loadtest.rps", "200"));
+        warmupSeconds = Integer.parseInt(p.getProperty("loadtest.warmup-seconds", "10"));
+        durationSeconds = Integer.parseInt(p.getProperty("loadtest.duration-seconds", "60"));
+        concurrency = Integer.parseInt(p.getProperty("loadtest.concurrency", "64"));
+        reportDir = p.getProperty("loadtest.report-dir", "build/loadtest");
+        version = p.getProperty("loadtest.version", "dev");
+    }
+
+    static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(System.getProperties());
+    }
+}
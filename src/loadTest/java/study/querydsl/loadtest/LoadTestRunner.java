@@ -0,0 +1,129 @@
+package study.querydsl.loadtest;
+
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import study.querydsl.QuerydslApplication;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 로컬 부하 테스트 : ./gradlew loadTest
+ * 1. loadtest 프로필(인메모리 H2, 임의 포트) 로 애플리케이션을 띄운다
+ * 2. LoadTestSeeder 로 데이터를 넣는다
+ * 3. 정해진 초당 요청 수로 RequestMix 요청을 보낸다 (응답을 기다리지 않는 open loop)
+ * 4. 처리량, p50/p99/p999 를 build/loadtest/report-버전-시각.json 에 남긴다
+ */
+public class LoadTestRunner {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .run("--spring.profiles.active=loadtest");
+        try {
+            long seedStart = System.nanoTime();
+            new LoadTestSeeder(
+                    SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class)),
+                    context.getBean(PlatformTransactionManager.class),
+                    context).seed(config);
+            double seedSeconds = (System.nanoTime() - seedStart) / 1_000_000_000.0;
+            System.out.printf("seeded %,d members in %d teams (%.1f s)%n", config.members, config.teams, seedSeconds);
+
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            LatencyRecorder recorder = new LatencyRecorder();
+            drive(config, "http://localhost:" + port, config.warmupSeconds, config.seed + 1, null);
+            drive(config, "http://localhost:" + port, config.durationSeconds, config.seed, recorder);
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("version", config.version);
+            report.put("members", config.members);
+            report.put("teams", config.teams);
+            report.put("teamSkew", config.teamSkew);
+            report.put("targetRps", config.rps);
+            report.put("durationSeconds", config.durationSeconds);
+            report.putAll(recorder.report(config.durationSeconds));
+            write(config, report);
+        } finally {
+            context.close();
+        }
+    }
+
+    //intervalNanos 마다 요청 하나, recorder 가 null 이면 워밍업
+    private static void drive(LoadTestConfig config, String baseUrl, int seconds, long seed,
+                              LatencyRecorder recorder)
+            throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(config.concurrency);
+        RequestMix mix = new RequestMix(config);
+        Random random = new Random(seed);
+        long intervalNanos = 1_000_000_000L / config.rps;
+        long total = (long) config.rps * seconds;
+        long start = System.nanoTime();
+
+        for (long n = 0; n < total; n++) {
+            long intended = start + n * intervalNanos;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            RequestMix.Request request = mix.next(random);
+            pool.execute(() -> {
+                boolean ok = get(baseUrl + request.path);
+                if (recorder != null) {
+                    recorder.record(request.endpoint, System.nanoTime() - intended, ok);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.MINUTES);
+    }
+
+    private static boolean get(String url) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            int status = connection.getResponseCode();
+            //끝까지 읽어야 keep-alive 커넥션이 재사용된다
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if (in != null) {
+                    byte[] buffer = new byte[8192];
+                    while (in.read(buffer) != -1) {
+                        //discard
+                    }
+                }
+            }
+            return status < 400;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void write(LoadTestConfig config, Map<String, Object> report) throws IOException {
+        File dir = new File(config.reportDir);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("could not create " + dir);
+        }
+        String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        File file = new File(dir, "report-" + config.version + "-" + timestamp + ".json");
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        objectMapper.writeValue(file, report);
+        System.out.println(objectMapper.writeValueAsString(report));
+        System.out.println("report written to " + file);
+    }
+}
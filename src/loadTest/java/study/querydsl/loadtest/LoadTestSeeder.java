@@ -0,0 +1,95 @@
+package study.querydsl.loadtest;
+
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.MembersBulkChangedEvent;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 팀 크기가 Zipf 분포를 따르는 회원 데이터를 넣는다
+ * 같은 seed 면 항상 같은 데이터가 만들어진다 (릴리즈 간 비교용).
+ */
+class LoadTestSeeder {
+
+    private static final int CHUNK = 5_000;
+
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    LoadTestSeeder(EntityManager em, PlatformTransactionManager transactionManager,
+                   ApplicationEventPublisher eventPublisher) {
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+    }
+
+    void seed(LoadTestConfig config) {
+        List<Long> teamIds = transactionTemplate.execute(status -> {
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < config.teams; i++) {
+                Team team = new Team("team" + i);
+                em.persist(team);
+                ids.add(team.getId());
+            }
+            return ids;
+        });
+
+        double[] cumulative = zipf(config.teams, config.teamSkew);
+        Random random = new Random(config.seed);
+        for (int from = 0; from < config.members; from += CHUNK) {
+            int to = Math.min(config.members, from + CHUNK);
+            int start = from;
+            transactionTemplate.execute(status -> {
+                for (int i = start; i < to; i++) {
+                    Team team = random.nextDouble() < config.noTeamRatio
+                            ? null
+                            : em.getReference(Team.class, teamIds.get(pick(cumulative, random.nextDouble())));
+                    em.persist(new Member("member" + i, random.nextInt(80) + 10, team));
+                }
+                em.flush();
+                em.clear();
+                return null;
+            });
+        }
+
+        //인메모리 인덱스, 통계가 이벤트 하나하나 대신 DB 에서 한번에 다시 만든다
+        eventPublisher.publishEvent(new MembersBulkChangedEvent("loadtest-seed", config.members));
+    }
+
+    //팀 i 의 비중 1 / (i + 1)^s 의 누적 분포
+    static double[] zipf(int n, double s) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, s);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    static int pick(double[] cumulative, double u) {
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < u) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,61 @@
+package study.querydsl.loadtest;
+
+
+import java.util.Random;
+
+/**
+ * /v1 ~ /v3 요청 구성
+ * 팀 조건은 시드 데이터와 같은 Zipf 분포로 골라서 큰 팀이 더 자주 조회된다.
+ */
+class RequestMix {
+
+    static class Request {
+        final String endpoint;
+        final String path;
+
+        Request(String endpoint, String path) {
+            this.endpoint = endpoint;
+            this.path = path;
+        }
+    }
+
+    private final LoadTestConfig config;
+    private final double[] teamDistribution;
+
+    RequestMix(LoadTestConfig config) {
+        this.config = config;
+        this.teamDistribution = LoadTestSeeder.zipf(config.teams, config.teamSkew);
+    }
+
+    Request next(Random random) {
+        int roll = random.nextInt(100);
+        if (roll < 30) {
+            //팀 목록, 절반은 나이 범위로 좁힌다
+            String path = "/v1/members?teamName=" + team(random);
+            if (random.nextBoolean()) {
+                int ageGoe = 10 + random.nextInt(70);
+                path += "&ageGoe=" + ageGoe + "&ageLoe=" + (ageGoe + 10);
+            }
+            return new Request("v1-team", path);
+        }
+        if (roll < 50) {
+            return new Request("v1-username", "/v1/members?userName=member" + random.nextInt(config.members));
+        }
+        if (roll < 55) {
+            //member123 -> member123, member1230 ~ member1239, ...
+            return new Request("v1-prefix", "/v1/members?usernameMatch=PREFIX&userName=member"
+                    + random.nextInt(Math.max(1, config.members / 100)));
+        }
+        if (roll < 80) {
+            return new Request("v2", "/v2/members?teamName=" + team(random)
+                    + "&page=" + random.nextInt(10) + "&size=20");
+        }
+        int ageGoe = 10 + random.nextInt(75);
+        return new Request("v3", "/v3/members?ageGoe=" + ageGoe + "&ageLoe=" + (ageGoe + 5)
+                + "&page=" + random.nextInt(5) + "&size=50");
+    }
+
+    private String team(Random random) {
+        return "team" + LoadTestSeeder.pick(teamDistribution, random.nextDouble());
+    }
+}
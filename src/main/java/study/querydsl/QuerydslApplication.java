@@ -1,21 +1,44 @@
 package study.querydsl;
 
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.SQLQueryFactory;
+import com.querydsl.sql.spring.SpringConnectionProvider;
+import com.querydsl.sql.spring.SpringExceptionTranslator;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import study.querydsl.budget.QueryBudgetSqlListener;
+import study.querydsl.changestream.ChangeCapturingJPAQueryFactory;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
+@EnableScheduling
 public class QuerydslApplication {
 
 	public static void main(String[] args) {
 		SpringApplication.run(QuerydslApplication.class, args);
 	}
 
+	//요청별 쿼리 타임아웃/취소 (querydsl.budget), 벌크 절 실행 알림 (ChangeStream)
 	@Bean
-	JPAQueryFactory jpaQueryFactory(EntityManager entityManager) {
-		return new JPAQueryFactory(entityManager);
+	JPAQueryFactory jpaQueryFactory(EntityManager entityManager, EntityManagerFactory entityManagerFactory,
+									ApplicationEventPublisher publisher) {
+		return new ChangeCapturingJPAQueryFactory(entityManager, entityManagerFactory, publisher);
+	}
+
+	@Bean
+	SQLQueryFactory sqlQueryFactory(DataSource dataSource) {
+		com.querydsl.sql.Configuration configuration = new com.querydsl.sql.Configuration(new H2Templates());
+		configuration.setExceptionTranslator(new SpringExceptionTranslator());
+		configuration.addListener(new QueryBudgetSqlListener());
+		return new SQLQueryFactory(configuration, new SpringConnectionProvider(dataSource));
 	}
 }
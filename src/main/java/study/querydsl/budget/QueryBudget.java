@@ -0,0 +1,28 @@
+package study.querydsl.budget;
+
+
+import lombok.Getter;
+
+/**
+ * 엔드포인트 하나에 적용되는 한도 (defaults 와 엔드포인트 설정을 합친 값)
+ */
+@Getter
+public class QueryBudget {
+
+    private final String endpoint;
+    private final int maxPageSize;
+    private final long maxOffset;
+    private final long timeoutMillis;
+
+    public QueryBudget(String endpoint, int maxPageSize, long maxOffset, long timeoutMillis) {
+        this.endpoint = endpoint;
+        this.maxPageSize = maxPageSize;
+        this.maxOffset = maxOffset;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    //JDBC Statement.setQueryTimeout 은 초 단위, 0 은 무제한이라 최소 1초
+    public int timeoutSeconds() {
+        return (int) Math.max(1, (timeoutMillis + 999) / 1000);
+    }
+}
@@ -0,0 +1,38 @@
+package study.querydsl.budget;
+
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * WebAsyncTask(QueryBudgetGuard.run) 를 실행하는 전용 스레드 풀
+ * 따로 지정하지 않으면 부트의 applicationTaskExecutor (대기열 무제한) 에서 돌아서
+ * 느린 쿼리가 몰리면 요청이 끝없이 쌓인다. 스레드와 대기열이 다 차면 바로 거절한다.
+ * 다른 곳에서 Executor 빈을 찾지 않도록 빈으로 등록하지 않고 여기서 직접 관리한다.
+ */
+@Configuration
+public class QueryBudgetAsyncConfig implements WebMvcConfigurer, DisposableBean {
+
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    public QueryBudgetAsyncConfig(QueryBudgetProperties properties) {
+        executor.setThreadNamePrefix("query-budget-");
+        executor.setCorePoolSize(properties.getAsyncThreads());
+        executor.setMaxPoolSize(properties.getAsyncThreads());
+        executor.setQueueCapacity(properties.getAsyncQueueCapacity());
+        executor.initialize();
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(executor);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,101 @@
+package study.querydsl.budget;
+
+
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 요청 하나가 실행 중인 쿼리의 한도와 취소 수단
+ * 쿼리를 실행하는 스레드에 바인딩되고 (QueryBudgetGuard.run),
+ * 쿼리 팩토리가 쿼리를 만들 때마다 타임아웃을 걸고 취소 수단을 등록한다.
+ * cancel() 은 클라이언트 연결이 끊긴 요청 스레드(다른 스레드) 에서 불린다.
+ *
+ * 요청 하나가 여러 스레드에서 쿼리를 나눠 실행하면 (샤드 scatter) propagate 로 같은 컨텍스트를 넘긴다.
+ * 취소 수단은 스레드마다 지금 실행 중인 쿼리 하나씩 들고 있다가 cancel() 때 모두 취소한다.
+ */
+public class QueryBudgetContext {
+
+    private static final ThreadLocal<QueryBudgetContext> CURRENT = new ThreadLocal<>();
+
+    @Getter
+    private final QueryBudget budget;
+
+    private final Map<Thread, Canceller> cancellers = new ConcurrentHashMap<>();
+    private volatile boolean cancelled;
+
+    public QueryBudgetContext(QueryBudget budget) {
+        this.budget = budget;
+    }
+
+    public static QueryBudgetContext current() {
+        return CURRENT.get();
+    }
+
+    static void bind(QueryBudgetContext context) {
+        CURRENT.set(context);
+    }
+
+    static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 지금 스레드의 컨텍스트를 다른 스레드에서 실행할 callable 에 넘긴다. 컨텍스트가 없으면 callable 그대로.
+     * 실행 스레드에서 만든 쿼리도 같은 타임아웃이 걸리고, cancel() 로 같이 취소된다.
+     */
+    public static <T> Callable<T> propagate(Callable<T> callable) {
+        QueryBudgetContext context = current();
+        if (context == null) {
+            return callable;
+        }
+        return () -> {
+            QueryBudgetContext previous = current();
+            bind(context);
+            try {
+                return callable.call();
+            } finally {
+                context.cancellers.remove(Thread.currentThread());
+                if (previous != null) {
+                    bind(previous);
+                } else {
+                    unbind();
+                }
+            }
+        };
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    //이 스레드가 지금 실행할 쿼리를 취소하는 방법 (스레드의 이전 쿼리는 끝났으므로 바꿔 끼운다), 이미 취소된 요청이면 바로 취소한다
+    public void register(Canceller canceller) {
+        cancellers.put(Thread.currentThread(), canceller);
+        if (cancelled) {
+            cancelQuietly(canceller);
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+        for (Canceller canceller : cancellers.values()) {
+            cancelQuietly(canceller);
+        }
+    }
+
+    private static void cancelQuietly(Canceller canceller) {
+        try {
+            canceller.cancel();
+        } catch (Exception ignored) {
+            //이미 끝난 쿼리거나 커넥션이 닫혔다
+        }
+    }
+
+    @FunctionalInterface
+    public interface Canceller {
+        void cancel() throws Exception;
+    }
+}
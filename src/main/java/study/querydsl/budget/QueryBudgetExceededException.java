@@ -0,0 +1,15 @@
+package study.querydsl.budget;
+
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * 페이지 크기나 offset 한도를 넘은 요청 (400)
+ */
+public class QueryBudgetExceededException extends ResponseStatusException {
+
+    public QueryBudgetExceededException(String reason) {
+        super(HttpStatus.BAD_REQUEST, reason);
+    }
+}
@@ -0,0 +1,136 @@
+package study.querydsl.budget;
+
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+/**
+ * 엔드포인트별 쿼리 한도 (querydsl.budget)
+ * - 페이지 크기, offset 은 쿼리 전에 검사해서 400 으로 거절한다
+ * - run() 안에서 만든 Querydsl 쿼리(JPA, SQL) 에는 엔드포인트 타임아웃이 걸린다
+ * - run() 은 비동기 요청이라 클라이언트가 끊기거나 요청 시간이 지나면 실행 중인 쿼리를 취소한다
+ *   (실행 스레드는 QueryBudgetAsyncConfig 의 크기가 정해진 풀)
+ * - stream() 은 응답을 직접 쓰는 StreamingResponseBody 용, 쓰는 스레드에 한도를 걸고 응답 쓰기가 실패하면 쿼리를 취소한다
+ * 거절, 타임아웃, 취소는 querydsl.budget.rejections{endpoint, reason} 카운터로 남는다.
+ */
+@Component
+@RequiredArgsConstructor
+public class QueryBudgetGuard {
+
+    public static final String METRIC = "querydsl.budget.rejections";
+
+    //요청 시간은 쿼리 타임아웃보다 조금 길게, 쿼리가 먼저 타임아웃으로 끝나게 한다
+    private static final long ASYNC_SLACK_MILLIS = 1_000;
+
+    private final QueryBudgetProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public QueryBudget budget(String endpoint) {
+        QueryBudgetProperties.Limits defaults = properties.getDefaults();
+        QueryBudgetProperties.Limits limits = properties.getEndpoints().get(endpoint);
+        if (limits == null) {
+            limits = defaults;
+        }
+        return new QueryBudget(endpoint,
+                limits.getMaxPageSize() != null ? limits.getMaxPageSize() : defaults.getMaxPageSize(),
+                limits.getMaxOffset() != null ? limits.getMaxOffset() : defaults.getMaxOffset(),
+                limits.getTimeoutMillis() != null ? limits.getTimeoutMillis() : defaults.getTimeoutMillis());
+    }
+
+    public void checkPage(String endpoint, Pageable pageable) {
+        checkSize(endpoint, pageable.getPageSize());
+        QueryBudget budget = budget(endpoint);
+        if (pageable.getOffset() > budget.getMaxOffset()) {
+            reject(endpoint, "offset", "offset " + pageable.getOffset() + " exceeds " + budget.getMaxOffset()
+                    + ", page with /v4/members?cursor=<last memberId> instead");
+        }
+    }
+
+    public void checkSize(String endpoint, int size) {
+        QueryBudget budget = budget(endpoint);
+        if (size > budget.getMaxPageSize()) {
+            reject(endpoint, "page-size", "size " + size + " exceeds " + budget.getMaxPageSize());
+        }
+    }
+
+    //엔드포인트 한도를 걸고 비동기로 실행한다
+    public <T> WebAsyncTask<T> run(String endpoint, Callable<T> callable) {
+        QueryBudget budget = budget(endpoint);
+        QueryBudgetContext context = new QueryBudgetContext(budget);
+
+        WebAsyncTask<T> task = new WebAsyncTask<>(budget.getTimeoutMillis() + ASYNC_SLACK_MILLIS, () -> {
+            QueryBudgetContext.bind(context);
+            try {
+                return callable.call();
+            } catch (QueryTimeoutException | javax.persistence.QueryTimeoutException e) {
+                if (context.isCancelled()) {
+                    throw e;
+                }
+                count(endpoint, "timeout");
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "query exceeded " + budget.getTimeoutMillis() + "ms", e);
+            } finally {
+                QueryBudgetContext.unbind();
+            }
+        });
+        task.onTimeout(() -> {
+            context.cancel();
+            count(endpoint, "timeout");
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "request exceeded " + budget.getTimeoutMillis() + "ms");
+        });
+        task.onError(() -> {
+            //클라이언트 연결 끊김 등, 응답을 받을 사람이 없으니 쿼리를 멈춘다
+            context.cancel();
+            count(endpoint, "cancelled");
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "request cancelled");
+        });
+        return task;
+    }
+
+    /**
+     * 엔드포인트 한도를 걸고 응답 스트림에 쓴다. 이미 200 으로 응답을 시작했으므로 타임아웃, 취소를 상태 코드로 알릴 수 없다.
+     * 쿼리 하나의 시간은 엔드포인트 타임아웃, 요청 전체 시간은 spring.mvc.async.request-timeout 을 따른다.
+     */
+    public StreamingResponseBody stream(String endpoint, StreamingResponseBody body) {
+        QueryBudget budget = budget(endpoint);
+        return out -> {
+            QueryBudgetContext context = new QueryBudgetContext(budget);
+            QueryBudgetContext.bind(context);
+            try {
+                body.writeTo(out);
+            } catch (QueryTimeoutException | javax.persistence.QueryTimeoutException e) {
+                if (!context.isCancelled()) {
+                    count(endpoint, "timeout");
+                }
+                throw e;
+            } catch (IOException e) {
+                //클라이언트 연결 끊김, 남은 행을 읽을 필요가 없다
+                context.cancel();
+                count(endpoint, "cancelled");
+                throw e;
+            } finally {
+                QueryBudgetContext.unbind();
+            }
+        };
+    }
+
+    private void reject(String endpoint, String reason, String message) {
+        count(endpoint, reason);
+        throw new QueryBudgetExceededException(message);
+    }
+
+    private void count(String endpoint, String reason) {
+        meterRegistry.counter(METRIC, "endpoint", endpoint, "reason", reason).increment();
+    }
+}
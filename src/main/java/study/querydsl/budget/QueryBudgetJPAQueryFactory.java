@@ -0,0 +1,46 @@
+package study.querydsl.budget;
+
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * 만드는 쿼리마다 현재 요청의 타임아웃 힌트를 거는 JPAQueryFactory
+ * 요청 밖(배치, 이벤트 리스너 등) 에서는 JPAQueryFactory 와 같다.
+ * 타임아웃은 여기서만 건다 (전역 javax.persistence.query.timeout 은 배치, 재집계까지 끊으므로 쓰지 않는다).
+ */
+public class QueryBudgetJPAQueryFactory extends JPAQueryFactory {
+
+    private static final String TIMEOUT_HINT = "javax.persistence.query.timeout";
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public QueryBudgetJPAQueryFactory(EntityManager entityManager, EntityManagerFactory entityManagerFactory) {
+        super(entityManager);
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public JPAQuery<?> query() {
+        JPAQuery<?> query = super.query();
+        QueryBudgetContext context = QueryBudgetContext.current();
+        if (context == null) {
+            return query;
+        }
+        //힌트는 밀리초지만 하이버네이트가 초 단위로 바꾼다
+        query.setHint(TIMEOUT_HINT, context.getBudget().timeoutSeconds() * 1000);
+
+        //스레드에 묶인 세션(OSIV, 트랜잭션) 이 있을 때만 취소할 수 있다
+        EntityManager current = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+        if (current != null) {
+            Session session = current.unwrap(Session.class);
+            context.register(session::cancelQuery);
+        }
+        return query;
+    }
+}
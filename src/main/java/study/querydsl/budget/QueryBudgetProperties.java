@@ -0,0 +1,46 @@
+package study.querydsl.budget;
+
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter @Setter
+@ConfigurationProperties(prefix = "querydsl.budget")
+public class QueryBudgetProperties {
+
+    //엔드포인트 설정이 없거나 값이 비어 있을 때 쓰는 한도
+    private Limits defaults = new Limits(200, 10_000L, 5_000L);
+
+    //엔드포인트별 한도 ex) v2: { max-page-size: 50 }, 비운 값은 defaults 를 따른다
+    private Map<String, Limits> endpoints = new HashMap<>();
+
+    //run() 을 실행하는 스레드 수, 다 쓰면 asyncQueueCapacity 만큼 기다리고 그 뒤로는 거절한다
+    private int asyncThreads = 16;
+    private int asyncQueueCapacity = 100;
+
+    @Getter @Setter
+    public static class Limits {
+
+        //한 페이지 최대 행 수
+        private Integer maxPageSize;
+
+        //offset 최대값, 넘으면 커서(/v4) 를 쓰라고 거절한다
+        private Long maxOffset;
+
+        //쿼리 하나의 제한 시간, JDBC 타임아웃은 초 단위라 올림해서 적용된다
+        private Long timeoutMillis;
+
+        public Limits() {
+        }
+
+        public Limits(Integer maxPageSize, Long maxOffset, Long timeoutMillis) {
+            this.maxPageSize = maxPageSize;
+            this.maxOffset = maxOffset;
+            this.timeoutMillis = timeoutMillis;
+        }
+    }
+}
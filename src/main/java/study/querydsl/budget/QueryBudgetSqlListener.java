@@ -0,0 +1,29 @@
+package study.querydsl.budget;
+
+
+import com.querydsl.sql.SQLBaseListener;
+import com.querydsl.sql.SQLListenerContext;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * querydsl-sql 쿼리에 현재 요청의 타임아웃을 걸고 취소 수단으로 등록한다
+ */
+public class QueryBudgetSqlListener extends SQLBaseListener {
+
+    @Override
+    public void prepared(SQLListenerContext context) {
+        QueryBudgetContext budgetContext = QueryBudgetContext.current();
+        PreparedStatement statement = context.getPreparedStatement();
+        if (budgetContext == null || statement == null) {
+            return;
+        }
+        try {
+            statement.setQueryTimeout(budgetContext.getBudget().timeoutSeconds());
+        } catch (SQLException e) {
+            throw new IllegalStateException("could not set query timeout", e);
+        }
+        budgetContext.register(statement::cancel);
+    }
+}
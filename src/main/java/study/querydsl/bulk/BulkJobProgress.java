@@ -0,0 +1,105 @@
+package study.querydsl.bulk;
+
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+@Getter
+public class BulkJobProgress {
+
+    public enum State { RUNNING, COMPLETED, FAILED }
+
+    public enum ChunkState { PENDING, DONE, FAILED }
+
+    private final String jobId;
+    private final MemberBulkJob job;
+    private final long minId;
+    private final long chunkSize;
+    private final int totalChunks;
+    private final AtomicReferenceArray<ChunkState> chunks;
+    private final AtomicLong affectedRows = new AtomicLong();
+    private volatile State state = State.RUNNING;
+    private volatile String failureMessage;
+    //끝난 시각 (epoch millis), 실행 중이면 0. 보관 기간이 지난 작업을 지울 때 쓴다
+    private volatile long finishedAtMillis;
+
+    public BulkJobProgress(String jobId, MemberBulkJob job, long minId, long maxId, long chunkSize) {
+        this.jobId = jobId;
+        this.job = job;
+        this.minId = minId;
+        this.chunkSize = chunkSize;
+        this.totalChunks = chunkCount(minId, maxId, chunkSize);
+        this.chunks = new AtomicReferenceArray<>(totalChunks);
+        for (int i = 0; i < totalChunks; i++) {
+            chunks.set(i, ChunkState.PENDING);
+        }
+    }
+
+    //id 범위가 넓으면 int 로 계산하다 넘칠 수 있어서 long 으로 세고, 청크 상태 배열에 못 담는 크기는 거절한다
+    static int chunkCount(long minId, long maxId, long chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive : " + chunkSize);
+        }
+        if (maxId < minId) {
+            return 0;
+        }
+        long count = (maxId - minId) / chunkSize + 1;
+        if (count > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("too many chunks : " + count + ", use a larger chunkSize");
+        }
+        return (int) count;
+    }
+
+    //청크 i 가 담당하는 member_id 범위 [from, to]
+    public long chunkFrom(int chunk) {
+        return minId + chunk * chunkSize;
+    }
+
+    public long chunkTo(int chunk) {
+        return chunkFrom(chunk) + chunkSize - 1;
+    }
+
+    //재시작할 때는 DONE 이 아닌 청크만 다시 돌린다
+    public List<Integer> remainingChunks() {
+        List<Integer> remaining = new ArrayList<>();
+        for (int i = 0; i < totalChunks; i++) {
+            if (chunks.get(i) != ChunkState.DONE) {
+                remaining.add(i);
+            }
+        }
+        return remaining;
+    }
+
+    public int getCompletedChunks() {
+        return totalChunks - remainingChunks().size();
+    }
+
+    public long getAffectedRows() {
+        return affectedRows.get();
+    }
+
+    void chunkDone(int chunk, long rows) {
+        affectedRows.addAndGet(rows);
+        chunks.set(chunk, ChunkState.DONE);
+    }
+
+    void chunkFailed(int chunk, Throwable cause) {
+        chunks.set(chunk, ChunkState.FAILED);
+        failureMessage = "chunk " + chunk + " [" + chunkFrom(chunk) + ", " + chunkTo(chunk) + "] : " + cause.getMessage();
+    }
+
+    void running() {
+        state = State.RUNNING;
+        failureMessage = null;
+        finishedAtMillis = 0;
+    }
+
+    void finish() {
+        finishedAtMillis = System.currentTimeMillis();
+        state = remainingChunks().isEmpty() ? State.COMPLETED : State.FAILED;
+    }
+}
@@ -0,0 +1,26 @@
+package study.querydsl.bulk;
+
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter @Setter
+@ConfigurationProperties(prefix = "querydsl.bulk")
+public class BulkJobProperties {
+
+    //member_id 범위 하나에 들어가는 id 개수 (한 트랜잭션이 잡는 범위)
+    private long chunkSize = 1000;
+
+    //동시에 청크를 처리하는 워커 수
+    private int workers = 4;
+
+    //워커가 청크 하나를 끝낸 뒤 쉬는 시간, 다른 트랜잭션이 락을 잡을 틈을 준다
+    private long throttleMillis = 0;
+
+    //끝난 작업(COMPLETED/FAILED)의 진행 상황을 보관하는 시간, 지나면 조회/재시작할 수 없다
+    private long jobRetentionMillis = 3_600_000;
+
+    //보관하는 끝난 작업의 최대 개수, 넘치면 오래 전에 끝난 것부터 지운다
+    private int maxRetainedJobs = 1000;
+}
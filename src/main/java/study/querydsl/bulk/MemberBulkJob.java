@@ -0,0 +1,39 @@
+package study.querydsl.bulk;
+
+
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import study.querydsl.entity.MemberSearchCondition;
+
+import java.util.function.Consumer;
+
+/**
+ * 조건 기반 update/delete 를 member_id 범위 청크로 나눠서 실행하기 위한 작업 정의
+ * chunkSize, workers, throttleMillis 를 지정하지 않으면 {@link BulkJobProperties} 값을 사용한다.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class MemberBulkJob {
+
+    public enum Type { UPDATE, DELETE }
+
+    private final Type type;
+    private final MemberSearchCondition condition;
+    private final Consumer<JPAUpdateClause> updater;
+
+    @Setter private Long chunkSize;
+    @Setter private Integer workers;
+    @Setter private Long throttleMillis;
+
+    //ex) MemberBulkJob.update(condition, clause -> clause.set(member.age, member.age.add(1)))
+    public static MemberBulkJob update(MemberSearchCondition condition, Consumer<JPAUpdateClause> updater) {
+        return new MemberBulkJob(Type.UPDATE, condition, updater);
+    }
+
+    public static MemberBulkJob delete(MemberSearchCondition condition) {
+        return new MemberBulkJob(Type.DELETE, condition, null);
+    }
+}
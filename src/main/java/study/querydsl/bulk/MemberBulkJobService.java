@@ -0,0 +1,288 @@
+package study.querydsl.bulk;
+
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPADeleteClause;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.changestream.ChangeCapturingJPAQueryFactory;
+import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.entity.UsernameMatch;
+import study.querydsl.entity.MembersBulkChangedEvent;
+import study.querydsl.search.UsernameIndex;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 대량 update/delete 를 member_id 범위 청크로 잘라서 청크마다 짧은 트랜잭션으로 실행한다.
+ * 한 문장으로 테이블 전체를 잡고 있는 대신 락을 잡는 시간을 청크 하나 분량으로 줄이는 것이 목적.
+ */
+@Slf4j
+@Service
+public class MemberBulkJobService {
+
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate chunkTransaction;
+    private final BulkJobProperties properties;
+    private final ApplicationEventPublisher publisher;
+    private final UsernameIndex usernameIndex;
+    private final Map<String, BulkJobProgress> jobs = new ConcurrentHashMap<>();
+
+    public MemberBulkJobService(JPAQueryFactory queryFactory,
+                                PlatformTransactionManager transactionManager,
+                                BulkJobProperties properties,
+                                ApplicationEventPublisher publisher,
+                                UsernameIndex usernameIndex) {
+        this.queryFactory = queryFactory;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.properties = properties;
+        this.publisher = publisher;
+        this.usernameIndex = usernameIndex;
+    }
+
+    /**
+     * 작업을 청크로 나눠 끝까지 실행한다. 실패한 청크가 있으면 FAILED 상태로 돌아오고
+     * {@link #resume(String)} 으로 남은 청크만 다시 실행할 수 있다.
+     */
+    public BulkJobProgress run(MemberBulkJob job) {
+        long chunkSize = job.getChunkSize() != null ? job.getChunkSize() : properties.getChunkSize();
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive : " + chunkSize);
+        }
+        workersOf(job);
+        //청크 경계는 시작 시점의 조건에 맞는 id 범위로 고정한다
+        Tuple range = queryFactory
+                .select(member.id.min(), member.id.max())
+                .from(member)
+                .where(conditionOf(job.getCondition()))
+                .fetchOne();
+        Long minId = range == null ? null : range.get(member.id.min());
+        Long maxId = range == null ? null : range.get(member.id.max());
+
+        String jobId = UUID.randomUUID().toString();
+        BulkJobProgress progress = minId == null
+                ? new BulkJobProgress(jobId, job, 0, -1, chunkSize)
+                : new BulkJobProgress(jobId, job, minId, maxId, chunkSize);
+        evictFinishedJobs(System.currentTimeMillis());
+        jobs.put(jobId, progress);
+        execute(progress);
+        return progress;
+    }
+
+    public BulkJobProgress resume(String jobId) {
+        BulkJobProgress progress = getProgress(jobId)
+                .orElseThrow(() -> new IllegalArgumentException("unknown bulk job : " + jobId));
+        if (progress.getState() == BulkJobProgress.State.RUNNING) {
+            throw new IllegalStateException("bulk job is still running : " + jobId);
+        }
+        workersOf(progress.getJob());
+        progress.running();
+        //확인한 뒤 정리 스케줄이 지웠더라도 다시 돌기 시작한 작업은 조회할 수 있어야 한다
+        jobs.putIfAbsent(jobId, progress);
+        execute(progress);
+        return progress;
+    }
+
+    public Optional<BulkJobProgress> getProgress(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    @Scheduled(fixedDelayString = "${querydsl.bulk.evict-interval-millis:60000}")
+    public void evictFinishedJobs() {
+        evictFinishedJobs(System.currentTimeMillis());
+    }
+
+    /**
+     * 보관 기간이 지났거나 개수 상한을 넘긴 끝난 작업을 지운다. 실행 중인 작업은 지우지 않는다.
+     * 지운 작업은 {@link #getProgress(String)} 로 조회할 수 없고 {@link #resume(String)} 도 거절된다.
+     */
+    int evictFinishedJobs(long now) {
+        long expiredBefore = now - properties.getJobRetentionMillis();
+        int evicted = 0;
+        for (String jobId : jobs.keySet()) {
+            if (evictIfFinished(jobId, expiredBefore)) {
+                evicted++;
+            }
+        }
+        List<BulkJobProgress> finished = jobs.values().stream()
+                .filter(this::finished)
+                .sorted(Comparator.comparingLong(BulkJobProgress::getFinishedAtMillis))
+                .collect(Collectors.toList());
+        for (int i = 0; i < finished.size() - properties.getMaxRetainedJobs(); i++) {
+            if (evictIfFinished(finished.get(i).getJobId(), Long.MAX_VALUE)) {
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            log.debug("evicted {} finished bulk jobs", evicted);
+        }
+        return evicted;
+    }
+
+    //검사와 제거를 한번에 해서, 그 사이에 resume 으로 다시 돌기 시작한 작업은 남긴다
+    private boolean evictIfFinished(String jobId, long finishedBefore) {
+        boolean[] evicted = new boolean[1];
+        jobs.computeIfPresent(jobId, (id, progress) -> {
+            evicted[0] = finished(progress) && progress.getFinishedAtMillis() < finishedBefore;
+            return evicted[0] ? null : progress;
+        });
+        return evicted[0];
+    }
+
+    private boolean finished(BulkJobProgress progress) {
+        return progress.getState() != BulkJobProgress.State.RUNNING;
+    }
+
+    private void execute(BulkJobProgress progress) {
+        MemberBulkJob job = progress.getJob();
+        int workers = workersOf(job);
+        long throttleMillis = job.getThrottleMillis() != null ? job.getThrottleMillis() : properties.getThrottleMillis();
+
+        ConcurrentLinkedQueue<Integer> queue = new ConcurrentLinkedQueue<>(progress.remainingChunks());
+        AtomicBoolean failed = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            for (int i = 0; i < workers; i++) {
+                executor.execute(() -> {
+                    Integer chunk;
+                    //한 청크라도 실패하면 나머지 워커도 새 청크를 집지 않는다
+                    while (!failed.get() && (chunk = queue.poll()) != null) {
+                        try {
+                            long rows = executeChunk(job, progress.chunkFrom(chunk), progress.chunkTo(chunk));
+                            progress.chunkDone(chunk, rows);
+                        } catch (RuntimeException e) {
+                            log.warn("bulk job {} chunk {} failed", progress.getJobId(), chunk, e);
+                            progress.chunkFailed(chunk, e);
+                            failed.set(true);
+                            return;
+                        }
+                        if (!throttle(throttleMillis)) {
+                            return;
+                        }
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            awaitTermination(executor);
+            progress.finish();
+            //벌크 쿼리는 엔티티 이벤트를 타지 않으므로 통계 같은 파생 데이터에 따로 알린다
+            publisher.publishEvent(new MembersBulkChangedEvent("bulk job " + progress.getJobId(), progress.getAffectedRows()));
+        }
+        log.info("bulk job {} {} : {}/{} chunks, {} rows", progress.getJobId(), progress.getState(),
+                progress.getCompletedChunks(), progress.getTotalChunks(), progress.getAffectedRows());
+    }
+
+    //워커가 없으면 청크를 하나도 돌리지 않고 FAILED 로 끝나므로 시작 전에 거절한다
+    private int workersOf(MemberBulkJob job) {
+        int workers = job.getWorkers() != null ? job.getWorkers() : properties.getWorkers();
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers must be positive : " + workers);
+        }
+        return workers;
+    }
+
+    private long executeChunk(MemberBulkJob job, long fromId, long toId) {
+        //청크마다 파생 데이터를 다시 만들지 않도록, 작업이 끝날 때 MembersBulkChangedEvent 한번으로 알린다
+        Long rows = ChangeCapturingJPAQueryFactory.coalesced(() -> chunkTransaction.execute(status -> {
+            BooleanExpression where = member.id.between(fromId, toId);
+            BooleanExpression condition = conditionOf(job.getCondition());
+            if (condition != null) {
+                where = where.and(condition);
+            }
+            if (job.getType() == MemberBulkJob.Type.DELETE) {
+                JPADeleteClause delete = queryFactory.delete(member).where(where);
+                return delete.execute();
+            }
+            JPAUpdateClause update = queryFactory.update(member).where(where);
+            job.getUpdater().accept(update);
+            return update.execute();
+        }));
+        return rows == null ? 0 : rows;
+    }
+
+    private boolean throttle(long throttleMillis) {
+        if (throttleMillis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(throttleMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void awaitTermination(ExecutorService executor) {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.debug("waiting for bulk job workers");
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //벌크 쿼리(update/delete)는 join 을 쓸 수 없어서 팀명 조건은 서브쿼리로 건다
+    private BooleanExpression conditionOf(MemberSearchCondition condition) {
+        return allOf(usernameEq(condition.getUserName(), condition.getUsernameMatch()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe()));
+    }
+
+    private BooleanExpression allOf(BooleanExpression... expressions) {
+        BooleanExpression result = null;
+        for (BooleanExpression expression : expressions) {
+            if (expression != null) {
+                result = result == null ? expression : result.and(expression);
+            }
+        }
+        return result;
+    }
+
+    private BooleanExpression usernameEq(String userName, UsernameMatch match) {
+        return hasText(userName) ? usernameIndex.matches(member.username, member.id, userName, match) : null;
+    }
+
+    private BooleanExpression teamNameEq(String teamName) {
+        return hasText(teamName)
+                ? member.team.id.in(JPAExpressions.select(team.id).from(team).where(team.name.eq(teamName)))
+                : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+}
@@ -0,0 +1,82 @@
+package study.querydsl.changestream;
+
+
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.jpa.impl.JPADeleteClause;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import org.springframework.context.ApplicationEventPublisher;
+import study.querydsl.budget.QueryBudgetJPAQueryFactory;
+import study.querydsl.entity.BulkClauseExecutedEvent;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.function.Supplier;
+
+/**
+ * 벌크 update/delete 절을 실행하면 BulkClauseExecutedEvent 를 발행하는 JPAQueryFactory
+ * 벌크 절은 엔티티 리스너를 거치지 않아서 ChangeStream 과 파생 데이터 구독자가 이 이벤트로 대신 받는다.
+ * 조회 쪽은 QueryBudgetJPAQueryFactory 와 같다.
+ *
+ * 파생 데이터를 직접 관리하는 내부 쓰기(TeamMemberCounter 의 member_count 갱신) 는 이 팩토리를 쓰지 않는다.
+ */
+public class ChangeCapturingJPAQueryFactory extends QueryBudgetJPAQueryFactory {
+
+    private static final ThreadLocal<Boolean> COALESCED = new ThreadLocal<>();
+
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher publisher;
+
+    public ChangeCapturingJPAQueryFactory(EntityManager entityManager, EntityManagerFactory entityManagerFactory,
+                                          ApplicationEventPublisher publisher) {
+        super(entityManager, entityManagerFactory);
+        this.entityManager = entityManager;
+        this.publisher = publisher;
+    }
+
+    /**
+     * 이 안에서 실행한 절의 이벤트는 coalesced=true 로 나간다.
+     * 끝나고 MembersBulkChangedEvent 를 한번 발행하는 쪽(MemberBulkJobService) 이 청크마다 파생 데이터를 다시 만들지 않게 쓴다.
+     */
+    public static <T> T coalesced(Supplier<T> work) {
+        Boolean previous = COALESCED.get();
+        COALESCED.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                COALESCED.remove();
+            } else {
+                COALESCED.set(previous);
+            }
+        }
+    }
+
+    @Override
+    public JPAUpdateClause update(EntityPath<?> path) {
+        return new JPAUpdateClause(entityManager, path) {
+            @Override
+            public long execute() {
+                return published(BulkClauseExecutedEvent.Type.UPDATE, path, super.execute());
+            }
+        };
+    }
+
+    @Override
+    public JPADeleteClause delete(EntityPath<?> path) {
+        return new JPADeleteClause(entityManager, path) {
+            @Override
+            public long execute() {
+                return published(BulkClauseExecutedEvent.Type.DELETE, path, super.execute());
+            }
+        };
+    }
+
+    //0 건이면 알릴 것이 없다
+    private long published(BulkClauseExecutedEvent.Type type, EntityPath<?> path, long rows) {
+        if (rows > 0) {
+            publisher.publishEvent(new BulkClauseExecutedEvent(type, path.getType().getSimpleName(), rows,
+                    COALESCED.get() != null));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,44 @@
+package study.querydsl.changestream;
+
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 커밋된 변경 한 건
+ * - 엔티티 변경 : entityId 와 before/after (Member 는 MemberState, Team 은 팀 이름), affectedRows 는 1
+ * - 벌크 절 : entityId, before, after 는 null, affectedRows 는 바뀐 행 수
+ * sequence 는 스트림 안에서 1씩 증가하는 번호라 구독자는 빠진 것이 없는지 알 수 있다.
+ */
+@Getter
+@ToString
+public class ChangeRecord {
+
+    public enum Operation { CREATED, UPDATED, DELETED, BULK_UPDATED, BULK_DELETED }
+
+    private final long sequence;
+    //엔티티 이름 ex) Member, Team
+    private final String entity;
+    private final Operation operation;
+    private final Long entityId;
+    private final Object before;
+    private final Object after;
+    private final long affectedRows;
+    private final long committedAtMillis;
+
+    ChangeRecord(long sequence, String entity, Operation operation, Long entityId,
+                 Object before, Object after, long affectedRows, long committedAtMillis) {
+        this.sequence = sequence;
+        this.entity = entity;
+        this.operation = operation;
+        this.entityId = entityId;
+        this.before = before;
+        this.after = after;
+        this.affectedRows = affectedRows;
+        this.committedAtMillis = committedAtMillis;
+    }
+
+    public boolean isBulk() {
+        return operation == Operation.BULK_UPDATED || operation == Operation.BULK_DELETED;
+    }
+}
@@ -0,0 +1,171 @@
+package study.querydsl.changestream;
+
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongFunction;
+
+/**
+ * 락 없는 다중 생산자 / 다중 소비자 링 버퍼 (Disruptor 의 MultiProducerSequencer 를 줄인 것)
+ * - 생산자는 cursor 를 CAS 로 하나 올려서 번호를 받고, 슬롯에 쓴 다음 available[슬롯] = 번호로 공개한다
+ * - 소비자는 각자 마지막으로 읽은 번호를 들고 available 이 다음 번호인 동안 읽는다 (생산자 사이 순서가 뒤섞여도 번호 순)
+ * - 가장 느린 소비자가 한 바퀴 뒤에 있으면 생산자는 기다린다. timeout 이 지나면 그 소비자를 overflowed 로 표시하고
+ *   skipTo 를 반 바퀴 앞으로 올려서 밀어내고 슬롯을 덮어 쓴다. 소비자는 슬롯을 읽기 전후로 available 을 확인해서 덮어 쓴 값을 받지 않는다.
+ * - overflowed 인 소비자는 다시 poll 할 때까지 아무도 기다리지 않고 밀어내기만 한다.
+ *   구독자가 한 묶음을 오래 잡고 있어도 생산자가 기다리는 것은 그 동안 한번(timeout) 뿐이다.
+ */
+final class ChangeRingBuffer {
+
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<ChangeRecord> slots;
+    private final AtomicLongArray available;
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final List<Consumer> consumers = new CopyOnWriteArrayList<>();
+
+    ChangeRingBuffer(int requestedSize) {
+        int size = Integer.highestOneBit(Math.max(2, requestedSize - 1)) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.available = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            available.set(i, -1);
+        }
+    }
+
+    static final class Consumer {
+        //마지막으로 처리한 번호, 소비자 스레드만 쓴다
+        final AtomicLong sequence;
+        //생산자가 밀어낸 위치, 이 번호까지는 건너뛴다
+        final AtomicLong skipTo;
+        //timeout 으로 밀려난 뒤 아직 poll 하지 않았으면 true, 생산자가 더 기다리지 않는다
+        final AtomicBoolean overflowed = new AtomicBoolean();
+
+        Consumer(long start) {
+            this.sequence = new AtomicLong(start);
+            this.skipTo = new AtomicLong(start);
+        }
+
+        long gate() {
+            return Math.max(sequence.get(), skipTo.get());
+        }
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    long cursor() {
+        return cursor.get();
+    }
+
+    //지금 이후에 발행되는 변경부터 받는다
+    Consumer addConsumer() {
+        Consumer consumer = new Consumer(cursor.get());
+        consumers.add(consumer);
+        return consumer;
+    }
+
+    void removeConsumer(Consumer consumer) {
+        consumers.remove(consumer);
+    }
+
+    /**
+     * @return 기다린 경우 true (배압 지표용)
+     */
+    boolean publish(LongFunction<ChangeRecord> factory, long timeoutNanos) {
+        boolean waited = false;
+        long deadline = 0;
+        while (true) {
+            long current = cursor.get();
+            long next = current + 1;
+            long wrapPoint = next - capacity;
+            Consumer blocking = null;
+            for (Consumer consumer : consumers) {
+                if (consumer.gate() < wrapPoint) {
+                    blocking = consumer;
+                    break;
+                }
+            }
+            if (blocking == null) {
+                if (cursor.compareAndSet(current, next)) {
+                    int index = (int) (next & mask);
+                    //덮어 쓰는 중에 소비자가 옛 번호로 읽지 않도록 먼저 무효로 만든다
+                    available.set(index, -1);
+                    slots.set(index, factory.apply(next));
+                    available.set(index, next);
+                    return waited;
+                }
+                continue;
+            }
+            if (blocking.overflowed.get()) {
+                skip(blocking, next);
+                continue;
+            }
+            if (!waited) {
+                waited = true;
+                deadline = System.nanoTime() + timeoutNanos;
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                blocking.overflowed.set(true);
+                skip(blocking, next);
+                continue;
+            }
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    //한 슬롯씩 밀면 다음 발행마다 다시 막히므로 반 바퀴를 비운다
+    private void skip(Consumer consumer, long next) {
+        consumer.skipTo.accumulateAndGet(next - capacity / 2, Math::max);
+    }
+
+    /**
+     * consumer 다음 번호부터 연속으로 공개된 것을 최대 max 개 batch 에 담는다.
+     * 처리가 끝나면 {@link #commit} 으로 번호를 올려야 생산자가 그 슬롯을 쓴다.
+     * @return 밀려나서 건너뛴 건수
+     */
+    long poll(Consumer consumer, List<ChangeRecord> batch, int max) {
+        long missed = 0;
+        //다시 읽기 시작했으니 다음에 밀리면 생산자가 다시 timeout 만큼 기다려 준다
+        consumer.overflowed.set(false);
+        long sequence = consumer.sequence.get();
+        long skipTo = consumer.skipTo.get();
+        if (skipTo > sequence) {
+            missed = skipTo - sequence;
+            sequence = skipTo;
+            consumer.sequence.set(sequence);
+        }
+        long next = sequence + 1;
+        while (batch.size() < max) {
+            int index = (int) (next & mask);
+            if (available.get(index) != next) {
+                break;
+            }
+            ChangeRecord record = slots.get(index);
+            if (available.get(index) != next) {
+                break;
+            }
+            batch.add(record);
+            next++;
+        }
+        return missed;
+    }
+
+    void commit(Consumer consumer, long sequence) {
+        consumer.sequence.set(sequence);
+    }
+
+    long lag(Consumer consumer) {
+        return Math.max(0, cursor.get() - consumer.gate());
+    }
+}
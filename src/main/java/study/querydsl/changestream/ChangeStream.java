@@ -0,0 +1,211 @@
+package study.querydsl.changestream;
+
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import study.querydsl.entity.BulkClauseExecutedEvent;
+import study.querydsl.entity.MemberChangedEvent;
+import study.querydsl.entity.TeamChangedEvent;
+
+import javax.annotation.PreDestroy;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 커밋된 Member/Team 변경을 프로세스 안 구독자에게 흘려보내는 스트림
+ * - 엔티티 생성/수정(merge 포함)/삭제 : MemberChangedEvent, TeamChangedEvent
+ * - Querydsl 벌크 update/delete : ChangeCapturingJPAQueryFactory 가 발행하는 BulkClauseExecutedEvent
+ *   (어떤 행인지는 없이 엔티티와 건수만, TeamMemberCounter 의 member_count 갱신은 들어오지 않는다)
+ * 모두 커밋 후에만 들어오고 (롤백된 변경은 없다), 커밋한 스레드는 링 버퍼에 넣기만 한다.
+ * 구독마다 전용 스레드가 쌓인 변경을 묶음으로 받아 처리한다.
+ *
+ * 배압 : 가장 느린 구독자가 버퍼 한 바퀴만큼 밀리면 커밋한 스레드가 publish-timeout 까지 기다리고,
+ * 그래도 밀려 있으면 그 구독자를 반 바퀴 건너뛰게 하고 onOverflow 로 알린다. 그 구독자가 다음 묶음을 가져갈 때까지는
+ * 더 기다리지 않으므로, 구독자가 멈춰 있어도 커밋 스레드가 기다리는 것은 한번(publish-timeout) 뿐이다.
+ *
+ * 지표 : querydsl.change-stream.published, querydsl.change-stream.backpressure (발행이 기다린 횟수),
+ * 구독자별 (tag subscriber) delivered, batch-size, lag, overflows
+ */
+@Slf4j
+@Component
+public class ChangeStream {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ChangeRingBuffer ringBuffer;
+    private final ChangeStreamProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private final Counter published;
+    private final Counter backpressure;
+
+    public ChangeStream(ChangeStreamProperties properties, MeterRegistry meterRegistry) {
+        this.ringBuffer = new ChangeRingBuffer(properties.getBufferSize());
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.published = Counter.builder("querydsl.change-stream.published").register(meterRegistry);
+        this.backpressure = Counter.builder("querydsl.change-stream.backpressure").register(meterRegistry);
+    }
+
+    @TransactionalEventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        publish("Member", operation(event.getType().name()), event.getMemberId(),
+                event.getBefore(), event.getAfter(), 1);
+    }
+
+    @TransactionalEventListener
+    public void onTeamChanged(TeamChangedEvent event) {
+        boolean deleted = event.getType() == TeamChangedEvent.Type.DELETED;
+        publish("Team", operation(event.getType().name()), event.getTeamId(),
+                deleted ? event.getName() : null, deleted ? null : event.getName(), 1);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkClause(BulkClauseExecutedEvent event) {
+        ChangeRecord.Operation operation = event.getType() == BulkClauseExecutedEvent.Type.DELETE
+                ? ChangeRecord.Operation.BULK_DELETED
+                : ChangeRecord.Operation.BULK_UPDATED;
+        publish(event.getEntity(), operation, null, null, null, event.getAffectedRows());
+    }
+
+    /**
+     * name 은 지표 태그와 스레드 이름에 쓴다. 구독한 다음 커밋된 변경부터 받는다.
+     */
+    public Subscription subscribe(String name, ChangeSubscriber subscriber) {
+        Subscription subscription = new Subscription(name, subscriber);
+        subscriptions.add(subscription);
+        subscription.thread.start();
+        return subscription;
+    }
+
+    //지금까지 발행한 마지막 번호 (없으면 -1)
+    public long getLastSequence() {
+        return ringBuffer.cursor();
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+
+    void publish(String entity, ChangeRecord.Operation operation, Long entityId,
+                 Object before, Object after, long affectedRows) {
+        long committedAt = System.currentTimeMillis();
+        boolean waited = ringBuffer.publish(
+                sequence -> new ChangeRecord(sequence, entity, operation, entityId, before, after, affectedRows, committedAt),
+                TimeUnit.MILLISECONDS.toNanos(properties.getPublishTimeoutMillis()));
+        published.increment();
+        if (waited) {
+            backpressure.increment();
+        }
+    }
+
+    private static ChangeRecord.Operation operation(String type) {
+        return ChangeRecord.Operation.valueOf(type);
+    }
+
+    public class Subscription implements Closeable {
+
+        private final String name;
+        private final ChangeSubscriber subscriber;
+        private final ChangeRingBuffer.Consumer consumer;
+        private final Thread thread;
+        private final Counter delivered;
+        private final Counter overflows;
+        private final DistributionSummary batchSize;
+        private final Gauge lag;
+        private volatile boolean closed;
+
+        private Subscription(String name, ChangeSubscriber subscriber) {
+            this.name = name;
+            this.subscriber = subscriber;
+            this.consumer = ringBuffer.addConsumer();
+            Tags tags = Tags.of("subscriber", name);
+            this.delivered = Counter.builder("querydsl.change-stream.delivered").tags(tags).register(meterRegistry);
+            this.overflows = Counter.builder("querydsl.change-stream.overflows").tags(tags).register(meterRegistry);
+            this.batchSize = DistributionSummary.builder("querydsl.change-stream.batch-size").tags(tags)
+                    .register(meterRegistry);
+            this.lag = Gauge.builder("querydsl.change-stream.lag", consumer, ringBuffer::lag).tags(tags)
+                    .register(meterRegistry);
+            this.thread = new Thread(this::run, "change-stream-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getLag() {
+            return ringBuffer.lag(consumer);
+        }
+
+        //이미 발행된 변경은 모두 넘긴 뒤에 멈춘다
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ringBuffer.removeConsumer(consumer);
+            subscriptions.remove(this);
+            meterRegistry.remove(delivered);
+            meterRegistry.remove(overflows);
+            meterRegistry.remove(batchSize);
+            meterRegistry.remove(lag);
+        }
+
+        private void run() {
+            List<ChangeRecord> batch = new ArrayList<>(properties.getMaxBatchSize());
+            while (true) {
+                long missed = ringBuffer.poll(consumer, batch, properties.getMaxBatchSize());
+                if (missed > 0) {
+                    overflows.increment(missed);
+                    log.warn("change stream subscriber {} fell behind, skipped {} changes", name, missed);
+                    deliver(() -> subscriber.onOverflow(missed));
+                }
+                if (batch.isEmpty()) {
+                    if (closed) {
+                        return;
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                List<ChangeRecord> delivering = Collections.unmodifiableList(new ArrayList<>(batch));
+                deliver(() -> subscriber.onChanges(delivering));
+                delivered.increment(delivering.size());
+                batchSize.record(delivering.size());
+                ringBuffer.commit(consumer, delivering.get(delivering.size() - 1).getSequence());
+                batch.clear();
+            }
+        }
+
+        //구독자 예외로 스트림이 멈추지 않게 로그만 남기고 다음 묶음으로 간다
+        private void deliver(Runnable call) {
+            try {
+                call.run();
+            } catch (RuntimeException e) {
+                log.warn("change stream subscriber {} failed", name, e);
+            }
+        }
+    }
+}
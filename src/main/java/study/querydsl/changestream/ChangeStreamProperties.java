@@ -0,0 +1,21 @@
+package study.querydsl.changestream;
+
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter @Setter
+@ConfigurationProperties(prefix = "querydsl.change-stream")
+public class ChangeStreamProperties {
+
+    //링 버퍼 크기, 2의 거듭제곱으로 올린다
+    private int bufferSize = 4096;
+
+    //구독자에게 한번에 넘기는 최대 건수
+    private int maxBatchSize = 256;
+
+    //버퍼가 가득 찼을 때 발행하는 쪽(커밋한 스레드) 이 가장 느린 구독자를 기다리는 최대 시간
+    //지나면 그 구독자는 밀린 변경을 건너뛰고 onOverflow 를 받는다
+    private long publishTimeoutMillis = 50;
+}
@@ -0,0 +1,20 @@
+package study.querydsl.changestream;
+
+
+import java.util.List;
+
+/**
+ * ChangeStream 구독자, 구독마다 전용 스레드 하나에서 순서대로 불린다.
+ */
+public interface ChangeSubscriber {
+
+    //sequence 순으로 연속된 변경 묶음 (최대 querydsl.change-stream.max-batch-size 개)
+    void onChanges(List<ChangeRecord> batch);
+
+    /**
+     * 너무 느려서 missed 건을 건너뛰었다. 발행하는 쪽을 publish-timeout 이상 막으면 일어난다.
+     * 증분 상태를 들고 있는 구독자는 DB 에서 다시 만들어야 한다.
+     */
+    default void onOverflow(long missed) {
+    }
+}
@@ -1,16 +1,36 @@
 package study.querydsl.controller;
 
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Controller;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import study.querydsl.budget.QueryBudgetGuard;
+import study.querydsl.dto.AgeBucketDto;
+import study.querydsl.dto.CompactPage;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.MemberSearchCondition;
 import study.querydsl.repository.MemberJpaRepository;
-import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberReadPaths;
+import study.querydsl.repository.MemberRepositoryCustom;
+import study.querydsl.repository.ReadPath;
+import study.querydsl.repository.sql.MemberBatchSearchRepository;
+import study.querydsl.repository.sql.MemberSqlRepository;
+import study.querydsl.statistics.AgeHistogramService;
 
 import java.util.List;
 
@@ -19,21 +39,98 @@ import java.util.List;
 public class MemberController {
 
     private final MemberJpaRepository memberJpaRepository;
-    private final MemberRepository memberRepository;
-
+    private final MemberReadPaths memberReadPaths;
+    private final MemberBatchSearchRepository memberBatchSearchRepository;
+    private final AgeHistogramService ageHistogramService;
+    private final MemberSqlRepository memberSqlRepository;
+    private final ObjectMapper objectMapper;
+    private final QueryBudgetGuard queryBudgetGuard;
+
+    //readPath=SQL 이면 querydsl-sql 경로, 지정하지 않으면 querydsl.read-path 설정을 따른다
     @GetMapping("/v1/members")
-    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
-        return memberJpaRepository.search(condition);
+    public WebAsyncTask<List<MemberTeamDto>> searchMemberV1(MemberSearchCondition condition,
+                                                            @RequestParam(required = false) ReadPath readPath) {
+        return queryBudgetGuard.run("v1", () -> {
+            if (memberReadPaths.resolve("v1", readPath) == ReadPath.JPA) {
+                return memberJpaRepository.search(condition);
+            }
+            return memberReadPaths.repository("v1", readPath).search(condition);
+        });
     }
 
+    //페이지 크기, offset 한도는 querydsl.budget 설정
     @GetMapping("/v2/members")
-    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageSimple(condition,pageable);
+    public WebAsyncTask<Page<MemberTeamDto>> searchMemberV2(MemberSearchCondition condition, Pageable pageable,
+                                                            @RequestParam(required = false) ReadPath readPath) {
+        queryBudgetGuard.checkPage("v2", pageable);
+        return queryBudgetGuard.run("v2",
+                () -> memberReadPaths.repository("v2", readPath).searchPageSimple(condition,pageable));
     }
 
     @GetMapping("/v3/members")
-    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageComplex(condition,pageable);
+    public WebAsyncTask<Page<MemberTeamDto>> searchMemberV3(MemberSearchCondition condition, Pageable pageable,
+                                                            @RequestParam(required = false) ReadPath readPath) {
+        queryBudgetGuard.checkPage("v3", pageable);
+        return queryBudgetGuard.run("v3",
+                () -> memberReadPaths.repository("v3", readPath).searchPageComplex(condition,pageable));
+    }
+
+    //커서(memberId) 기반 페이지, total 은 withTotal=true 일 때만 센다
+    @GetMapping("/v4/members")
+    public WebAsyncTask<CompactPage<MemberTeamDto>> searchMemberV4(MemberSearchCondition condition,
+                                                                   @RequestParam(required = false) Long cursor,
+                                                                   @RequestParam(defaultValue = "20") int size,
+                                                                   @RequestParam(defaultValue = "false") boolean withTotal,
+                                                                   @RequestParam(required = false) ReadPath readPath) {
+        if (size < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be positive");
+        }
+        queryBudgetGuard.checkSize("v4", size);
+        return queryBudgetGuard.run("v4", () -> {
+            MemberRepositoryCustom repository = memberReadPaths.repository("v4", readPath);
+            Slice<MemberTeamDto> slice = repository.searchSlice(condition, cursor, size);
+            Long total = withTotal ? repository.count(condition) : null;
+            return CompactPage.of(slice, total);
+        });
+    }
+
+    //v1 과 같은 JSON 을 DTO 리스트 없이 DB 행에서 바로 응답 스트림에 쓴다 (큰 결과용)
+    @GetMapping("/v1/members/stream")
+    public ResponseEntity<StreamingResponseBody> searchMemberStream(MemberSearchCondition condition) {
+        StreamingResponseBody body = queryBudgetGuard.stream("v1-stream", out -> {
+            try (JsonGenerator gen = objectMapper.createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                memberSqlRepository.writeSearchJson(condition, gen);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    //조건 여러개를 한번에 받아서 조건 순서대로 결과 리스트를 돌려준다
+    @PostMapping("/v1/members/batch")
+    public WebAsyncTask<List<List<MemberTeamDto>>> searchMemberBatch(@RequestBody List<MemberSearchCondition> conditions) {
+        if (conditions.size() > MemberBatchSearchRepository.MAX_CONDITIONS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "at most " + MemberBatchSearchRepository.MAX_CONDITIONS + " conditions per batch");
+        }
+        if (conditions.contains(null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "condition must not be null : index " + conditions.indexOf(null));
+        }
+        return queryBudgetGuard.run("v1-batch", () -> memberBatchSearchRepository.search(conditions));
+    }
+
+    //검색 조건에 맞는 회원의 나이 분포, 구간 폭은 width 살
+    @GetMapping("/v1/members/age-histogram")
+    public WebAsyncTask<List<AgeBucketDto>> ageHistogram(MemberSearchCondition condition,
+                                                         @RequestParam(defaultValue = "10") int width) {
+        if (width < 1 || width > AgeHistogramService.MAX_WIDTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "width must be between 1 and " + AgeHistogramService.MAX_WIDTH);
+        }
+        return queryBudgetGuard.run("v1-age-histogram", () -> ageHistogramService.ageHistogram(condition, width));
     }
 
 
@@ -0,0 +1,50 @@
+package study.querydsl.controller;
+
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
+import study.querydsl.budget.QueryBudgetGuard;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.TeamStatisticsDto;
+import study.querydsl.repository.sql.TeamLeaderboardRepository;
+import study.querydsl.statistics.TeamStatistics;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamController {
+
+    private final TeamStatistics teamStatistics;
+    private final TeamLeaderboardRepository teamLeaderboardRepository;
+    private final QueryBudgetGuard queryBudgetGuard;
+
+    //통계는 메모리에서 읽지만 다른 엔드포인트와 같은 풀, 타임아웃, 지표로 다룬다
+    @GetMapping("/v1/teams/statistics")
+    public WebAsyncTask<List<TeamStatisticsDto>> statistics() {
+        return queryBudgetGuard.run("v1-teams-statistics", teamStatistics::getAll);
+    }
+
+    @GetMapping("/v1/teams/{teamId}/statistics")
+    public WebAsyncTask<ResponseEntity<TeamStatisticsDto>> statistics(@PathVariable Long teamId) {
+        return queryBudgetGuard.run("v1-team-statistics", () -> ResponseEntity.of(teamStatistics.get(teamId)));
+    }
+
+    //팀별 나이 많은 순 상위 limit 명, teamId 를 주면 그 팀만
+    @GetMapping("/v1/teams/oldest-members")
+    public WebAsyncTask<List<MemberTeamDto>> oldestMembers(@RequestParam(required = false) Long teamId,
+                                                           @RequestParam(defaultValue = "1") int limit) {
+        if (limit < 1 || limit > TeamLeaderboardRepository.MAX_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + TeamLeaderboardRepository.MAX_LIMIT);
+        }
+        return queryBudgetGuard.run("v1-oldest-members", () -> teamLeaderboardRepository.oldestPerTeam(teamId, limit));
+    }
+}
@@ -0,0 +1,53 @@
+package study.querydsl.controller;
+
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Accept 헤더로 바이너리 응답 선택
+ * Accept: application/x-jackson-smile -> Smile, Accept: application/cbor -> CBOR
+ * 스프링이 클래스패스를 보고 기본 Smile/CBOR 컨버터를 이미 넣어 두는데, 그 컨버터는 부트 빌더를 쓰지 않아서
+ * 뒤에 붙이면 절대 선택되지 않는다. 그래서 같은 자리에서 부트 빌더로 만든 컨버터로 바꿔 끼운다.
+ * 자리는 JSON 컨버터 뒤라서 Accept 가 없거나 모든 타입을 받으면 지금처럼 JSON 이 나간다.
+ * 부트가 설정한 빌더를 쓰므로 DtoSerializers 같은 모듈/설정이 JSON 과 똑같이 적용된다.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    //prototype 빈이라 getObject() 마다 새 빌더
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        replace(converters, MappingJackson2SmileHttpMessageConverter.class, new MappingJackson2SmileHttpMessageConverter(
+                objectMapperBuilder.getObject().factory(new SmileFactory()).build()));
+        replace(converters, MappingJackson2CborHttpMessageConverter.class, new MappingJackson2CborHttpMessageConverter(
+                objectMapperBuilder.getObject().factory(new CBORFactory()).build()));
+    }
+
+    //type 인 컨버터를 모두 빼고 첫번째 자리에 converter 를 넣는다, 없으면 맨 뒤에 붙인다
+    static void replace(List<HttpMessageConverter<?>> converters,
+                        Class<?> type,
+                        HttpMessageConverter<?> converter) {
+        int first = -1;
+        for (int i = converters.size() - 1; i >= 0; i--) {
+            if (type.isInstance(converters.get(i))) {
+                converters.remove(i);
+                first = i;
+            }
+        }
+        converters.add(first < 0 ? converters.size() : first, converter);
+    }
+}
@@ -0,0 +1,17 @@
+package study.querydsl.dto;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//ageFrom <= age < ageTo 인 회원 수
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgeBucketDto {
+
+    private int ageFrom;
+    private int ageTo;
+    private long count;
+}
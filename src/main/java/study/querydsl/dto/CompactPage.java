@@ -0,0 +1,33 @@
+package study.querydsl.dto;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+/**
+ * PageImpl 대신 쓰는 작은 페이지 응답
+ * pageable/sort 블록 없이 content, total(세지 않았으면 null), hasNext, 다음 페이지 커서만 담는다.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompactPage<T> {
+
+    private List<T> content;
+    private Long total;
+    private boolean hasNext;
+    private String cursor;
+
+    //커서는 마지막 회원의 memberId, 다음 요청에 cursor 로 그대로 넘긴다
+    public static CompactPage<MemberTeamDto> of(Slice<MemberTeamDto> slice, Long total) {
+        List<MemberTeamDto> content = slice.getContent();
+        String cursor = slice.hasNext() && !content.isEmpty()
+                ? String.valueOf(content.get(content.size() - 1).getMemberId())
+                : null;
+        return new CompactPage<>(content, total, slice.hasNext(), cursor);
+    }
+}
@@ -0,0 +1,112 @@
+package study.querydsl.dto;
+
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+
+/**
+ * DTO 전용 직렬화기 (리플렉션 기반 BeanSerializer 대신 필드를 직접 쓴다)
+ * 출력은 BeanSerializer 결과와 같아야 한다 - 필드 선언 순서, null 포함.
+ * DTO 에 필드를 추가하면 여기도 같이 고쳐야 하고, DtoSerializersTest 가 차이를 잡는다.
+ * CompactPage 는 응답당 하나라서 기본 직렬화를 쓴다.
+ */
+@JsonComponent
+public class DtoSerializers {
+
+    public static class MemberTeamDtoSerializer extends StdSerializer<MemberTeamDto> {
+
+        public MemberTeamDtoSerializer() {
+            super(MemberTeamDto.class);
+        }
+
+        @Override
+        public void serialize(MemberTeamDto value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            MemberTeamDtoJson.write(gen, value);
+        }
+    }
+
+    public static class MemberDtoSerializer extends StdSerializer<MemberDto> {
+
+        public MemberDtoSerializer() {
+            super(MemberDto.class);
+        }
+
+        @Override
+        public void serialize(MemberDto value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            gen.writeStringField("username", value.getUsername());
+            gen.writeNumberField("age", value.getAge());
+            gen.writeEndObject();
+        }
+    }
+
+    public static class UserDtoSerializer extends StdSerializer<UserDto> {
+
+        public UserDtoSerializer() {
+            super(UserDto.class);
+        }
+
+        @Override
+        public void serialize(UserDto value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            gen.writeStringField("name", value.getName());
+            gen.writeNumberField("age", value.getAge());
+            gen.writeEndObject();
+        }
+    }
+
+    public static class AgeBucketDtoSerializer extends StdSerializer<AgeBucketDto> {
+
+        public AgeBucketDtoSerializer() {
+            super(AgeBucketDto.class);
+        }
+
+        @Override
+        public void serialize(AgeBucketDto value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            gen.writeNumberField("ageFrom", value.getAgeFrom());
+            gen.writeNumberField("ageTo", value.getAgeTo());
+            gen.writeNumberField("count", value.getCount());
+            gen.writeEndObject();
+        }
+    }
+
+    public static class TeamStatisticsDtoSerializer extends StdSerializer<TeamStatisticsDto> {
+
+        public TeamStatisticsDtoSerializer() {
+            super(TeamStatisticsDto.class);
+        }
+
+        @Override
+        public void serialize(TeamStatisticsDto value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            writeNumberField(gen, "teamId", value.getTeamId());
+            gen.writeNumberField("count", value.getCount());
+            gen.writeNumberField("ageSum", value.getAgeSum());
+            gen.writeFieldName("ageAvg");
+            if (value.getAgeAvg() == null) {
+                gen.writeNull();
+            } else {
+                gen.writeNumber(value.getAgeAvg());
+            }
+            writeNumberField(gen, "ageMax", value.getAgeMax());
+            writeNumberField(gen, "ageMin", value.getAgeMin());
+            gen.writeEndObject();
+        }
+    }
+
+    private static void writeNumberField(JsonGenerator gen, String name, Number value) throws IOException {
+        gen.writeFieldName(name);
+        if (value == null) {
+            gen.writeNull();
+        } else if (value instanceof Integer) {
+            gen.writeNumber(value.intValue());
+        } else {
+            gen.writeNumber(value.longValue());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package study.querydsl.dto;
+
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * MemberTeamDto 의 JSON 모양을 한 곳에서 정의한다.
+ * Jackson 이 MemberTeamDto 를 직렬화한 결과와 바이트 단위로 같아야 한다 (필드 순서, null 표현).
+ * DTO 없이 ResultSet 에서 바로 쓰는 스트리밍 경로도 같은 메소드를 써서, 박싱 없이 기본형으로 받는다.
+ */
+public final class MemberTeamDtoJson {
+
+    private MemberTeamDtoJson() {
+    }
+
+    public static void write(JsonGenerator gen, MemberTeamDto dto) throws IOException {
+        Long memberId = dto.getMemberId();
+        Long teamId = dto.getTeamId();
+        write(gen,
+                memberId != null, memberId != null ? memberId : 0L,
+                dto.getUserName(),
+                dto.getAge(),
+                teamId != null, teamId != null ? teamId : 0L,
+                dto.getTeamName());
+    }
+
+    public static void write(JsonGenerator gen,
+                             boolean hasMemberId, long memberId,
+                             String userName,
+                             int age,
+                             boolean hasTeamId, long teamId,
+                             String teamName) throws IOException {
+        gen.writeStartObject();
+        gen.writeFieldName("memberId");
+        if (hasMemberId) {
+            gen.writeNumber(memberId);
+        } else {
+            gen.writeNull();
+        }
+        gen.writeStringField("userName", userName);
+        gen.writeNumberField("age", age);
+        gen.writeFieldName("teamId");
+        if (hasTeamId) {
+            gen.writeNumber(teamId);
+        } else {
+            gen.writeNull();
+        }
+        gen.writeStringField("teamName", teamName);
+        gen.writeEndObject();
+    }
+}
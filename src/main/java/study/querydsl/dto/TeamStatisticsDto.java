@@ -0,0 +1,19 @@
+package study.querydsl.dto;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TeamStatisticsDto {
+
+    private Long teamId;
+    private long count;
+    private long ageSum;
+    private Double ageAvg;
+    private Integer ageMax;
+    private Integer ageMin;
+}
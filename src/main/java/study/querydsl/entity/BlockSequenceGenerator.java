@@ -0,0 +1,40 @@
+package study.querydsl.entity;
+
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * 엔티티별 시퀀스에서 id 를 블록 단위로 가져오는 생성기 (pooled-lo)
+ * 시퀀스 값 v 하나로 [v, v + 블록 크기) 를 이 인스턴스가 쓰므로 insert 마다 시퀀스를 호출하지 않고,
+ * 시퀀스는 DB 에 있어서 애플리케이션 인스턴스가 여러 개여도 블록이 겹치지 않는다.
+ *
+ * 블록 크기는 spring.jpa.properties.querydsl.id.block-size (기본 50),
+ * 엔티티에서 increment_size 파라미터를 주면 그 값이 우선한다.
+ * 시퀀스의 INCREMENT BY 가 블록 크기와 같아야 하므로 운영 중에 블록 크기를 바꿀 때는
+ * ALTER SEQUENCE ... INCREMENT BY 를 먼저 실행하고 모든 인스턴스를 같은 값으로 올린다.
+ */
+public class BlockSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String STRATEGY = "study.querydsl.entity.BlockSequenceGenerator";
+    public static final String BLOCK_SIZE_SETTING = "querydsl.id.block-size";
+    public static final int DEFAULT_BLOCK_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        if (!params.containsKey(INCREMENT_PARAM)) {
+            int blockSize = serviceRegistry.getService(ConfigurationService.class)
+                    .getSetting(BLOCK_SIZE_SETTING, StandardConverters.INTEGER, DEFAULT_BLOCK_SIZE);
+            params.setProperty(INCREMENT_PARAM, String.valueOf(blockSize));
+        }
+        params.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, params, serviceRegistry);
+    }
+}
@@ -0,0 +1,43 @@
+package study.querydsl.entity;
+
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.Arrays;
+
+/**
+ * Querydsl 벌크 절(update/delete) 하나가 실행됐다는 알림 (ChangeCapturingJPAQueryFactory 가 발행)
+ * 어떤 행이 바뀌었는지는 담지 않는다 (절의 where 를 다시 해석하지 않는다).
+ * 그래서 파생 데이터(통계, 회원명 인덱스, 스냅샷, 캐시, 팀 인원수) 는 이 이벤트가 오면 DB 에서 다시 읽어서 맞춘다.
+ *
+ * 커밋 후 리스너는 커밋한 스레드에서 동기로 불리므로, 구독하는 쪽은 여기서 다시 만들지 않는다.
+ * 표시(dirty) 만 해 두고 각자 스케줄 스레드에서 한번에 다시 만든다. 절이 연달아 실행돼도 다시 만드는 건 한번이다.
+ * - TeamStatistics, MemberColumnarSnapshot : rebuildIfRequested
+ * - UsernameIndex : rebuildIfStale (다시 만들기 전까지 회원명 검색은 like)
+ * - TeamMemberCounter : 다음 flush 에서 전체를 다시 센다
+ * - AgeHistogramService : 세대만 올리고 다음 조회가 다시 계산한다
+ *
+ * 청크로 나눈 벌크 작업처럼 끝날 때 MembersBulkChangedEvent 를 한번 발행하는 쪽에서 실행한 절은
+ * coalesced=true 로 오고, 파생 데이터는 그 MembersBulkChangedEvent 로 한번만 다시 만든다.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class BulkClauseExecutedEvent {
+
+    public enum Type { UPDATE, DELETE }
+
+    private final Type type;
+    //엔티티 이름 ex) Member
+    private final String entity;
+    private final long affectedRows;
+    //true 면 작업이 끝날 때 MembersBulkChangedEvent 가 따로 온다
+    private final boolean coalesced;
+
+    //entities 중 하나에 대한 절이고, 이 이벤트로 다시 만들어야 하면 true
+    public boolean needsRebuild(String... entities) {
+        return !coalesced && Arrays.asList(entities).contains(entity);
+    }
+}
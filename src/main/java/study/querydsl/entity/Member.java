@@ -2,16 +2,28 @@ package study.querydsl.entity;
 
 
 import lombok.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_member_username", columnList = "username"),
+        //팀별 나이 순위 (TeamLeaderboardRepository)
+        @Index(name = "idx_member_team_age", columnList = "team_id, age desc")
+})
+@EntityListeners(MemberEntityListener.class)
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username","age"})
 public class Member {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(generator = "member_seq")
+    @GenericGenerator(name = "member_seq", strategy = BlockSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = "sequence_name", value = "member_seq"))
     @Column(name = "member_id")
     private Long id;
 
@@ -23,6 +35,11 @@ public class Member {
     @JoinColumn(name = "team_id")
     private Team team;
 
+    //마지막으로 DB 와 맞춘(로드/저장) 시점의 값, 변경 이벤트의 before 로 쓴다
+    @Transient
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private MemberState loadedState;
+
     public Member(String username) {
         this(username,0);
     }
@@ -39,9 +56,29 @@ public class Member {
         }
     }
 
+    public void setTeam(Team team) {
+        changeTeam(team);
+    }
+
+    //팀의 members 컬렉션은 이미 메모리에 있을 때만 맞춘다, 로딩하지 않는다 (Team.addMember)
     private void changeTeam(Team team) {
+        if (this.team != null && Hibernate.isInitialized(this.team)) {
+            this.team.removeMember(this);
+        }
         this.team = team;
-        team.getMembers().add(this);
+        //로딩되지 않은 프록시 팀이면 members 도 로딩된 적이 없다, 호출하면 팀 select 가 나간다
+        if (team != null && Hibernate.isInitialized(team)) {
+            team.addMember(this);
+        }
+    }
+
+    MemberState getLoadedState() {
+        return loadedState;
+    }
+
+    MemberState markLoaded() {
+        loadedState = MemberState.of(this);
+        return loadedState;
     }
 
 }
@@ -0,0 +1,32 @@
+package study.querydsl.entity;
+
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.Objects;
+
+/**
+ * Member 엔티티 한 건의 변경 (MemberEntityListener 가 발행)
+ * 구독하는 쪽은 @TransactionalEventListener 로 커밋된 변경만 받는다.
+ * CREATED 는 before 가, DELETED 는 after 가 null.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class MemberChangedEvent {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private final Type type;
+    private final Long memberId;
+    private final MemberState before;
+    private final MemberState after;
+
+    public boolean teamOrAgeChanged() {
+        return before == null || after == null
+                || before.getAge() != after.getAge()
+                || !Objects.equals(before.getTeamId(), after.getTeamId());
+    }
+}
@@ -0,0 +1,46 @@
+package study.querydsl.entity;
+
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Member 의 생성/수정/삭제를 MemberChangedEvent 로 발행한다.
+ * 스프링 부트가 Hibernate 에 SpringBeanContainer 를 등록해줘서 엔티티 리스너도 빈으로 주입받는다.
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberEntityListener {
+
+    private final ApplicationEventPublisher publisher;
+
+    @PostLoad
+    public void postLoad(Member member) {
+        member.markLoaded();
+    }
+
+    @PostPersist
+    public void postPersist(Member member) {
+        MemberState after = member.markLoaded();
+        publisher.publishEvent(new MemberChangedEvent(MemberChangedEvent.Type.CREATED, member.getId(), null, after));
+    }
+
+    @PostUpdate
+    public void postUpdate(Member member) {
+        MemberState before = member.getLoadedState();
+        MemberState after = member.markLoaded();
+        publisher.publishEvent(new MemberChangedEvent(MemberChangedEvent.Type.UPDATED, member.getId(), before, after));
+    }
+
+    @PostRemove
+    public void postRemove(Member member) {
+        MemberState before = member.getLoadedState() != null ? member.getLoadedState() : MemberState.of(member);
+        publisher.publishEvent(new MemberChangedEvent(MemberChangedEvent.Type.DELETED, member.getId(), before, null));
+    }
+}
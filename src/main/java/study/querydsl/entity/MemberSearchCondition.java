@@ -0,0 +1,16 @@
+package study.querydsl.entity;
+
+
+import lombok.Data;
+
+@Data
+public class MemberSearchCondition {
+    //회원명, 팀명, 나이(ageGoe, ageLoe)
+
+    private String userName;
+    private String teamName;
+    private Integer ageGoe;
+    private Integer ageLoe;
+    //지정하지 않으면 EXACT
+    private UsernameMatch usernameMatch;
+}
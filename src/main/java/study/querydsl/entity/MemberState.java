@@ -0,0 +1,25 @@
+package study.querydsl.entity;
+
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+//변경 이벤트에 싣는 Member 컬럼 값 (엔티티/프록시를 이벤트 밖으로 흘리지 않기 위해 값만 복사)
+@Getter
+@EqualsAndHashCode
+@ToString
+@RequiredArgsConstructor
+public class MemberState {
+
+    private final String username;
+    private final int age;
+    private final Long teamId;
+
+    public static MemberState of(Member member) {
+        //프록시여도 getId() 는 초기화하지 않는다
+        Long teamId = member.getTeam() != null ? member.getTeam().getId() : null;
+        return new MemberState(member.getUsername(), member.getAge(), teamId);
+    }
+}
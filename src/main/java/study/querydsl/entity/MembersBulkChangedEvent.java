@@ -0,0 +1,20 @@
+package study.querydsl.entity;
+
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 엔티티 이벤트를 거치지 않는 벌크 update/delete 가 실행됐다는 알림
+ * 어떤 행이 바뀌었는지 모르기 때문에 구독하는 쪽은 DB 에서 다시 읽어서 맞춘다.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class MembersBulkChangedEvent {
+
+    //어디서 실행된 벌크 작업인지 (로그용)
+    private final String source;
+    private final long affectedRows;
+}
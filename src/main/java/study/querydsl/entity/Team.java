@@ -2,30 +2,64 @@ package study.querydsl.entity;
 
 
 import lombok.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.LazyCollection;
+import org.hibernate.annotations.LazyCollectionOption;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@EntityListeners(TeamEntityListener.class)
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "name"})
 public class Team {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(generator = "team_seq")
+    @GenericGenerator(name = "team_seq", strategy = BlockSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = "sequence_name", value = "team_seq"))
     @Column(name = "team_id")
     private Long id;
 
     private String name;
 
+    //회원 수 캐시, TeamMemberCounter 가 모아서 한번에 update 한다 (엔티티 변경으로는 쓰지 않는다)
+    @Column(name = "member_count", insertable = false, updatable = false,
+            columnDefinition = "bigint default 0 not null")
+    @Setter(AccessLevel.NONE)
+    private long memberCount;
+
+    //EXTRA : size(), contains() 는 컬렉션을 초기화하지 않고 count 쿼리로 처리한다
     @OneToMany(mappedBy = "team")
+    @LazyCollection(LazyCollectionOption.EXTRA)
     public List<Member> members = new ArrayList<>();
 
     public Team(String name) {
         this.name = name;
     }
 
+    //지금 DB 의 팀 인원수, members 를 로딩하지 않았으면 select count 한번
+    public int countMembers() {
+        return members.size();
+    }
+
+    //초기화되지 않은 members(mappedBy bag) 에 add 하면 로딩 없이 큐에 쌓였다가 flush 때 비워진다
+    void addMember(Member member) {
+        members.add(member);
+    }
+
+    //bag 의 remove 는 전체를 로딩하므로 이미 로딩된 경우에만 지운다, DB 는 member.team_id 로 맞춰진다
+    void removeMember(Member member) {
+        if (Hibernate.isInitialized(members)) {
+            members.remove(member);
+        }
+    }
+
 }
 
 
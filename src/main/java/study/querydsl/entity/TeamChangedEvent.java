@@ -0,0 +1,22 @@
+package study.querydsl.entity;
+
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Team 엔티티 한 건의 변경 (TeamEntityListener 가 발행)
+ * DELETED 면 name 은 삭제 직전 값.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class TeamChangedEvent {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private final Type type;
+    private final Long teamId;
+    private final String name;
+}
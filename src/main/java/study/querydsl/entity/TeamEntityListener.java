@@ -0,0 +1,33 @@
+package study.querydsl.entity;
+
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+//Team 의 생성/수정/삭제를 TeamChangedEvent 로 발행한다
+@Component
+@RequiredArgsConstructor
+public class TeamEntityListener {
+
+    private final ApplicationEventPublisher publisher;
+
+    @PostPersist
+    public void postPersist(Team team) {
+        publisher.publishEvent(new TeamChangedEvent(TeamChangedEvent.Type.CREATED, team.getId(), team.getName()));
+    }
+
+    @PostUpdate
+    public void postUpdate(Team team) {
+        publisher.publishEvent(new TeamChangedEvent(TeamChangedEvent.Type.UPDATED, team.getId(), team.getName()));
+    }
+
+    @PostRemove
+    public void postRemove(Team team) {
+        publisher.publishEvent(new TeamChangedEvent(TeamChangedEvent.Type.DELETED, team.getId(), team.getName()));
+    }
+}
@@ -0,0 +1,11 @@
+package study.querydsl.entity;
+
+//MemberSearchCondition.userName 을 어떻게 비교할지
+public enum UsernameMatch {
+    //username = ?
+    EXACT,
+    //username like '?%'
+    PREFIX,
+    //username like '%?%'
+    CONTAINS
+}
@@ -0,0 +1,108 @@
+package study.querydsl.export;
+
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 회원 내보내기 파일 형식 (.mcol)
+ * <pre>
+ * "MCOL" | row group 0 | row group 1 | ... | footer | footer 길이(int) | "MCOL"
+ * row group = 컬럼 청크 5개 (member_id, username, age, team_id, team_name), 청크마다 deflate 압축
+ * footer    = row group 수, row group 마다 (행 수, 최소/최대 member_id, 청크마다 (offset, 압축 길이, 원래 길이, 인코딩))
+ * </pre>
+ * 컬럼 인코딩
+ * - member_id : 첫 값 + 이전 값과의 차이 (정렬되어 있어서 대부분 1바이트)
+ * - username  : 길이 + UTF-8
+ * - age       : varint
+ * - team_id, team_name : row group 별 사전 + 행마다 사전 번호 (0 은 null)
+ * 정수는 모두 zigzag varint, footer 는 고정 길이 big endian.
+ */
+final class ColumnarFormat {
+
+    static final byte[] MAGIC = {'M', 'C', 'O', 'L'};
+    static final String[] COLUMNS = {"member_id", "username", "age", "team_id", "team_name"};
+
+    static final byte DELTA_VARINT = 1;
+    static final byte PLAIN_STRING = 2;
+    static final byte VARINT = 3;
+    static final byte DICTIONARY_LONG = 4;
+    static final byte DICTIONARY_STRING = 5;
+
+    static final int MEMBER_ID = 0;
+    static final int USERNAME = 1;
+    static final int AGE = 2;
+    static final int TEAM_ID = 3;
+    static final int TEAM_NAME = 4;
+
+    private ColumnarFormat() {
+    }
+
+    //다시 쓰는 바이트 버퍼 (row group 마다 reset)
+    static final class ByteSink {
+        private byte[] bytes = new byte[64 * 1024];
+        private int size;
+
+        void reset() {
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            bytes[size++] = (byte) b;
+        }
+
+        void writeBytes(byte[] b) {
+            ensure(b.length);
+            System.arraycopy(b, 0, bytes, size, b.length);
+            size += b.length;
+        }
+
+        void writeVarLong(long value) {
+            long v = (value << 1) ^ (value >> 63);
+            while ((v & ~0x7FL) != 0) {
+                writeByte((int) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            writeByte((int) v);
+        }
+
+        void writeInt(int value) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+
+    static long readVarLong(ByteBuffer buffer) {
+        long v = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            v |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
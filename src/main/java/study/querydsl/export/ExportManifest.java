@@ -0,0 +1,39 @@
+package study.querydsl.export;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 내보내기 한번의 결과 (manifest.json)
+ * 모든 파티션 파일을 다 쓴 뒤에 마지막으로 쓰기 때문에, manifest 가 있으면 파일이 모두 완성된 것이다.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportManifest {
+
+    private String format;
+    private LocalDateTime createdAt;
+    private List<String> columns = new ArrayList<>();
+    private long totalRows;
+    private List<Partition> partitions = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Partition {
+        private String file;
+        //파티션의 member_id 범위 (양 끝 포함)
+        private long fromId;
+        private long toId;
+        private long rows;
+        private int rowGroups;
+        private long bytes;
+    }
+}
@@ -0,0 +1,46 @@
+package study.querydsl.export;
+
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter @Setter
+@ConfigurationProperties(prefix = "querydsl.export")
+public class ExportProperties {
+
+    //내보낸 파일을 둘 디렉터리, 실행마다 날짜별 하위 디렉터리를 만든다
+    private String directory = "build/export";
+
+    //member_id 범위를 나눠서 동시에 내보내는 파티션 수 (파티션마다 파일 하나, 커넥션 하나)
+    private int partitions = 4;
+
+    //row group 하나의 행 수, 파티션 하나가 메모리에 들고 있는 최대 행 수
+    private int rowGroupSize = 65_536;
+
+    //ResultSet 에서 한번에 가져오는 행 수
+    private int fetchSize = 1000;
+
+    //야간 실행 cron, "-" 이면 끈다 ex) 0 0 3 * * *
+    private String cron = "-";
+
+    //0 이하는 야간 작업이 돌 때가 아니라 설정을 읽을 때 (시작할 때) 거절한다
+    public void setPartitions(int partitions) {
+        this.partitions = positive("partitions", partitions);
+    }
+
+    public void setRowGroupSize(int rowGroupSize) {
+        this.rowGroupSize = positive("rowGroupSize", rowGroupSize);
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = positive("fetchSize", fetchSize);
+    }
+
+    private static int positive(String name, int value) {
+        if (value < 1) {
+            throw new IllegalArgumentException("querydsl.export." + name + " must be positive : " + value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,167 @@
+package study.querydsl.export;
+
+
+import study.querydsl.dto.MemberTeamDto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static study.querydsl.export.ColumnarFormat.*;
+
+/**
+ * MemberColumnarWriter 가 쓴 파일을 읽는다 (검증, 분석 도구용)
+ * footer 와 컬럼 청크를 필요한 부분만 메모리 매핑해서 읽고, 한번에 row group 하나만 푼다.
+ */
+public class MemberColumnarReader implements Closeable {
+
+    private final FileChannel channel;
+    private final List<RowGroup> rowGroups = new ArrayList<>();
+
+    public MemberColumnarReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        long fileSize = channel.size();
+        MappedByteBuffer tail = channel.map(FileChannel.MapMode.READ_ONLY, fileSize - 8, 8);
+        int footerLength = tail.getInt();
+        checkMagic(tail);
+        checkMagic(channel.map(FileChannel.MapMode.READ_ONLY, 0, MAGIC.length));
+
+        MappedByteBuffer footer = channel.map(FileChannel.MapMode.READ_ONLY, fileSize - 8 - footerLength, footerLength);
+        int count = footer.getInt();
+        for (int g = 0; g < count; g++) {
+            RowGroup rowGroup = new RowGroup(footer.getInt(), footer.getLong(), footer.getLong());
+            for (int c = 0; c < COLUMNS.length; c++) {
+                rowGroup.chunks[c] = new Chunk(footer.getLong(), footer.getInt(), footer.getInt(), footer.get());
+            }
+            rowGroups.add(rowGroup);
+        }
+    }
+
+    public long getRows() {
+        long rows = 0;
+        for (RowGroup rowGroup : rowGroups) {
+            rows += rowGroup.rows;
+        }
+        return rows;
+    }
+
+    public int getRowGroups() {
+        return rowGroups.size();
+    }
+
+    public void forEach(Consumer<MemberTeamDto> action) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            for (RowGroup rowGroup : rowGroups) {
+                int n = rowGroup.rows;
+                ByteBuffer ids = inflate(rowGroup.chunks[MEMBER_ID], inflater);
+                ByteBuffer usernames = inflate(rowGroup.chunks[USERNAME], inflater);
+                ByteBuffer ages = inflate(rowGroup.chunks[AGE], inflater);
+                ByteBuffer teamIds = inflate(rowGroup.chunks[TEAM_ID], inflater);
+                ByteBuffer teamNames = inflate(rowGroup.chunks[TEAM_NAME], inflater);
+
+                long[] teamIdDictionary = new long[(int) readVarLong(teamIds)];
+                for (int i = 0; i < teamIdDictionary.length; i++) {
+                    teamIdDictionary[i] = readVarLong(teamIds);
+                }
+                String[] teamNameDictionary = new String[(int) readVarLong(teamNames)];
+                for (int i = 0; i < teamNameDictionary.length; i++) {
+                    teamNameDictionary[i] = readString(teamNames);
+                }
+
+                long memberId = 0;
+                for (int i = 0; i < n; i++) {
+                    memberId += readVarLong(ids);
+                    int teamIdCode = (int) readVarLong(teamIds);
+                    int teamNameCode = (int) readVarLong(teamNames);
+                    action.accept(new MemberTeamDto(memberId,
+                            readString(usernames),
+                            (int) readVarLong(ages),
+                            teamIdCode == 0 ? null : teamIdDictionary[teamIdCode - 1],
+                            teamNameCode == 0 ? null : teamNameDictionary[teamNameCode - 1]));
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private ByteBuffer inflate(Chunk chunk, Inflater inflater) throws IOException {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, chunk.offset, chunk.compressedLength);
+        byte[] input = new byte[chunk.compressedLength];
+        mapped.get(input);
+        byte[] raw = new byte[chunk.rawLength];
+        inflater.reset();
+        inflater.setInput(input);
+        try {
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                length += inflater.inflate(raw, length, raw.length - length);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("corrupt column chunk at " + chunk.offset, e);
+        }
+        return ByteBuffer.wrap(raw);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = (int) readVarLong(buffer);
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static void checkMagic(ByteBuffer buffer) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("not a member export file");
+        }
+    }
+
+    private static class RowGroup {
+        final int rows;
+        final long minMemberId;
+        final long maxMemberId;
+        final Chunk[] chunks = new Chunk[COLUMNS.length];
+
+        RowGroup(int rows, long minMemberId, long maxMemberId) {
+            this.rows = rows;
+            this.minMemberId = minMemberId;
+            this.maxMemberId = maxMemberId;
+        }
+    }
+
+    private static class Chunk {
+        final long offset;
+        final int compressedLength;
+        final int rawLength;
+        final byte encoding;
+
+        Chunk(long offset, int compressedLength, int rawLength, byte encoding) {
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.rawLength = rawLength;
+            this.encoding = encoding;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package study.querydsl.export;
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import static study.querydsl.export.ColumnarFormat.*;
+
+/**
+ * 회원 행을 row group 단위로 모아 컬럼별로 인코딩/압축해서 FileChannel 에 쓴다 (형식은 ColumnarFormat)
+ * 메모리에는 row group 하나 분량의 컬럼 배열과 인코딩 버퍼만 있다. member_id 오름차순으로 넣어야 한다.
+ */
+public class MemberColumnarWriter implements Closeable {
+
+    private final FileChannel channel;
+    private final int rowGroupSize;
+
+    private final long[] memberIds;
+    private final String[] usernames;
+    private final int[] ages;
+    private final boolean[] hasTeams;
+    private final long[] teamIds;
+    private final String[] teamNames;
+    private int size;
+
+    private final ByteSink column = new ByteSink();
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] compressed = new byte[64 * 1024];
+
+    private final ByteSink footer = new ByteSink();
+    private int rowGroups;
+    private long rows;
+    private long position;
+
+    public MemberColumnarWriter(Path file, int rowGroupSize) throws IOException {
+        if (rowGroupSize < 1) {
+            throw new IllegalArgumentException("rowGroupSize must be positive : " + rowGroupSize);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        this.rowGroupSize = rowGroupSize;
+        this.memberIds = new long[rowGroupSize];
+        this.usernames = new String[rowGroupSize];
+        this.ages = new int[rowGroupSize];
+        this.hasTeams = new boolean[rowGroupSize];
+        this.teamIds = new long[rowGroupSize];
+        this.teamNames = new String[rowGroupSize];
+        write(MAGIC, MAGIC.length);
+    }
+
+    public void add(long memberId, String username, int age, boolean hasTeam, long teamId, String teamName)
+            throws IOException {
+        memberIds[size] = memberId;
+        usernames[size] = username;
+        ages[size] = age;
+        hasTeams[size] = hasTeam;
+        teamIds[size] = teamId;
+        teamNames[size] = teamName;
+        size++;
+        if (size == rowGroupSize) {
+            writeRowGroup();
+        }
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public int getRowGroups() {
+        return rowGroups;
+    }
+
+    public long getBytes() {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (size > 0) {
+                writeRowGroup();
+            }
+            ByteSink tail = new ByteSink();
+            tail.writeInt(rowGroups);
+            tail.writeBytes(Arrays.copyOf(footer.bytes(), footer.size()));
+            int footerLength = tail.size();
+            tail.writeInt(footerLength);
+            tail.writeBytes(MAGIC);
+            write(tail.bytes(), tail.size());
+        } finally {
+            deflater.end();
+            channel.close();
+        }
+    }
+
+    private void writeRowGroup() throws IOException {
+        footer.writeInt(size);
+        footer.writeLong(memberIds[0]);
+        footer.writeLong(memberIds[size - 1]);
+
+        column.reset();
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            column.writeVarLong(memberIds[i] - previous);
+            previous = memberIds[i];
+        }
+        writeChunk(DELTA_VARINT);
+
+        column.reset();
+        for (int i = 0; i < size; i++) {
+            writeString(usernames[i]);
+        }
+        writeChunk(PLAIN_STRING);
+
+        column.reset();
+        for (int i = 0; i < size; i++) {
+            column.writeVarLong(ages[i]);
+        }
+        writeChunk(VARINT);
+
+        writeTeamIds();
+        writeChunk(DICTIONARY_LONG);
+
+        writeTeamNames();
+        writeChunk(DICTIONARY_STRING);
+
+        rows += size;
+        rowGroups++;
+        size = 0;
+        //다음 row group 을 채우는 동안 문자열을 잡고 있지 않는다
+        Arrays.fill(usernames, null);
+        Arrays.fill(teamNames, null);
+    }
+
+    private void writeTeamIds() {
+        Map<Long, Integer> dictionary = new HashMap<>();
+        List<Long> values = new ArrayList<>();
+        int[] codes = new int[size];
+        for (int i = 0; i < size; i++) {
+            if (hasTeams[i]) {
+                Integer code = dictionary.get(teamIds[i]);
+                if (code == null) {
+                    code = values.size() + 1;
+                    dictionary.put(teamIds[i], code);
+                    values.add(teamIds[i]);
+                }
+                codes[i] = code;
+            }
+        }
+        column.reset();
+        column.writeVarLong(values.size());
+        for (Long value : values) {
+            column.writeVarLong(value);
+        }
+        for (int i = 0; i < size; i++) {
+            column.writeVarLong(codes[i]);
+        }
+    }
+
+    private void writeTeamNames() {
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> values = new ArrayList<>();
+        int[] codes = new int[size];
+        for (int i = 0; i < size; i++) {
+            if (teamNames[i] != null) {
+                Integer code = dictionary.get(teamNames[i]);
+                if (code == null) {
+                    code = values.size() + 1;
+                    dictionary.put(teamNames[i], code);
+                    values.add(teamNames[i]);
+                }
+                codes[i] = code;
+            }
+        }
+        column.reset();
+        column.writeVarLong(values.size());
+        for (String value : values) {
+            writeString(value);
+        }
+        for (int i = 0; i < size; i++) {
+            column.writeVarLong(codes[i]);
+        }
+    }
+
+    //null 은 길이 -1
+    private void writeString(String value) {
+        if (value == null) {
+            column.writeVarLong(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        column.writeVarLong(utf8.length);
+        column.writeBytes(utf8);
+    }
+
+    private void writeChunk(byte encoding) throws IOException {
+        deflater.reset();
+        deflater.setInput(column.bytes(), 0, column.size());
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        footer.writeLong(position);
+        footer.writeInt(length);
+        footer.writeInt(column.size());
+        footer.writeByte(encoding);
+        write(compressed, length);
+    }
+
+    private void write(byte[] bytes, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer);
+        }
+    }
+}
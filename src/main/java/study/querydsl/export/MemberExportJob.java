@@ -0,0 +1,175 @@
+package study.querydsl.export;
+
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.querydsl.core.Tuple;
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLQueryFactory;
+import com.querydsl.sql.StatementOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static study.querydsl.repository.sql.SMember.member;
+import static study.querydsl.repository.sql.STeam.team;
+
+/**
+ * 분석용으로 전체 회원 + 팀 정보를 컬럼형 파일로 내보낸다.
+ * member_id 범위를 파티션으로 나눠 동시에 읽고, 파티션마다 서버 커서(fetchSize)로 ResultSet 을 흘려보내며
+ * row group 단위로 파일에 쓰기 때문에 메모리는 파티션 수 x row group 크기를 넘지 않는다.
+ */
+@Slf4j
+@Component
+public class MemberExportJob {
+
+    static final String FORMAT = "mcol-1";
+    static final String MANIFEST = "manifest.json";
+
+    private final SQLQueryFactory sqlQueryFactory;
+    private final TransactionTemplate partitionTransaction;
+    private final ExportProperties properties;
+    private final ObjectMapper objectMapper;
+
+    public MemberExportJob(SQLQueryFactory sqlQueryFactory,
+                           PlatformTransactionManager transactionManager,
+                           ExportProperties properties,
+                           ObjectMapper objectMapper) {
+        this.sqlQueryFactory = sqlQueryFactory;
+        this.partitionTransaction = new TransactionTemplate(transactionManager);
+        this.partitionTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.partitionTransaction.setReadOnly(true);
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    @Scheduled(cron = "${querydsl.export.cron:-}")
+    public void nightly() throws IOException {
+        export(Paths.get(properties.getDirectory(), LocalDate.now().toString()));
+    }
+
+    /**
+     * directory 에 파티션 파일과 manifest.json 을 쓴다.
+     * 파티션마다 따로 트랜잭션을 열기 때문에 파티션 사이에 같은 시점의 스냅샷은 보장하지 않는다.
+     */
+    public ExportManifest export(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Tuple range = partitionTransaction.execute(status -> sqlQueryFactory
+                .select(member.memberId.min(), member.memberId.max())
+                .from(member)
+                .fetchOne());
+        Long minId = range == null ? null : range.get(member.memberId.min());
+        Long maxId = range == null ? null : range.get(member.memberId.max());
+
+        List<long[]> ranges = minId == null ? new ArrayList<>() : split(minId, maxId, properties.getPartitions());
+        List<ExportManifest.Partition> partitions = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, ranges.size()));
+        try {
+            List<Future<ExportManifest.Partition>> futures = new ArrayList<>();
+            for (int i = 0; i < ranges.size(); i++) {
+                long[] idRange = ranges.get(i);
+                Path file = directory.resolve(String.format("members-part-%05d.mcol", i));
+                futures.add(executor.submit(() -> exportPartition(file, idRange[0], idRange[1])));
+            }
+            for (Future<ExportManifest.Partition> future : futures) {
+                partitions.add(await(future));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long totalRows = partitions.stream().mapToLong(ExportManifest.Partition::getRows).sum();
+        ExportManifest manifest = new ExportManifest(FORMAT, LocalDateTime.now(),
+                Arrays.asList(ColumnarFormat.COLUMNS), totalRows, partitions);
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(directory.resolve(MANIFEST).toFile(), manifest);
+        log.info("member export {} : {} rows in {} partitions", directory, totalRows, partitions.size());
+        return manifest;
+    }
+
+    private ExportManifest.Partition exportPartition(Path file, long fromId, long toId) {
+        return partitionTransaction.execute(status -> {
+            SQLQuery<?> query = sqlQueryFactory
+                    .select(member.memberId,
+                            member.username,
+                            member.age,
+                            team.teamId,
+                            team.name)
+                    .from(member)
+                    .leftJoin(team).on(member.teamId.eq(team.teamId))
+                    .where(member.memberId.between(fromId, toId))
+                    .orderBy(member.memberId.asc());
+            query.setStatementOptions(StatementOptions.builder().setFetchSize(properties.getFetchSize()).build());
+
+            MemberColumnarWriter writer;
+            try (ResultSet rs = query.getResults();
+                 MemberColumnarWriter w = new MemberColumnarWriter(file, properties.getRowGroupSize())) {
+                writer = w;
+                while (rs.next()) {
+                    long memberId = rs.getLong(1);
+                    String username = rs.getString(2);
+                    int age = rs.getInt(3);
+                    long teamId = rs.getLong(4);
+                    //wasNull 은 마지막으로 읽은 컬럼 기준이라 team_id 를 읽은 직후에 확인한다
+                    boolean hasTeam = !rs.wasNull();
+                    w.add(memberId, username, age, hasTeam, teamId, rs.getString(5));
+                }
+            } catch (SQLException e) {
+                throw sqlQueryFactory.getConfiguration().translate(e);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new ExportManifest.Partition(file.getFileName().toString(), fromId, toId,
+                    writer.getRows(), writer.getRowGroups(), writer.getBytes());
+        });
+    }
+
+    //[minId, maxId] 를 partitions 개의 연속 구간으로 나눈다 (구간 수는 id 개수를 넘지 않는다)
+    static List<long[]> split(long minId, long maxId, int partitions) {
+        long span = maxId - minId + 1;
+        int count = (int) Math.max(1, Math.min(partitions, span));
+        List<long[]> ranges = new ArrayList<>(count);
+        long from = minId;
+        for (int i = 0; i < count; i++) {
+            long size = span / count + (i < span % count ? 1 : 0);
+            ranges.add(new long[]{from, from + size - 1});
+            from += size;
+        }
+        return ranges;
+    }
+
+    private static ExportManifest.Partition await(Future<ExportManifest.Partition> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("member export interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
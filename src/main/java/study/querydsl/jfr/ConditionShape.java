@@ -0,0 +1,47 @@
+package study.querydsl.jfr;
+
+
+import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.entity.UsernameMatch;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 검색 조건 중 어떤 조건이 걸렸는지만 문자열로, 값은 넣지 않는다 (회원명 같은 값이 녹화 파일에 남지 않게)
+ * 예) "userName=PREFIX,teamName,ageGoe", 아무 조건도 없으면 "none"
+ */
+final class ConditionShape {
+
+    static final String NONE = "none";
+
+    private ConditionShape() {
+    }
+
+    static String of(MemberSearchCondition condition) {
+        if (condition == null) {
+            return NONE;
+        }
+        StringBuilder shape = new StringBuilder();
+        if (hasText(condition.getUserName())) {
+            UsernameMatch match = condition.getUsernameMatch() != null ? condition.getUsernameMatch() : UsernameMatch.EXACT;
+            append(shape, "userName=" + match);
+        }
+        if (hasText(condition.getTeamName())) {
+            append(shape, "teamName");
+        }
+        if (condition.getAgeGoe() != null) {
+            append(shape, "ageGoe");
+        }
+        if (condition.getAgeLoe() != null) {
+            append(shape, "ageLoe");
+        }
+        return shape.length() == 0 ? NONE : shape.toString();
+    }
+
+    private static void append(StringBuilder shape, String part) {
+        if (shape.length() > 0) {
+            shape.append(',');
+        }
+        shape.append(part);
+    }
+}
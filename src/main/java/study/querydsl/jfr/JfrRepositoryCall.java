@@ -0,0 +1,146 @@
+package study.querydsl.jfr;
+
+
+import com.querydsl.core.QueryResults;
+import com.querydsl.jpa.impl.JPAQuery;
+import study.querydsl.entity.MemberSearchCondition;
+
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * JFR 녹화 중일 때의 RepositoryCall
+ * 시간은 항상 재고, 문자열(조건 모양, JPQL, 지문) 은 threshold 를 넘어 실제로 기록할 때만 만든다.
+ */
+final class JfrRepositoryCall extends RepositoryCall {
+
+    private final RepositoryRecorder recorder;
+    private final String repository;
+    private final String method;
+    private final MemberSearchCondition condition;
+    //이벤트 종류별로 꺼져 있거나 녹화 설정에서 빠져 있으면 null
+    private final RepositoryCallEvent event;
+    private final boolean queryEvents;
+    private final long start = System.nanoTime();
+
+    private JPAQuery<?> firstQuery;
+    private long rows;
+    private long totalCount = -1;
+    private long contentNanos;
+    private long countNanos;
+
+    JfrRepositoryCall(RepositoryRecorder recorder, String repository, String method,
+                      MemberSearchCondition condition, RepositoryCallEvent event, boolean queryEvents) {
+        this.recorder = recorder;
+        this.repository = repository;
+        this.method = method;
+        this.condition = condition;
+        this.event = event;
+        this.queryEvents = queryEvents;
+        if (event != null) {
+            event.begin();
+        }
+    }
+
+    @Override
+    public <T> List<T> content(JPAQuery<T> query) {
+        QueryExecutionEvent queryEvent = beginQuery();
+        long begin = System.nanoTime();
+        List<T> result = query.fetch();
+        long elapsed = System.nanoTime() - begin;
+        contentNanos += elapsed;
+        rows += result.size();
+        remember(query);
+        commitQuery(queryEvent, "CONTENT", query, result.size(), elapsed);
+        return result;
+    }
+
+    @Override
+    public long count(JPAQuery<?> query, LongSupplier count) {
+        QueryExecutionEvent queryEvent = beginQuery();
+        long begin = System.nanoTime();
+        long total = count.getAsLong();
+        long elapsed = System.nanoTime() - begin;
+        countNanos += elapsed;
+        totalCount = total;
+        remember(query);
+        commitQuery(queryEvent, "COUNT", query, 1, elapsed);
+        return total;
+    }
+
+    @Override
+    public <T> QueryResults<T> results(JPAQuery<T> query) {
+        QueryExecutionEvent queryEvent = beginQuery();
+        long begin = System.nanoTime();
+        QueryResults<T> result = query.fetchResults();
+        long elapsed = System.nanoTime() - begin;
+        contentNanos += elapsed;
+        rows += result.getResults().size();
+        totalCount = result.getTotal();
+        remember(query);
+        commitQuery(queryEvent, "CONTENT", query, result.getResults().size(), elapsed);
+        return result;
+    }
+
+    @Override
+    public void rows(long rows) {
+        this.rows += rows;
+    }
+
+    @Override
+    public void close() {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (!event.shouldCommit() || System.nanoTime() - start < recorder.getCallThresholdNanos()) {
+            return;
+        }
+        event.repository = repository;
+        event.method = method;
+        event.conditionShape = ConditionShape.of(condition);
+        event.jpqlFingerprint = firstQuery == null ? null : JpqlFingerprint.of(firstQuery.toString());
+        event.rows = rows;
+        event.totalCount = totalCount;
+        event.contentDuration = contentNanos;
+        event.countDuration = countNanos;
+        event.commit();
+    }
+
+    private void remember(JPAQuery<?> query) {
+        if (firstQuery == null) {
+            firstQuery = query;
+        }
+    }
+
+    private QueryExecutionEvent beginQuery() {
+        if (!queryEvents) {
+            return null;
+        }
+        QueryExecutionEvent queryEvent = new QueryExecutionEvent();
+        if (!queryEvent.isEnabled()) {
+            return null;
+        }
+        queryEvent.begin();
+        return queryEvent;
+    }
+
+    private void commitQuery(QueryExecutionEvent queryEvent, String kind, JPAQuery<?> query, long queryRows,
+                             long elapsed) {
+        if (queryEvent == null) {
+            return;
+        }
+        queryEvent.end();
+        if (!queryEvent.shouldCommit() || elapsed < recorder.getQueryThresholdNanos()) {
+            return;
+        }
+        String jpql = query.toString();
+        queryEvent.repository = repository;
+        queryEvent.method = method;
+        queryEvent.kind = kind;
+        queryEvent.jpql = jpql;
+        queryEvent.jpqlFingerprint = JpqlFingerprint.of(jpql);
+        queryEvent.rows = queryRows;
+        queryEvent.commit();
+    }
+}
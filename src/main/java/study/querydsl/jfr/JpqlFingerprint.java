@@ -0,0 +1,19 @@
+package study.querydsl.jfr;
+
+
+/**
+ * JPQL 문자열의 짧은 지문, 같은 모양의 쿼리끼리 JMC 에서 묶어 보기 위한 것
+ * Querydsl 은 값을 파라미터(?1) 로 바꿔 JPQL 을 만들기 때문에 조건 값이 달라도 지문은 같다.
+ */
+final class JpqlFingerprint {
+
+    private JpqlFingerprint() {
+    }
+
+    static String of(String jpql) {
+        if (jpql == null) {
+            return null;
+        }
+        return String.format("%08x", jpql.hashCode());
+    }
+}
@@ -0,0 +1,36 @@
+package study.querydsl.jfr;
+
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("study.querydsl.QueryExecution")
+@Label("Query Execution")
+@Category({"Querydsl", "Query"})
+@Description("One Querydsl JPA query executed by a repository method")
+@StackTrace(false)
+class QueryExecutionEvent extends Event {
+
+    @Label("Repository")
+    String repository;
+
+    @Label("Method")
+    String method;
+
+    @Label("Kind")
+    @Description("CONTENT or COUNT")
+    String kind;
+
+    @Label("JPQL Fingerprint")
+    String jpqlFingerprint;
+
+    @Label("JPQL")
+    String jpql;
+
+    @Label("Rows")
+    long rows;
+}
@@ -0,0 +1,42 @@
+package study.querydsl.jfr;
+
+
+import com.querydsl.core.QueryResults;
+import com.querydsl.jpa.impl.JPAQuery;
+
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * 저장소 메서드 한번의 기록, try-with-resources 로 감싸서 쓴다.
+ * 쿼리는 content/count 로 실행해야 나눠서 잰다. 이벤트가 꺼져 있으면 {@link #NOOP} 이라 그대로 실행만 한다.
+ */
+public class RepositoryCall implements AutoCloseable {
+
+    static final RepositoryCall NOOP = new RepositoryCall();
+
+    RepositoryCall() {
+    }
+
+    public <T> List<T> content(JPAQuery<T> query) {
+        return query.fetch();
+    }
+
+    //count 는 지연 실행(PageableExecutionUtils) 될 수 있어서 실행 방법을 받는다
+    public long count(JPAQuery<?> query, LongSupplier count) {
+        return count.getAsLong();
+    }
+
+    //content 와 count 를 한번에 (fetchResults), 시간은 content 로 잡힌다
+    public <T> QueryResults<T> results(JPAQuery<T> query) {
+        return query.fetchResults();
+    }
+
+    //쿼리를 직접 돌린 경우 (스트리밍 등) 처리한 행 수
+    public void rows(long rows) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
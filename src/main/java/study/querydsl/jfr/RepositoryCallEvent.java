@@ -0,0 +1,46 @@
+package study.querydsl.jfr;
+
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("study.querydsl.RepositoryCall")
+@Label("Repository Call")
+@Category({"Querydsl", "Repository"})
+@Description("A repository search method, split into content and count queries")
+@StackTrace(false)
+class RepositoryCallEvent extends Event {
+
+    @Label("Repository")
+    String repository;
+
+    @Label("Method")
+    String method;
+
+    @Label("Condition Shape")
+    @Description("Which search predicates were set, without their values")
+    String conditionShape;
+
+    @Label("JPQL Fingerprint")
+    String jpqlFingerprint;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Total Count")
+    @Description("-1 when no count query ran")
+    long totalCount;
+
+    @Label("Content Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long contentDuration;
+
+    @Label("Count Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long countDuration;
+}
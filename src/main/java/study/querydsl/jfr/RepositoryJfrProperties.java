@@ -0,0 +1,38 @@
+package study.querydsl.jfr;
+
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter @Setter
+@ConfigurationProperties(prefix = "querydsl.jfr")
+public class RepositoryJfrProperties {
+
+    //전체 스위치, 꺼도 JFR 녹화 자체(GC, 스레드 등) 에는 영향 없다
+    private boolean enabled = true;
+
+    //저장소 메서드 한번 (조건 모양, content/count 나눈 시간, 행 수)
+    private Switch repositoryCall = new Switch(true, 10);
+
+    //그 안에서 실행된 쿼리 하나 (JPQL, 지문, 행 수)
+    private Switch query = new Switch(true, 5);
+
+    @Getter @Setter
+    public static class Switch {
+
+        //끄면 이벤트 객체도 만들지 않는다
+        private boolean enabled;
+
+        //이보다 짧으면 기록하지 않는다 (JFR 녹화 설정의 threshold 와 함께 걸린다)
+        private long thresholdMillis;
+
+        public Switch() {
+        }
+
+        public Switch(boolean enabled, long thresholdMillis) {
+            this.enabled = enabled;
+            this.thresholdMillis = thresholdMillis;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package study.querydsl.jfr;
+
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import study.querydsl.entity.MemberSearchCondition;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 저장소 메서드와 그 안의 쿼리 실행을 JFR 이벤트로 남긴다.
+ * 이벤트 : study.querydsl.RepositoryCall (조건 모양, content/count 시간, 행 수, JPQL 지문),
+ * study.querydsl.QueryExecution (쿼리 하나, JPQL 과 행 수)
+ *
+ * 녹화 예) java -XX:StartFlightRecording=filename=querydsl.jfr,settings=profile ... 또는 jcmd <pid> JFR.start
+ * 녹화 중이 아니거나 꺼져 있으면 {@link RepositoryCall#NOOP} 을 돌려주므로 객체를 만들지 않고 쿼리만 실행한다.
+ * jdk.jfr 모듈을 뺀 런타임(jlink 이미지 등) 에서도 그대로 동작한다 (항상 NOOP).
+ *
+ * <pre>
+ * try (RepositoryCall call = recorder.start("MemberRepository", "search", condition)) {
+ *     return call.content(query);
+ * }
+ * </pre>
+ */
+@Slf4j
+@Component
+public class RepositoryRecorder {
+
+    private static final boolean JFR_PRESENT =
+            ClassUtils.isPresent("jdk.jfr.FlightRecorder", RepositoryRecorder.class.getClassLoader());
+
+    private final RepositoryJfrProperties properties;
+
+    public RepositoryRecorder(RepositoryJfrProperties properties) {
+        this.properties = properties;
+        if (!JFR_PRESENT) {
+            log.info("jdk.jfr not available, repository JFR events disabled");
+        }
+    }
+
+    public RepositoryCall start(String repository, String method, MemberSearchCondition condition) {
+        if (!JFR_PRESENT || !properties.isEnabled()) {
+            return RepositoryCall.NOOP;
+        }
+        return JfrSupport.start(this, repository, method, condition);
+    }
+
+    RepositoryJfrProperties getProperties() {
+        return properties;
+    }
+
+    long getCallThresholdNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(properties.getRepositoryCall().getThresholdMillis());
+    }
+
+    long getQueryThresholdNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(properties.getQuery().getThresholdMillis());
+    }
+
+    //jdk.jfr 를 참조하는 코드는 여기로 모아서 JFR 이 있을 때만 로딩되게 한다
+    private static final class JfrSupport {
+
+        //이벤트가 녹화 설정에 들어 있는지 보는 용도, commit 하지 않는다
+        private static final RepositoryCallEvent CALL_EVENT_TYPE = new RepositoryCallEvent();
+        private static final QueryExecutionEvent QUERY_EVENT_TYPE = new QueryExecutionEvent();
+
+        static RepositoryCall start(RepositoryRecorder recorder, String repository, String method,
+                                    MemberSearchCondition condition) {
+            RepositoryJfrProperties properties = recorder.getProperties();
+            //녹화 중일 때만 이벤트 객체를 만든다
+            RepositoryCallEvent event = properties.getRepositoryCall().isEnabled() && CALL_EVENT_TYPE.isEnabled()
+                    ? new RepositoryCallEvent()
+                    : null;
+            boolean queryEvents = properties.getQuery().isEnabled() && QUERY_EVENT_TYPE.isEnabled();
+            if (event == null && !queryEvents) {
+                return RepositoryCall.NOOP;
+            }
+            return new JfrRepositoryCall(recorder, repository, method, condition, event, queryEvents);
+        }
+    }
+}
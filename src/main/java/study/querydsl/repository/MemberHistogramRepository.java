@@ -0,0 +1,70 @@
+package study.querydsl.repository;
+
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import study.querydsl.dto.AgeBucketDto;
+import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.entity.UsernameMatch;
+import study.querydsl.search.UsernameIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@Repository
+@RequiredArgsConstructor
+public class MemberHistogramRepository {
+
+    private final JPAQueryFactory queryFactory;
+    private final UsernameIndex usernameIndex;
+
+    //나이 구간별 회원 수를 DB 에서 group by 로 계산한다 (회원 행은 가져오지 않음)
+    public List<AgeBucketDto> ageHistogram(MemberSearchCondition condition, int width) {
+        //width 는 바인딩 파라미터가 아니라 리터럴로 넣어야 select 와 group by 의 식이 같은 SQL 이 된다
+        //나눗셈은 0 쪽으로 버려서 음수 나이가 틀린 구간에 들어가므로 내림(floor) 이 되게 나머지를 양수로 만들어 뺀다
+        NumberExpression<Integer> bucket = Expressions.numberTemplate(Integer.class,
+                "{0} - mod(mod({0}, " + width + ") + " + width + ", " + width + ")", member.age);
+        List<Tuple> rows = queryFactory
+                .select(bucket, member.count())
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(usernameEq(condition.getUserName(), condition.getUsernameMatch()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()))
+                .groupBy(bucket)
+                .orderBy(bucket.asc())
+                .fetch();
+        List<AgeBucketDto> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            int from = row.get(bucket);
+            result.add(new AgeBucketDto(from, from + width, row.get(member.count())));
+        }
+        return result;
+    }
+
+    private BooleanExpression usernameEq(String userName, UsernameMatch match) {
+        return hasText(userName) ? usernameIndex.matches(member.username, member.id, userName, match) : null;
+    }
+
+    private BooleanExpression teamNameEq(String teamName) {
+        return hasText(teamName) ? team.name.eq(teamName) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+}
@@ -4,6 +4,7 @@ package study.querydsl.repository;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
@@ -12,12 +13,19 @@ import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.entity.UsernameMatch;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.QTeam;
+import study.querydsl.jfr.RepositoryCall;
+import study.querydsl.jfr.RepositoryRecorder;
+import study.querydsl.repository.support.ReadOnlyQueries;
+import study.querydsl.search.UsernameIndex;
 
 import javax.persistence.EntityManager;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.springframework.util.StringUtils.*;
 import static study.querydsl.entity.QMember.*;
@@ -29,6 +37,12 @@ public class MemberJpaRepository {
 
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final UsernameIndex usernameIndex;
+    private final ReadOnlyQueries readOnlyQueries;
+    private final MemberRepository memberRepository;
+    private final RepositoryRecorder recorder;
+
+    private static final String REPOSITORY = "MemberJpaRepository";
 
     public void save(Member member) {
         em.persist(member);
@@ -62,10 +76,19 @@ public class MemberJpaRepository {
                 .where(member.username.eq(name))
                 .fetch();
     }
+
+    //여러 키 조회는 MemberRepository 의 fragment(MemberLookupRepositoryImpl) 구현 하나만 둔다
+    public List<Member> findByIds(Collection<Long> ids) {
+        return memberRepository.findByIds(ids);
+    }
+
+    public List<Member> findByUsernames(Collection<String> names) {
+        return memberRepository.findByUsernames(names);
+    }
     public List<MemberTeamDto> searchByBulider(MemberSearchCondition condition) {
         BooleanBuilder builder = new BooleanBuilder();
         if (hasText(condition.getUserName())) {
-            builder.and(member.username.eq(condition.getUserName()));
+            builder.and(usernameEq(condition.getUserName(), condition.getUsernameMatch()));
         }
         if (hasText(condition.getTeamName())) {
             builder.and(team.name.eq(condition.getTeamName()));
@@ -76,51 +99,75 @@ public class MemberJpaRepository {
         if (condition.getAgeLoe() != null) {
             builder.and(member.age.loe(condition.getAgeLoe()));
         }
-        return queryFactory
-                .select(new QMemberTeamDto(member.id.as("memberId"),
-                        member.username.as("userName"),
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team , team)
-                .where(builder)
-                .fetch();
+        try (RepositoryCall call = recorder.start(REPOSITORY, "searchByBulider", condition)) {
+            return call.content(queryFactory
+                    .select(new QMemberTeamDto(member.id.as("memberId"),
+                            member.username.as("userName"),
+                            member.age,
+                            team.id.as("teamId"),
+                            team.name.as("teamName")))
+                    .from(member)
+                    .leftJoin(member.team , team)
+                    .where(builder));
+        }
     }
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
-                .select(new QMemberTeamDto(member.id.as("memberId"),
-                        member.username.as("userName"),
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team , team)
-                .where(usernameEq(condition.getUserName()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .fetch();
+        try (RepositoryCall call = recorder.start(REPOSITORY, "search", condition)) {
+            return call.content(queryFactory
+                    .select(new QMemberTeamDto(member.id.as("memberId"),
+                            member.username.as("userName"),
+                            member.age,
+                            team.id.as("teamId"),
+                            team.name.as("teamName")))
+                    .from(member)
+                    .leftJoin(member.team , team)
+                    .where(usernameEq(condition.getUserName(), condition.getUsernameMatch()),
+                            teamNameEq(condition.getTeamName()),
+                            ageGoe(condition.getAgeGoe()),
+                            ageLoe(condition.getAgeLoe())));
+        }
     }
     //재사용 가능
     public List<Member> searchMember(MemberSearchCondition condition) {
+        try (RepositoryCall call = recorder.start(REPOSITORY, "searchMember", condition)) {
+            return call.content(searchMemberQuery(condition));
+        }
+    }
+
+    //수정하지 않을 조회용, 읽기 전용으로 로딩하고 조회 전에 flush 하지 않는다 (ReadOnlyQueries)
+    public List<Member> searchMemberReadOnly(MemberSearchCondition condition) {
+        try (RepositoryCall call = recorder.start(REPOSITORY, "searchMemberReadOnly", condition)) {
+            return call.content(readOnlyQueries.apply(searchMemberQuery(condition)));
+        }
+    }
+
+    //결과가 큰 조회용, 한 행씩 넘기고 처리한 회원은 영속성 컨텍스트에서 뗀다
+    public long forEachMember(MemberSearchCondition condition, Consumer<Member> action) {
+        //스트리밍은 처리(action) 시간이 섞이므로 쿼리 이벤트 없이 전체 시간과 행 수만 남긴다
+        try (RepositoryCall call = recorder.start(REPOSITORY, "forEachMember", condition)) {
+            long rows = readOnlyQueries.forEach(searchMemberQuery(condition), action);
+            call.rows(rows);
+            return rows;
+        }
+    }
+
+    private JPAQuery<Member> searchMemberQuery(MemberSearchCondition condition) {
         return queryFactory
                 .select(member)
                 .from(member)
                 .leftJoin(member.team , team)
-                .where(usernameEq(condition.getUserName()),
+                .where(usernameEq(condition.getUserName(), condition.getUsernameMatch()),
                         teamNameEq(condition.getTeamName()),
-                        ageBetween(condition.getAgeLoe(),condition.getAgeGoe()))
+                        ageBetween(condition.getAgeLoe(),condition.getAgeGoe()));
                         //isValide 공통적인 null체크, 필수값 등
-                .fetch();
     }
 
     private BooleanExpression ageBetween(int ageLoe, int ageGoe) {
         return ageGoe(ageGoe).and((ageLoe(ageLoe)));
     }
 
-    private BooleanExpression usernameEq(String userName) {
-        return hasText(userName) ? member.username.eq(userName) : null;
+    private BooleanExpression usernameEq(String userName, UsernameMatch match) {
+        return hasText(userName) ? usernameIndex.matches(member.username, member.id, userName, match) : null;
     }
 
     private BooleanExpression teamNameEq(String teamName) {
@@ -0,0 +1,15 @@
+package study.querydsl.repository;
+
+
+import study.querydsl.entity.Member;
+
+import java.util.Collection;
+import java.util.List;
+
+//여러 키로 한번에 조회 (MemberRepository 의 fragment)
+public interface MemberLookupRepository {
+
+    List<Member> findByIds(Collection<Long> ids);
+    List<Member> findByUsernames(Collection<String> usernames);
+
+}
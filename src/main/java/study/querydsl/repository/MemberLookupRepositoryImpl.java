@@ -0,0 +1,35 @@
+package study.querydsl.repository;
+
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.RequiredArgsConstructor;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.support.InQueries;
+
+import java.util.Collection;
+import java.util.List;
+
+import static study.querydsl.entity.QMember.member;
+
+@RequiredArgsConstructor
+public class MemberLookupRepositoryImpl implements MemberLookupRepository {
+
+    private final JPAQueryFactory queryFactory;
+
+    @Override
+    public List<Member> findByIds(Collection<Long> ids) {
+        return InQueries.fetchInOrder(ids, Member::getId, chunk -> queryFactory
+                .selectFrom(member)
+                .where(member.id.in(chunk))
+                .fetch());
+    }
+
+    @Override
+    public List<Member> findByUsernames(Collection<String> usernames) {
+        return InQueries.fetchInOrder(usernames, Member::getUsername, chunk -> queryFactory
+                .selectFrom(member)
+                .where(member.username.in(chunk))
+                .orderBy(member.id.asc())
+                .fetch());
+    }
+}
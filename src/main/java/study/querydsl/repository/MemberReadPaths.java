@@ -0,0 +1,58 @@
+package study.querydsl.repository;
+
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import study.querydsl.repository.sql.MemberSqlRepository;
+import study.querydsl.shard.ShardedMemberSearch;
+import study.querydsl.snapshot.MemberSnapshotRepository;
+
+/**
+ * 호출 단위(readPath 파라미터) 또는 엔드포인트 단위(querydsl.read-path.endpoints) 로
+ * 검색 경로를 고른다. 호출에서 지정한 값이 엔드포인트 설정보다 우선한다.
+ * 스냅샷이나 샤드가 꺼져 있는데 SNAPSHOT, SHARD 를 고르면 JPA 경로로 처리한다.
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberReadPaths {
+
+    private final MemberRepository memberRepository;
+    private final MemberSqlRepository memberSqlRepository;
+    private final ObjectProvider<MemberSnapshotRepository> memberSnapshotRepository;
+    private final ObjectProvider<ShardedMemberSearch> shardedMemberSearch;
+    private final ReadPathProperties properties;
+
+    public ReadPath resolve(String endpoint, ReadPath requested) {
+        ReadPath readPath = requested != null
+                ? requested
+                : properties.getEndpoints().getOrDefault(endpoint, properties.getDefaultPath());
+        if (readPath == ReadPath.SNAPSHOT && memberSnapshotRepository.getIfAvailable() == null) {
+            return ReadPath.JPA;
+        }
+        if (readPath == ReadPath.SHARD && shardedMemberSearch.getIfAvailable() == null) {
+            return ReadPath.JPA;
+        }
+        return readPath;
+    }
+
+    public MemberRepositoryCustom repository(ReadPath readPath) {
+        switch (readPath) {
+            case SQL:
+                return memberSqlRepository;
+            case SNAPSHOT:
+                MemberSnapshotRepository snapshot = memberSnapshotRepository.getIfAvailable();
+                return snapshot != null ? snapshot : memberRepository;
+            case SHARD:
+                ShardedMemberSearch shard = shardedMemberSearch.getIfAvailable();
+                return shard != null ? shard : memberRepository;
+            case JPA:
+            default:
+                return memberRepository;
+        }
+    }
+
+    public MemberRepositoryCustom repository(String endpoint, ReadPath requested) {
+        return repository(resolve(endpoint, requested));
+    }
+}
@@ -3,6 +3,7 @@ package study.querydsl.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.MemberSearchCondition;
 
@@ -13,5 +14,9 @@ public interface MemberRepositoryCustom {
     List<MemberTeamDto> search(MemberSearchCondition condition);
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition,Pageable pageable);
+    //member_id 커서 기반 (afterMemberId 다음부터 size 개), count 쿼리 없음
+    Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Long afterMemberId, int size);
+    //조건에 맞는 전체 개수만 (content 쿼리 없음)
+    long count(MemberSearchCondition condition);
 
 }
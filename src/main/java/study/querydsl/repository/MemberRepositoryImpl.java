@@ -8,12 +8,19 @@ import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.support.PageableExecutionUtils;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.entity.UsernameMatch;
+import study.querydsl.jfr.RepositoryCall;
+import study.querydsl.jfr.RepositoryRecorder;
+import study.querydsl.search.UsernameIndex;
 
 import java.util.List;
 
@@ -25,42 +32,49 @@ import static study.querydsl.entity.QTeam.team;
 public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
     private final JPAQueryFactory queryFactory;
+    private final UsernameIndex usernameIndex;
+    //JFR 이벤트 (study.querydsl.RepositoryCall / QueryExecution), 녹화 중이 아니면 아무것도 하지 않는다
+    private final RepositoryRecorder recorder;
+
+    private static final String REPOSITORY = "MemberRepository";
 
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
-                .select(new QMemberTeamDto(member.id.as("memberId"),
-                        member.username.as("userName"),
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team , team)
-                .where(usernameEq(condition.getUserName()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .fetch();
-
+        try (RepositoryCall call = recorder.start(REPOSITORY, "search", condition)) {
+            return call.content(queryFactory
+                    .select(new QMemberTeamDto(member.id.as("memberId"),
+                            member.username.as("userName"),
+                            member.age,
+                            team.id.as("teamId"),
+                            team.name.as("teamName")))
+                    .from(member)
+                    .leftJoin(member.team , team)
+                    .where(usernameEq(condition.getUserName(), condition.getUsernameMatch()),
+                            teamNameEq(condition.getTeamName()),
+                            ageGoe(condition.getAgeGoe()),
+                            ageLoe(condition.getAgeLoe())));
+        }
     }
 
     @Override
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-        QueryResults<MemberTeamDto> result = queryFactory
-                .select(new QMemberTeamDto(member.id.as("memberId"),
-                        member.username.as("userName"),
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUserName()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())//한번 조회할때 몇개까지 조회
-                .fetchResults();// 컨텐츠와 카운트 쿼리 두번 날림
+        QueryResults<MemberTeamDto> result;
+        try (RepositoryCall call = recorder.start(REPOSITORY, "searchPageSimple", condition)) {
+            result = call.results(queryFactory
+                    .select(new QMemberTeamDto(member.id.as("memberId"),
+                            member.username.as("userName"),
+                            member.age,
+                            team.id.as("teamId"),
+                            team.name.as("teamName")))
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(usernameEq(condition.getUserName(), condition.getUsernameMatch()),
+                            teamNameEq(condition.getTeamName()),
+                            ageGoe(condition.getAgeGoe()),
+                            ageLoe(condition.getAgeLoe()))
+                    .offset(pageable.getOffset())
+                    .limit(pageable.getPageSize()));//한번 조회할때 몇개까지 조회, 컨텐츠와 카운트 쿼리 두번 날림
+        }
         List<MemberTeamDto> content = result.getResults();
         long count = result.getTotal();
         return new PageImpl<>(content,pageable,count);
@@ -73,43 +87,88 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
         //둘을 쪼갠 이유는 최적화 가능성 때문임, 카운트를 먼저 세고, 혹시 카운트가 없으면 content쿼리를 진행하지 않는다던지
         //혹은 컨텐트 쿼리는 복잡한데 카운트 쿼리는 쉬울때 카운트 쿼리를 빼서 최적화 시킨다던지
         //단, 데이터 몇개 없으면 fetchResult는 이제 곧 없어지기때문에 사용하면 안된다.
-        List<MemberTeamDto> content = queryFactory
-                .select(new QMemberTeamDto(member.id.as("memberId"),
-                        member.username.as("userName"),
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUserName()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())//한번 조회할때 몇개까지 조회
-                .fetch();
+        try (RepositoryCall call = recorder.start(REPOSITORY, "searchPageComplex", condition)) {
+            List<MemberTeamDto> content = call.content(queryFactory
+                    .select(new QMemberTeamDto(member.id.as("memberId"),
+                            member.username.as("userName"),
+                            member.age,
+                            team.id.as("teamId"),
+                            team.name.as("teamName")))
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(usernameEq(condition.getUserName(), condition.getUsernameMatch()),
+                            teamNameEq(condition.getTeamName()),
+                            ageGoe(condition.getAgeGoe()),
+                            ageLoe(condition.getAgeLoe()))
+                    .offset(pageable.getOffset())
+                    .limit(pageable.getPageSize()));//한번 조회할때 몇개까지 조회
+
+            JPAQuery<Long> countQuery = countQuery(condition);
+
+            //카운트를 건너뛰면 (첫 페이지가 덜 찬 경우 등) 이벤트의 totalCount 는 -1
+            return PageableExecutionUtils.getPage(content,pageable,() -> call.count(countQuery, countQuery::fetchOne));
+            //return new PageImpl<>(content,pageable,count);
+        }
+
+    }
 
-        JPAQuery<Long> countQuery = queryFactory
+    @Override
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Long afterMemberId, int size) {
+        //하나 더 읽어서 다음 페이지가 있는지 본다
+        List<MemberTeamDto> content;
+        try (RepositoryCall call = recorder.start(REPOSITORY, "searchSlice", condition)) {
+            content = call.content(queryFactory
+                    .select(new QMemberTeamDto(member.id.as("memberId"),
+                            member.username.as("userName"),
+                            member.age,
+                            team.id.as("teamId"),
+                            team.name.as("teamName")))
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(memberIdGt(afterMemberId),
+                            usernameEq(condition.getUserName(), condition.getUsernameMatch()),
+                            teamNameEq(condition.getTeamName()),
+                            ageGoe(condition.getAgeGoe()),
+                            ageLoe(condition.getAgeLoe()))
+                    .orderBy(member.id.asc())
+                    .limit(size + 1));
+        }
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content.remove(size);
+        }
+        return new SliceImpl<>(content, PageRequest.of(0, size), hasNext);
+    }
+
+    @Override
+    public long count(MemberSearchCondition condition) {
+        try (RepositoryCall call = recorder.start(REPOSITORY, "count", condition)) {
+            JPAQuery<Long> countQuery = countQuery(condition);
+            return call.count(countQuery, countQuery::fetchOne);
+        }
+    }
+
+    private JPAQuery<Long> countQuery(MemberSearchCondition condition) {
+        return queryFactory
                 .select(member.count())
                 .from(member)
                 .leftJoin(member.team, team)
-                .where(usernameEq(condition.getUserName()),
+                .where(usernameEq(condition.getUserName(), condition.getUsernameMatch()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()));
+    }
 
-
-        return PageableExecutionUtils.getPage(content,pageable,countQuery::fetchOne);
-        //return new PageImpl<>(content,pageable,count);
-
+    private BooleanExpression memberIdGt(Long afterMemberId) {
+        return afterMemberId != null ? member.id.gt(afterMemberId) : null;
     }
 
     private BooleanExpression ageBetween(int ageLoe, int ageGoe) {
         return ageGoe(ageGoe).and((ageLoe(ageLoe)));
     }
 
-    private BooleanExpression usernameEq(String userName) {
-        return hasText(userName) ? member.username.eq(userName) : null;
+    private BooleanExpression usernameEq(String userName, UsernameMatch match) {
+        return hasText(userName) ? usernameIndex.matches(member.username, member.id, userName, match) : null;
     }
 
     private BooleanExpression teamNameEq(String teamName) {
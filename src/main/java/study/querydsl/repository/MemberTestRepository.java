@@ -28,18 +28,18 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
     }
 
     public List<Member> basicSelect() {
-        return select(member)
-                .from(member)
+        return readOnly(select(member)
+                .from(member))
                 .fetch();
     }
 
     public List<Member> basicSelectFrom() {
-        return selectFrom(member)
+        return readOnlySelectFrom(member)
                 .fetch();
     }
 
     public Page<Member> searchPageByApply(MemberSearchCondition condition, Pageable pageable) {
-        JPAQuery<Member> query = selectFrom(member)
+        JPAQuery<Member> query = readOnlySelectFrom(member)
                 .where(usernameEq(condition.getUserName()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
@@ -0,0 +1,17 @@
+package study.querydsl.repository;
+
+//검색 쿼리를 어떤 경로로 실행할지
+public enum ReadPath {
+    //Hibernate(JPQL) 경로 - MemberRepositoryImpl
+    JPA,
+    //querydsl-sql 경로 - MemberSqlRepository, 엔티티를 만들지 않고 ResultSet -> DTO
+    SQL,
+    //메모리 열 스냅샷 - MemberSnapshotRepository, querydsl.snapshot.enabled=true 일 때만
+    SNAPSHOT,
+    /**
+     * 팀 기준 샤드 - ShardedMemberSearch, querydsl.shard.enabled=true 일 때만
+     * 주의 : 샤드는 ShardedMemberStore 로 쓴 별도 저장소다. JPA 로 저장/수정/삭제한 회원과 팀은 샤드에 없으므로
+     * 같은 조건이라도 다른 경로(JPA, SQL, SNAPSHOT) 와 결과가 다르다. 기본 DB 의 다른 읽기 경로로 쓰면 안 된다.
+     */
+    SHARD
+}
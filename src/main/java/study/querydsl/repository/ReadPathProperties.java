@@ -0,0 +1,20 @@
+package study.querydsl.repository;
+
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter @Setter
+@ConfigurationProperties(prefix = "querydsl.read-path")
+public class ReadPathProperties {
+
+    //엔드포인트 설정이 없을 때 쓰는 경로
+    private ReadPath defaultPath = ReadPath.JPA;
+
+    //엔드포인트별 경로 ex) v3: sql
+    private Map<String, ReadPath> endpoints = new HashMap<>();
+}
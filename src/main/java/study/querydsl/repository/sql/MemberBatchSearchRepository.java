@@ -0,0 +1,204 @@
+package study.querydsl.repository.sql;
+
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLQueryFactory;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.entity.UsernameMatch;
+import study.querydsl.search.UsernameIndex;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.repository.sql.SMember.member;
+import static study.querydsl.repository.sql.STeam.team;
+
+/**
+ * 여러 검색 조건을 한번에 처리한다.
+ * - 회원명(EXACT) 또는 팀명 하나만 다르고 나이 조건이 같은 조건들은 IN 쿼리 하나로 묶는다
+ * - 나머지는 요청 순번(idx)을 붙여서 UNION ALL 쿼리 하나로 보낸다
+ * 결과는 요청 순서대로 조건별 리스트로 나눠서 돌려준다. 조건 안에서는 member_id 순.
+ */
+@Repository
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class MemberBatchSearchRepository {
+
+    public static final int MAX_CONDITIONS = 100;
+
+    private final SQLQueryFactory sqlQueryFactory;
+    private final UsernameIndex usernameIndex;
+
+    public List<List<MemberTeamDto>> search(List<MemberSearchCondition> conditions) {
+        if (conditions.size() > MAX_CONDITIONS) {
+            throw new IllegalArgumentException("too many conditions : " + conditions.size() + " > " + MAX_CONDITIONS);
+        }
+        //빈 조건({}) 은 전체 검색이지만 null 은 요청이 잘못된 것으로 본다
+        if (conditions.contains(null)) {
+            throw new IllegalArgumentException("condition must not be null : index " + conditions.indexOf(null));
+        }
+        List<List<MemberTeamDto>> results = new ArrayList<>(conditions.size());
+        for (int i = 0; i < conditions.size(); i++) {
+            results.add(new ArrayList<>());
+        }
+
+        Map<InShape, Map<String, List<Integer>>> inGroups = new LinkedHashMap<>();
+        for (int i = 0; i < conditions.size(); i++) {
+            MemberSearchCondition condition = conditions.get(i);
+            InShape shape = InShape.of(condition);
+            if (shape != null) {
+                inGroups.computeIfAbsent(shape, s -> new LinkedHashMap<>())
+                        .computeIfAbsent(shape.keyOf(condition), k -> new ArrayList<>())
+                        .add(i);
+            }
+        }
+
+        List<Integer> unionIndexes = new ArrayList<>();
+        for (int i = 0; i < conditions.size(); i++) {
+            if (InShape.of(conditions.get(i)) == null) {
+                unionIndexes.add(i);
+            }
+        }
+        for (Map.Entry<InShape, Map<String, List<Integer>>> group : inGroups.entrySet()) {
+            Map<String, List<Integer>> indexesByKey = group.getValue();
+            //같은 모양의 조건이 하나뿐이면 IN 으로 묶을 이유가 없으니 UNION 쪽에 합친다
+            if (indexesByKey.size() == 1 && indexesByKey.values().iterator().next().size() == 1) {
+                unionIndexes.addAll(indexesByKey.values().iterator().next());
+                continue;
+            }
+            searchIn(group.getKey(), indexesByKey, results);
+        }
+        if (!unionIndexes.isEmpty()) {
+            searchUnion(conditions, unionIndexes, results);
+        }
+        return results;
+    }
+
+    private void searchIn(InShape shape, Map<String, List<Integer>> indexesByKey, List<List<MemberTeamDto>> results) {
+        StringPath keyPath = shape.userName ? member.username : team.name;
+        List<Tuple> rows = sqlQueryFactory
+                .select(member.memberId,
+                        member.username,
+                        member.age,
+                        team.teamId,
+                        team.name)
+                .from(member)
+                .leftJoin(team).on(member.teamId.eq(team.teamId))
+                .where(keyPath.in(indexesByKey.keySet()),
+                        ageGoe(shape.ageGoe),
+                        ageLoe(shape.ageLoe))
+                .orderBy(member.memberId.asc())
+                .fetch();
+        for (Tuple row : rows) {
+            MemberTeamDto dto = toDto(row, 0);
+            String key = shape.userName ? dto.getUserName() : dto.getTeamName();
+            for (Integer index : indexesByKey.get(key)) {
+                results.get(index).add(dto);
+            }
+        }
+    }
+
+    private void searchUnion(List<MemberSearchCondition> conditions, List<Integer> indexes,
+                             List<List<MemberTeamDto>> results) {
+        List<SQLQuery<Tuple>> branches = new ArrayList<>(indexes.size());
+        for (Integer index : indexes) {
+            branches.add(branch(index, conditions.get(index)));
+        }
+        List<Tuple> rows;
+        if (branches.size() == 1) {
+            rows = branches.get(0).orderBy(member.memberId.asc()).fetch();
+        } else {
+            rows = sqlQueryFactory.query()
+                    .unionAll(new ArrayList<SubQueryExpression<Tuple>>(branches))
+                    .orderBy(Expressions.numberPath(Integer.class, "idx").asc(),
+                            Expressions.numberPath(Long.class, "member_id").asc())
+                    .fetch();
+        }
+        for (Tuple row : rows) {
+            results.get(row.get(0, Integer.class)).add(toDto(row, 1));
+        }
+    }
+
+    //요청 순번을 리터럴 컬럼(idx)으로 붙인 select
+    private SQLQuery<Tuple> branch(int index, MemberSearchCondition condition) {
+        Expression<Integer> idx = Expressions.numberTemplate(Integer.class, Integer.toString(index)).as("idx");
+        return sqlQueryFactory
+                .select(idx,
+                        member.memberId,
+                        member.username,
+                        member.age,
+                        team.teamId,
+                        team.name)
+                .from(member)
+                .leftJoin(team).on(member.teamId.eq(team.teamId))
+                .where(usernameEq(condition.getUserName(), condition.getUsernameMatch()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()));
+    }
+
+    private MemberTeamDto toDto(Tuple row, int offset) {
+        return new MemberTeamDto(row.get(offset, Long.class),
+                row.get(offset + 1, String.class),
+                row.get(offset + 2, Integer.class),
+                row.get(offset + 3, Long.class),
+                row.get(offset + 4, String.class));
+    }
+
+    private BooleanExpression usernameEq(String userName, UsernameMatch match) {
+        return hasText(userName) ? usernameIndex.matches(member.username, member.memberId, userName, match) : null;
+    }
+
+    private BooleanExpression teamNameEq(String teamName) {
+        return hasText(teamName) ? team.name.eq(teamName) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    //IN 으로 묶을 수 있는 조건의 모양 : 회원명/팀명 중 하나만 있고 나이 조건이 같은 경우
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class InShape {
+
+        private final boolean userName;
+        private final Integer ageGoe;
+        private final Integer ageLoe;
+
+        static InShape of(MemberSearchCondition condition) {
+            boolean hasUserName = hasText(condition.getUserName());
+            boolean hasTeamName = hasText(condition.getTeamName());
+            if (hasUserName == hasTeamName) {
+                return null;
+            }
+            //prefix/contains 검색은 값마다 조건이 달라서 IN 으로 묶을 수 없다
+            if (hasUserName && condition.getUsernameMatch() != null && condition.getUsernameMatch() != UsernameMatch.EXACT) {
+                return null;
+            }
+            return new InShape(hasUserName, condition.getAgeGoe(), condition.getAgeLoe());
+        }
+
+        String keyOf(MemberSearchCondition condition) {
+            return userName ? condition.getUserName() : condition.getTeamName();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package study.querydsl.repository.sql;
+
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Wildcard;
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLQueryFactory;
+import com.querydsl.sql.StatementOptions;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.MemberTeamDtoJson;
+import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.entity.UsernameMatch;
+import study.querydsl.repository.MemberRepositoryCustom;
+import study.querydsl.search.UsernameIndex;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.repository.sql.SMember.member;
+import static study.querydsl.repository.sql.STeam.team;
+
+/**
+ * querydsl-sql 로 조회하는 MemberRepositoryCustom 구현
+ * JPQL 파싱, 영속성 컨텍스트, 엔티티 생성을 거치지 않고 ResultSet 을 바로 DTO 로 옮긴다.
+ * SpringConnectionProvider 가 트랜잭션에 묶인 커넥션을 쓰기 때문에 readOnly 트랜잭션 안에서 실행한다.
+ */
+@Repository
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class MemberSqlRepository implements MemberRepositoryCustom {
+
+    //스트리밍할 때 한번에 가져오는 행 수
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private final SQLQueryFactory sqlQueryFactory;
+    private final UsernameIndex usernameIndex;
+
+    @Override
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return fetchDtos(contentQuery(condition));
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> content = fetchDtos(contentQuery(condition)
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize()));
+        Long count = countQuery(condition).fetchOne();
+        return new PageImpl<>(content, pageable, count);
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> content = fetchDtos(contentQuery(condition)
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize()));
+        SQLQuery<Long> countQuery = countQuery(condition);
+        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchOne);
+    }
+
+    @Override
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Long afterMemberId, int size) {
+        SQLQuery<?> query = contentQuery(condition)
+                .orderBy(member.memberId.asc())
+                .limit(size + 1);
+        if (afterMemberId != null) {
+            query.where(member.memberId.gt(afterMemberId));
+        }
+        List<MemberTeamDto> content = fetchDtos(query);
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content.remove(size);
+        }
+        return new SliceImpl<>(content, PageRequest.of(0, size), hasNext);
+    }
+
+    @Override
+    public long count(MemberSearchCondition condition) {
+        return countQuery(condition).fetchOne();
+    }
+
+    /**
+     * search 와 같은 결과를 DTO 리스트 없이 ResultSet 에서 바로 JSON 배열로 쓴다.
+     * 행마다 MemberTeamDto 와 리스트를 만들지 않고, 문자열 컬럼 외에는 할당이 없다.
+     */
+    public void writeSearchJson(MemberSearchCondition condition, JsonGenerator gen) throws IOException {
+        SQLQuery<?> query = contentQuery(condition);
+        query.setStatementOptions(StatementOptions.builder().setFetchSize(STREAM_FETCH_SIZE).build());
+        gen.writeStartArray();
+        try (ResultSet rs = query.getResults()) {
+            while (rs.next()) {
+                long teamId = rs.getLong(4);
+                boolean hasTeam = !rs.wasNull();
+                MemberTeamDtoJson.write(gen,
+                        true, rs.getLong(1),
+                        rs.getString(2),
+                        rs.getInt(3),
+                        hasTeam, teamId,
+                        rs.getString(5));
+            }
+        } catch (SQLException e) {
+            throw sqlQueryFactory.getConfiguration().translate(e);
+        }
+        gen.writeEndArray();
+        gen.flush();
+    }
+
+    private SQLQuery<?> contentQuery(MemberSearchCondition condition) {
+        return sqlQueryFactory
+                .select(member.memberId,
+                        member.username,
+                        member.age,
+                        team.teamId,
+                        team.name)
+                .from(member)
+                .leftJoin(team).on(member.teamId.eq(team.teamId))
+                .where(usernameEq(condition.getUserName(), condition.getUsernameMatch()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()));
+    }
+
+    private SQLQuery<Long> countQuery(MemberSearchCondition condition) {
+        return sqlQueryFactory
+                .select(Wildcard.count)
+                .from(member)
+                .leftJoin(team).on(member.teamId.eq(team.teamId))
+                .where(usernameEq(condition.getUserName(), condition.getUsernameMatch()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()));
+    }
+
+    //select 절 순서 : member_id, username, age, team_id, name
+    private List<MemberTeamDto> fetchDtos(SQLQuery<?> query) {
+        try (ResultSet rs = query.getResults()) {
+            List<MemberTeamDto> result = new ArrayList<>();
+            while (rs.next()) {
+                result.add(toDto(rs));
+            }
+            return result;
+        } catch (SQLException e) {
+            throw sqlQueryFactory.getConfiguration().translate(e);
+        }
+    }
+
+    static MemberTeamDto toDto(ResultSet rs) throws SQLException {
+        long teamId = rs.getLong(4);
+        //wasNull 은 마지막으로 읽은 컬럼 기준이라 team_id 를 읽은 직후에 확인한다
+        Long nullableTeamId = rs.wasNull() ? null : teamId;
+        return new MemberTeamDto(rs.getLong(1),
+                rs.getString(2),
+                rs.getInt(3),
+                nullableTeamId,
+                rs.getString(5));
+    }
+
+    private BooleanExpression usernameEq(String userName, UsernameMatch match) {
+        return hasText(userName) ? usernameIndex.matches(member.username, member.memberId, userName, match) : null;
+    }
+
+    private BooleanExpression teamNameEq(String teamName) {
+        return hasText(teamName) ? team.name.eq(teamName) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+}
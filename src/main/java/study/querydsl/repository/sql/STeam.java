@@ -0,0 +1,65 @@
+package study.querydsl.repository.sql;
+
+import static com.querydsl.core.types.PathMetadataFactory.*;
+
+import com.querydsl.core.types.dsl.*;
+
+import com.querydsl.core.types.PathMetadata;
+import com.querydsl.core.types.Path;
+
+import com.querydsl.sql.ColumnMetadata;
+import java.sql.Types;
+
+
+/**
+ * STeam is a Querydsl query type for STeam
+ * H2 스키마의 TEAM 테이블 (./gradlew generateQuerydslSql 로 다시 생성)
+ */
+public class STeam extends com.querydsl.sql.RelationalPathBase<STeam> {
+
+    private static final long serialVersionUID = -1172645306L;
+
+    public static final STeam team = new STeam("TEAM");
+
+    public final NumberPath<Long> memberCount = createNumber("memberCount", Long.class);
+
+    public final StringPath name = createString("name");
+
+    public final NumberPath<Long> teamId = createNumber("teamId", Long.class);
+
+    public final com.querydsl.sql.PrimaryKey<STeam> teamPk = createPrimaryKey(teamId);
+
+    public final com.querydsl.sql.ForeignKey<SMember> _memberTeamFk = createInvForeignKey(teamId, "TEAM_ID");
+
+    public STeam(String variable) {
+        super(STeam.class, forVariable(variable), "PUBLIC", "TEAM");
+        addMetadata();
+    }
+
+    public STeam(String variable, String schema, String table) {
+        super(STeam.class, forVariable(variable), schema, table);
+        addMetadata();
+    }
+
+    public STeam(String variable, String schema) {
+        super(STeam.class, forVariable(variable), schema, "TEAM");
+        addMetadata();
+    }
+
+    public STeam(Path<? extends STeam> path) {
+        super(path.getType(), path.getMetadata(), "PUBLIC", "TEAM");
+        addMetadata();
+    }
+
+    public STeam(PathMetadata metadata) {
+        super(STeam.class, metadata, "PUBLIC", "TEAM");
+        addMetadata();
+    }
+
+    public void addMetadata() {
+        addMetadata(memberCount, ColumnMetadata.named("MEMBER_COUNT").withIndex(2).ofType(Types.BIGINT).withSize(19).notNull());
+        addMetadata(name, ColumnMetadata.named("NAME").withIndex(3).ofType(Types.VARCHAR).withSize(255));
+        addMetadata(teamId, ColumnMetadata.named("TEAM_ID").withIndex(1).ofType(Types.BIGINT).withSize(19).notNull());
+    }
+
+}
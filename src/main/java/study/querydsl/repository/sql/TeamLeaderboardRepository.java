@@ -0,0 +1,92 @@
+package study.querydsl.repository.sql;
+
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.sql.SQLExpressions;
+import com.querydsl.sql.SQLQuery;
+import com.querydsl.sql.SQLQueryFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static study.querydsl.repository.sql.SMember.member;
+import static study.querydsl.repository.sql.STeam.team;
+
+/**
+ * 팀별 나이 많은 순 상위 N 명
+ * select ... from (select ..., row_number() over (partition by team_id order by age desc, member_id) rn
+ *                  from member join team ...) ranked
+ * where ranked.rn <= N
+ * member 를 한번만 훑고 팀별로 번호를 매기기 때문에, 회원마다 같은 팀을 다시 조회하는
+ * 상관 서브쿼리(age = (select max(age) ... where team_id = m.team_id)) 보다 회원 수에 대해 선형이다.
+ * 나이가 같으면 member_id 가 작은 회원이 앞선다 (항상 정확히 N 명까지).
+ * (team_id, age desc) 인덱스는 Member 엔티티에 있다.
+ */
+@Repository
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class TeamLeaderboardRepository {
+
+    public static final int MAX_LIMIT = 100;
+
+    private static final PathBuilder<Object> ranked = new PathBuilder<>(Object.class, "ranked");
+    private static final NumberPath<Long> memberId = ranked.getNumber("member_id", Long.class);
+    private static final StringPath username = ranked.getString("username");
+    private static final NumberPath<Integer> age = ranked.getNumber("age", Integer.class);
+    private static final NumberPath<Long> teamId = ranked.getNumber("team_id", Long.class);
+    private static final StringPath teamName = ranked.getString("team_name");
+    private static final NumberPath<Long> rowNumber = ranked.getNumber("rn", Long.class);
+
+    private final SQLQueryFactory sqlQueryFactory;
+
+    //teamId 가 null 이면 모든 팀, 결과는 팀 id 순 + 팀 안에서 순위 순
+    public List<MemberTeamDto> oldestPerTeam(Long teamIdCondition, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT + " : " + limit);
+        }
+        SQLQuery<?> query = sqlQueryFactory
+                .select(memberId, username, age, teamId, teamName)
+                .from(SQLExpressions
+                        .select(member.memberId.as("member_id"),
+                                member.username.as("username"),
+                                member.age.as("age"),
+                                team.teamId.as("team_id"),
+                                team.name.as("team_name"),
+                                SQLExpressions.rowNumber().over()
+                                        .partitionBy(member.teamId)
+                                        .orderBy(member.age.desc(), member.memberId.asc())
+                                        .as("rn"))
+                        .from(member)
+                        .join(team).on(member.teamId.eq(team.teamId))
+                        .where(teamIdEq(teamIdCondition)), ranked)
+                .where(rowNumber.loe((long) limit))
+                .orderBy(teamId.asc(), rowNumber.asc());
+        try (ResultSet rs = query.getResults()) {
+            List<MemberTeamDto> result = new ArrayList<>();
+            while (rs.next()) {
+                result.add(new MemberTeamDto(rs.getLong(1),
+                        rs.getString(2),
+                        rs.getInt(3),
+                        rs.getLong(4),
+                        rs.getString(5)));
+            }
+            return result;
+        } catch (SQLException e) {
+            throw sqlQueryFactory.getConfiguration().translate(e);
+        }
+    }
+
+    //파티션 전에 거르도록 서브쿼리 안에 건다
+    private BooleanExpression teamIdEq(Long teamIdCondition) {
+        return teamIdCondition != null ? member.teamId.eq(teamIdCondition) : null;
+    }
+}
@@ -0,0 +1,89 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.SimpleExpression;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 여러 키로 한번에 조회할 때 쓰는 IN 절 도우미
+ *
+ * IN 파라미터 개수가 요청마다 달라지면 JPQL/SQL 문자열도 매번 달라져서
+ * Hibernate 쿼리 플랜 캐시와 H2 PreparedStatement 캐시가 재사용되지 않는다.
+ * 키를 최대 {@link #MAX_IN_SIZE} 개씩 자르고 각 청크를 2의 거듭제곱 크기로 (마지막 키 반복) 채워서
+ * 쿼리 모양을 1, 2, 4, ..., 512 개로 제한한다.
+ */
+public final class InQueries {
+
+    public static final int MAX_IN_SIZE = 512;
+
+    private InQueries() {
+    }
+
+    /**
+     * 키 순서대로 결과를 돌려준다. 중복 키는 한번만 조회하고, 결과도 키가 처음 나온 위치에 한번만 들어간다.
+     * 키 하나에 여러 결과가 있으면 query 가 돌려준 순서를 유지한다.
+     */
+    public static <K, T> List<T> fetchInOrder(Collection<K> keys,
+                                              Function<T, K> keyOf,
+                                              Function<List<K>, List<T>> query) {
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        LinkedHashSet<K> distinctKeys = new LinkedHashSet<>(keys);
+        Map<K, List<T>> byKey = new LinkedHashMap<>();
+        for (List<K> chunk : paddedChunks(distinctKeys)) {
+            for (T row : query.apply(chunk)) {
+                byKey.computeIfAbsent(keyOf.apply(row), k -> new ArrayList<>()).add(row);
+            }
+        }
+        List<T> result = new ArrayList<>();
+        for (K key : distinctKeys) {
+            result.addAll(byKey.getOrDefault(key, Collections.emptyList()));
+        }
+        return result;
+    }
+
+    /**
+     * path IN (keys) 조건을 같은 규칙(512 개씩, 2의 거듭제곱 크기로 채움) 으로 만든다. 청크가 여럿이면 OR 로 잇는다.
+     * 결과를 키 순서로 맞출 필요 없이 조건으로만 쓸 때 (ex. 다른 조건과 함께 where 에 넣을 때)
+     */
+    public static <K> BooleanExpression in(SimpleExpression<K> path, Collection<K> keys) {
+        if (keys.isEmpty()) {
+            return path.in(Collections.<K>emptyList());
+        }
+        BooleanExpression result = null;
+        for (List<K> chunk : paddedChunks(new LinkedHashSet<>(keys))) {
+            BooleanExpression in = path.in(chunk);
+            result = result == null ? in : result.or(in);
+        }
+        return result;
+    }
+
+    static <K> List<List<K>> paddedChunks(Collection<K> distinctKeys) {
+        List<K> all = new ArrayList<>(distinctKeys);
+        List<List<K>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += MAX_IN_SIZE) {
+            List<K> chunk = new ArrayList<>(all.subList(from, Math.min(from + MAX_IN_SIZE, all.size())));
+            K last = chunk.get(chunk.size() - 1);
+            int padded = paddedSize(chunk.size());
+            while (chunk.size() < padded) {
+                chunk.add(last);
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    static int paddedSize(int size) {
+        int padded = Integer.highestOneBit(size);
+        return padded == size ? size : padded << 1;
+    }
+}
@@ -16,10 +16,13 @@ import org.springframework.data.querydsl.SimpleEntityPathResolver;
 import org.springframework.data.repository.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.Assert;
+import study.querydsl.jfr.RepositoryCall;
+import study.querydsl.jfr.RepositoryRecorder;
 
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
@@ -34,6 +37,8 @@ public abstract class Querydsl4RepositorySupport {
     private Querydsl querydsl;
     private EntityManager entityManager;
     private JPAQueryFactory queryFactory;
+    private ReadOnlyQueries readOnlyQueries;
+    private RepositoryRecorder recorder;
 
     public Querydsl4RepositorySupport(Class<?> domainClass) {
         Assert.notNull(domainClass, "Domain class must not be null!");
@@ -50,7 +55,23 @@ public abstract class Querydsl4RepositorySupport {
         this.entityManager = entityManager;
         this.querydsl = new Querydsl(entityManager, new
                 PathBuilder<>(path.getType(), path.getMetadata()));
-        this.queryFactory = new JPAQueryFactory(entityManager);
+    }
+
+    //애플리케이션의 JPAQueryFactory 빈 (쿼리 예산, 벌크 절 알림이 같이 걸린다)
+    @Autowired
+    public void setQueryFactory(JPAQueryFactory queryFactory) {
+        this.queryFactory = queryFactory;
+    }
+
+    @Autowired
+    public void setReadOnlyQueries(ReadOnlyQueries readOnlyQueries) {
+        this.readOnlyQueries = readOnlyQueries;
+    }
+
+    //applyPagination 의 content/count 쿼리를 JFR 이벤트로 남긴다
+    @Autowired
+    public void setRecorder(RepositoryRecorder recorder) {
+        this.recorder = recorder;
     }
 
     @PostConstruct
@@ -58,6 +79,8 @@ public abstract class Querydsl4RepositorySupport {
         Assert.notNull(entityManager, "EntityManager must not be null!");
         Assert.notNull(querydsl, "Querydsl must not be null!");
         Assert.notNull(queryFactory, "QueryFactory must not be null!");
+        Assert.notNull(readOnlyQueries, "ReadOnlyQueries must not be null!");
+        Assert.notNull(recorder, "RepositoryRecorder must not be null!");
     }
 
     protected JPAQueryFactory getQueryFactory() {
@@ -80,23 +103,44 @@ public abstract class Querydsl4RepositorySupport {
         return getQueryFactory().selectFrom(from);
     }
 
+    /**
+     * 수정하지 않을 엔티티 조회 : 읽기 전용 힌트, COMMIT flush 모드, fetch size 적용
+     * @see ReadOnlyQueries
+     */
+    protected <T> JPAQuery<T> readOnly(JPAQuery<T> query) {
+        return readOnlyQueries.apply(query);
+    }
+
+    protected <T> JPAQuery<T> readOnlySelectFrom(EntityPath<T> from) {
+        return readOnly(selectFrom(from));
+    }
+
+    //큰 결과를 한 행씩 처리하면서 처리한 엔티티를 영속성 컨텍스트에서 뗀다
+    protected <T> long forEachReadOnly(JPAQuery<T> query, Consumer<? super T> action) {
+        return readOnlyQueries.forEach(query, action);
+    }
+
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery) {
         JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable,
-                jpaQuery).fetch();
-        return PageableExecutionUtils.getPage(content, pageable,
-                jpaQuery::fetchCount);
+        try (RepositoryCall call = recorder.start(getClass().getSimpleName(), "applyPagination", null)) {
+            List<T> content = call.content(getQuerydsl().applyPagination(pageable,
+                    jpaQuery));
+            return PageableExecutionUtils.getPage(content, pageable,
+                    () -> call.count(jpaQuery, jpaQuery::fetchCount));
+        }
     }
 
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
             JPAQuery> countQuery) {
         JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable,
-                jpaContentQuery).fetch();
-        JPAQuery countResult = countQuery.apply(getQueryFactory());
-        return PageableExecutionUtils.getPage(content, pageable,
-                countResult::fetchCount);
+        try (RepositoryCall call = recorder.start(getClass().getSimpleName(), "applyPagination", null)) {
+            List<T> content = call.content(getQuerydsl().applyPagination(pageable,
+                    jpaContentQuery));
+            JPAQuery countResult = countQuery.apply(getQueryFactory());
+            return PageableExecutionUtils.getPage(content, pageable,
+                    () -> call.count(countResult, countResult::fetchCount));
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package study.querydsl.repository.support;
+
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.jpa.impl.JPAQuery;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 수정하지 않을 엔티티 조회용 설정
+ * - 읽기 전용 힌트 : dirty checking 스냅샷을 만들지 않고 flush 대상에서 빠진다
+ * - COMMIT flush 모드 : 조회 전에 자동 flush 하지 않는다 (같은 트랜잭션에서 flush 전 변경은 보이지 않는다)
+ * - fetch size : querydsl.read-only.fetch-size
+ * 읽기 전용으로 읽은 엔티티를 수정해도 DB 에 반영되지 않는다.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReadOnlyQueries {
+
+    private final EntityManager em;
+    private final ReadOnlyQueryProperties properties;
+
+    public <T> JPAQuery<T> apply(JPAQuery<T> query) {
+        return query
+                .setHint(QueryHints.READ_ONLY, true)
+                .setHint(QueryHints.FETCH_SIZE, properties.getFetchSize())
+                .setFlushMode(FlushModeType.COMMIT);
+    }
+
+    /**
+     * 엔티티를 스크롤로 한 행씩 읽어 action 에 넘기고, clear-interval 개마다 처리한 엔티티를 detach 한다
+     * 결과가 아무리 커도 영속성 컨텍스트에는 최대 clear-interval 개만 남는다.
+     * 엔티티를 select 하는 쿼리에만 쓴다. 영속성 컨텍스트의 다른 엔티티는 건드리지 않는다.
+     */
+    public <T> long forEach(JPAQuery<T> query, Consumer<? super T> action) {
+        int clearInterval = properties.getClearInterval();
+        List<T> processed = new ArrayList<>(clearInterval);
+        long count = 0;
+        CloseableIterator<T> iterator = apply(query).iterate();
+        try {
+            while (iterator.hasNext()) {
+                T entity = iterator.next();
+                action.accept(entity);
+                processed.add(entity);
+                count++;
+                if (processed.size() >= clearInterval) {
+                    detach(processed);
+                }
+            }
+            detach(processed);
+        } finally {
+            iterator.close();
+        }
+        return count;
+    }
+
+    private <T> void detach(List<T> entities) {
+        for (T entity : entities) {
+            em.detach(entity);
+        }
+        entities.clear();
+    }
+}
@@ -0,0 +1,17 @@
+package study.querydsl.repository.support;
+
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter @Setter
+@ConfigurationProperties(prefix = "querydsl.read-only")
+public class ReadOnlyQueryProperties {
+
+    //읽기 전용 조회의 JDBC fetch size (한번에 가져오는 행 수)
+    private int fetchSize = 500;
+
+    //forEach 에서 이 개수마다 처리한 엔티티를 영속성 컨텍스트에서 뗀다
+    private int clearInterval = 1000;
+}
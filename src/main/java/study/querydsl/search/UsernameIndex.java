@@ -0,0 +1,321 @@
+package study.querydsl.search;
+
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.BulkClauseExecutedEvent;
+import study.querydsl.entity.MemberChangedEvent;
+import study.querydsl.entity.MembersBulkChangedEvent;
+import study.querydsl.entity.UsernameMatch;
+import study.querydsl.repository.support.InQueries;
+import study.querydsl.warmup.StartupOrder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 회원명 prefix / 부분 문자열 검색용 메모리 인덱스
+ * - prefix : 회원명 정렬 맵(skip list)에서 범위 조회
+ * - contains : 3-gram 역색인의 교집합을 구한 뒤 실제 회원명으로 한번 더 확인
+ * 커밋된 Member 변경 이벤트로 갱신하고, 벌크 변경이 있으면 DB 에서 다시 만든다.
+ *
+ * 찾은 id 가 너무 많거나(maxCandidates) 검색어가 3글자보다 짧으면 인덱스를 쓰지 않고 like 로 DB 에 맡긴다.
+ *
+ * 인덱스는 커밋된 변경만 안다. 그래서 아래 경우도 like 를 쓴다.
+ * - 쓰기 트랜잭션 안 : 같은 트랜잭션에서 아직 커밋하지 않은 회원이 보여야 한다
+ * - 처음 rebuild 가 끝나기 전 (ApplicationReadyEvent 전)
+ * - Querydsl 벌크 절이 커밋된 뒤 다시 만든 인덱스로 바꿔 끼우기 전. 벌크 절은 커밋하는 스레드에서 rebuild 하지 않고
+ *   요청 세대만 올려 두고, 스케줄 스레드가 한번에 다시 만든다 (연달아 실행돼도 한번).
+ * rebuild 중에 커밋된 변경은 따로 모아 두었다가 새 인덱스에 다시 적용한 뒤 바꿔 끼운다 (rebuild 와 증분 갱신이 엇갈려도 잃지 않는다).
+ * 찾은 id 는 InQueries 규칙으로 IN 크기를 채워서 쿼리 모양을 재사용한다.
+ */
+@Slf4j
+@Component
+public class UsernameIndex {
+
+    private static final int GRAM = 3;
+
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate readTransaction;
+    private final UsernameIndexProperties properties;
+    private volatile Entries entries = new Entries();
+    private volatile boolean ready;
+    //entries 증분 갱신과 rebuild 교체를 맞추는 락, pending 은 rebuild 중일 때만 null 이 아니다
+    private final Object entriesLock = new Object();
+    private List<MemberChangedEvent> pending;
+    //rebuild 는 한번에 하나만
+    private final Object rebuildLock = new Object();
+    //벌크 절로 rebuild 를 요청한 세대와 마지막 rebuild 가 반영한 세대, 다르면 인덱스가 DB 보다 뒤처져 있다
+    private final AtomicLong requestedGeneration = new AtomicLong();
+    private volatile long rebuiltGeneration;
+
+    public UsernameIndex(JPAQueryFactory queryFactory,
+                         PlatformTransactionManager transactionManager,
+                         UsernameIndexProperties properties) {
+        this.queryFactory = queryFactory;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        this.properties = properties;
+    }
+
+    /**
+     * 회원명 조건을 만든다. EXACT 는 그대로 eq, PREFIX/CONTAINS 는 인덱스로 찾은 id IN 조건.
+     * JPA(QMember), querydsl-sql(SMember) 어느 쪽 경로든 쓸 수 있게 path 를 받는다.
+     */
+    public BooleanExpression matches(StringPath username, NumberPath<Long> id, String userName, UsernameMatch match) {
+        if (match == null || match == UsernameMatch.EXACT) {
+            return username.eq(userName);
+        }
+        if (usable()) {
+            Optional<Set<Long>> ids = match == UsernameMatch.PREFIX ? findByPrefix(userName) : findContaining(userName);
+            if (ids.isPresent()) {
+                return InQueries.in(id, new TreeSet<>(ids.get()));
+            }
+        }
+        return match == UsernameMatch.PREFIX ? username.startsWith(userName) : username.contains(userName);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    //커밋된 것만 보면 되는 경우 : 트랜잭션 밖이거나 읽기 전용 트랜잭션
+    private boolean usable() {
+        if (!ready || stale()) {
+            return false;
+        }
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private boolean stale() {
+        return rebuiltGeneration != requestedGeneration.get();
+    }
+
+    //인덱스로 답할 수 없으면(후보가 너무 많으면) empty
+    public Optional<Set<Long>> findByPrefix(String prefix) {
+        Set<Long> result = new HashSet<>();
+        for (Set<Long> ids : entries.byUsername.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+            result.addAll(ids);
+            if (result.size() > properties.getMaxCandidates()) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(result);
+    }
+
+    public Optional<Set<Long>> findContaining(String text) {
+        if (text.length() < GRAM) {
+            return Optional.empty();
+        }
+        Entries current = entries;
+        List<Set<Long>> postings = new ArrayList<>();
+        for (String gram : grams(text)) {
+            Set<Long> posting = current.byGram.get(gram);
+            if (posting == null) {
+                return Optional.of(Collections.emptySet());
+            }
+            postings.add(posting);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+        Set<Long> result = new HashSet<>();
+        //가장 짧은 목록만 돌면서 나머지 목록에 모두 있는지 확인
+        for (Long candidate : postings.get(0)) {
+            if (containsAll(postings, candidate)) {
+                String username = current.usernameById.get(candidate);
+                if (username != null && username.contains(text)) {
+                    result.add(candidate);
+                    if (result.size() > properties.getMaxCandidates()) {
+                        return Optional.empty();
+                    }
+                }
+            }
+        }
+        return Optional.of(result);
+    }
+
+    @Order(StartupOrder.LOADERS)
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            //읽기 전에 요청된 벌크 절은 이번 load 에 보인다
+            long generation = requestedGeneration.get();
+            synchronized (entriesLock) {
+                pending = new ArrayList<>();
+            }
+            try {
+                Entries rebuilt = load();
+                synchronized (entriesLock) {
+                    //읽기 전후로 커밋된 변경, 이미 들어 있는 것에 다시 적용해도 결과는 같다
+                    for (MemberChangedEvent event : pending) {
+                        apply(rebuilt, event);
+                    }
+                    entries = rebuilt;
+                }
+                rebuiltGeneration = generation;
+                ready = true;
+                log.info("username index rebuilt : {} members", rebuilt.usernameById.size());
+            } finally {
+                synchronized (entriesLock) {
+                    pending = null;
+                }
+            }
+        }
+    }
+
+    private Entries load() {
+        Entries rebuilt = new Entries();
+        long lastId = Long.MIN_VALUE;
+        while (true) {
+            long after = lastId;
+            List<Tuple> rows = readTransaction.execute(status -> queryFactory
+                    .select(member.id, member.username)
+                    .from(member)
+                    .where(member.id.gt(after))
+                    .orderBy(member.id.asc())
+                    .limit(properties.getLoadBatchSize())
+                    .fetch());
+            for (Tuple row : rows) {
+                rebuilt.add(row.get(member.id), row.get(member.username));
+                lastId = row.get(member.id);
+            }
+            if (rows.size() < properties.getLoadBatchSize()) {
+                break;
+            }
+        }
+        return rebuilt;
+    }
+
+    @TransactionalEventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        String before = event.getBefore() != null ? event.getBefore().getUsername() : null;
+        String after = event.getAfter() != null ? event.getAfter().getUsername() : null;
+        if (event.getType() == MemberChangedEvent.Type.UPDATED && Objects.equals(before, after)) {
+            return;
+        }
+        synchronized (entriesLock) {
+            apply(entries, event);
+            if (pending != null) {
+                pending.add(event);
+            }
+        }
+    }
+
+    private static void apply(Entries target, MemberChangedEvent event) {
+        target.remove(event.getMemberId(), event.getBefore() != null ? event.getBefore().getUsername() : null);
+        target.add(event.getMemberId(), event.getAfter() != null ? event.getAfter().getUsername() : null);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkChanged(MembersBulkChangedEvent event) {
+        rebuild();
+    }
+
+    //작업 밖에서 실행된 Querydsl 벌크 절 (어떤 회원이 바뀌었는지 모른다), 커밋하는 스레드를 붙잡지 않도록 요청만 한다
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkClause(BulkClauseExecutedEvent event) {
+        if (event.needsRebuild("Member")) {
+            requestedGeneration.incrementAndGet();
+        }
+    }
+
+    //실패하면 세대가 그대로 남아서 다음 주기에 다시 시도한다
+    @Scheduled(fixedDelayString = "${querydsl.username-index.rebuild-interval-millis:1000}")
+    public void rebuildIfStale() {
+        if (stale()) {
+            rebuild();
+        }
+    }
+
+    //비어서 지운 목록을 빼고 남아 있는 회원명 + 3-gram 목록 수
+    int postingLists() {
+        Entries current = entries;
+        return current.byUsername.size() + current.byGram.size();
+    }
+
+    private static boolean containsAll(List<Set<Long>> postings, Long candidate) {
+        for (int i = 1; i < postings.size(); i++) {
+            if (!postings.get(i).contains(candidate)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static class Entries {
+
+        private final ConcurrentSkipListMap<String, Set<Long>> byUsername = new ConcurrentSkipListMap<>();
+        private final Map<String, Set<Long>> byGram = new ConcurrentHashMap<>();
+        private final Map<Long, String> usernameById = new ConcurrentHashMap<>();
+
+        void add(Long id, String username) {
+            if (username == null) {
+                return;
+            }
+            usernameById.put(id, username);
+            byUsername.compute(username, (k, ids) -> added(ids, id));
+            for (String gram : grams(username)) {
+                byGram.compute(gram, (k, ids) -> added(ids, id));
+            }
+        }
+
+        void remove(Long id, String username) {
+            if (username == null) {
+                return;
+            }
+            usernameById.remove(id, username);
+            byUsername.computeIfPresent(username, (k, ids) -> removed(ids, id));
+            for (String gram : grams(username)) {
+                byGram.computeIfPresent(gram, (k, ids) -> removed(ids, id));
+            }
+        }
+
+        private static Set<Long> added(Set<Long> ids, Long id) {
+            Set<Long> result = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            result.add(id);
+            return result;
+        }
+
+        //비면 null 을 돌려줘서 목록 자체를 지운다, 회원명이 계속 바뀌어도 빈 목록이 쌓이지 않는다
+        private static Set<Long> removed(Set<Long> ids, Long id) {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package study.querydsl.search;
+
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter @Setter
+@ConfigurationProperties(prefix = "querydsl.username-index")
+public class UsernameIndexProperties {
+
+    //인덱스로 찾은 id 가 이보다 많으면 IN 절 대신 like 로 DB 에 맡긴다
+    private int maxCandidates = 1000;
+
+    //시작할 때 member 를 id 순으로 몇 건씩 읽어서 인덱스를 만들지
+    private int loadBatchSize = 10_000;
+
+    //Querydsl 벌크 절 뒤 다시 만들지 확인하는 간격 (@Scheduled 가 직접 읽는다), 그동안 회원명 검색은 like 로 한다
+    private long rebuildIntervalMillis = 1000;
+}
@@ -0,0 +1,33 @@
+package study.querydsl.shard;
+
+
+import com.querydsl.sql.SQLQueryFactory;
+import lombok.Getter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+//샤드 하나 (데이터소스, 쿼리 팩토리, 그 데이터소스의 트랜잭션)
+@Getter
+public class Shard {
+
+    private final int index;
+    private final DataSource dataSource;
+    private final SQLQueryFactory queryFactory;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+
+    Shard(int index, DataSource dataSource, SQLQueryFactory queryFactory,
+          TransactionTemplate readTransaction, TransactionTemplate writeTransaction) {
+        this.index = index;
+        this.dataSource = dataSource;
+        this.queryFactory = queryFactory;
+        this.readTransaction = readTransaction;
+        this.writeTransaction = writeTransaction;
+    }
+
+    @Override
+    public String toString() {
+        return "shard" + index;
+    }
+}
@@ -0,0 +1,32 @@
+package study.querydsl.shard;
+
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter @Setter
+@ConfigurationProperties(prefix = "querydsl.shard")
+public class ShardProperties {
+
+    /**
+     * 켜면 아래 urls 로 샤드 데이터소스를 만들고 readPath=SHARD 로 읽는다.
+     * 주의 : 샤드는 기본 DB 와 별도 저장소다. JPA 쓰기(회원/팀 저장, 수정, 삭제) 와 벌크 작업은 샤드에 반영되지 않고,
+     * 샤드 데이터는 ShardedMemberStore 로 쓴 것뿐이다. 켠다고 기존 데이터가 옮겨지지 않는다.
+     */
+    private boolean enabled = false;
+
+    //샤드 순서가 곧 샤드 번호, 데이터가 들어간 뒤에는 개수와 순서를 바꾸면 안 된다
+    //ex) jdbc:h2:file:./build/shards/shard0
+    private List<String> urls = new ArrayList<>();
+
+    private String username = "sa";
+
+    private String password = "";
+
+    //샤드마다 커넥션 풀 크기
+    private int poolSize = 4;
+}
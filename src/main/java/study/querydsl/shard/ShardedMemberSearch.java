@@ -0,0 +1,213 @@
+package study.querydsl.shard;
+
+
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Wildcard;
+import com.querydsl.sql.SQLQuery;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.entity.UsernameMatch;
+import study.querydsl.repository.MemberRepositoryCustom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.repository.sql.SMember.member;
+import static study.querydsl.repository.sql.STeam.team;
+
+/**
+ * 샤드 전체에 같은 검색을 동시에 보내고 결과를 합친다 (scatter-gather)
+ * - 샤드마다 member_id 순으로 정렬된 결과를 받아서 k-way 병합 (member_id 는 샤드 사이에 겹치지 않는다)
+ * - 페이지는 샤드마다 앞에서 offset + size 개를 받아 병합한 뒤 offset 만큼 건너뛴다
+ * - count 는 샤드별 count 의 합
+ * 팀명 조건이 있으면 그 팀이 있는 샤드 하나에만 보낸다.
+ * 결과 순서는 member_id 순이다 (기본 DB 의 search 는 순서를 정하지 않는다).
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "querydsl.shard", name = "enabled", havingValue = "true")
+public class ShardedMemberSearch implements MemberRepositoryCustom {
+
+    private static final Comparator<MemberTeamDto> BY_MEMBER_ID = Comparator.comparing(MemberTeamDto::getMemberId);
+
+    private final Shards shards;
+
+    @Override
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return merge(shards.scatter(targets(condition), shard -> contentQuery(shard, condition).fetch()),
+                0, Long.MAX_VALUE);
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> content = fetchPage(condition, pageable);
+        return new PageImpl<>(content, pageable, count(condition));
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> content = fetchPage(condition, pageable);
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(condition));
+    }
+
+    @Override
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Long afterMemberId, int size) {
+        List<List<MemberTeamDto>> perShard = shards.scatter(targets(condition), shard -> {
+            SQLQuery<MemberTeamDto> query = contentQuery(shard, condition).limit(size + 1);
+            if (afterMemberId != null) {
+                query.where(member.memberId.gt(afterMemberId));
+            }
+            return query.fetch();
+        });
+        List<MemberTeamDto> content = merge(perShard, 0, size + 1);
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content.remove(size);
+        }
+        return new SliceImpl<>(content, PageRequest.of(0, size), hasNext);
+    }
+
+    //팀명이 있으면 그 팀의 샤드만, 없으면 전체
+    List<Shard> targets(MemberSearchCondition condition) {
+        if (hasText(condition.getTeamName())) {
+            return Collections.singletonList(shards.forTeamName(condition.getTeamName()));
+        }
+        return shards.all();
+    }
+
+    private List<MemberTeamDto> fetchPage(MemberSearchCondition condition, Pageable pageable) {
+        //어느 샤드에서 몇 개가 나올지 모르니 샤드마다 offset + size 개까지 받아야 한다
+        long head = pageable.getOffset() + pageable.getPageSize();
+        List<List<MemberTeamDto>> perShard = shards.scatter(targets(condition),
+                shard -> contentQuery(shard, condition).limit(head).fetch());
+        return merge(perShard, pageable.getOffset(), pageable.getPageSize());
+    }
+
+    @Override
+    public long count(MemberSearchCondition condition) {
+        List<Long> counts = shards.scatter(targets(condition), shard -> shard.getQueryFactory()
+                .select(Wildcard.count)
+                .from(member)
+                .leftJoin(team).on(member.teamId.eq(team.teamId))
+                .where(conditionOf(condition))
+                .fetchOne());
+        long total = 0;
+        for (Long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    private SQLQuery<MemberTeamDto> contentQuery(Shard shard, MemberSearchCondition condition) {
+        return shard.getQueryFactory()
+                .select(Projections.constructor(MemberTeamDto.class,
+                        member.memberId,
+                        member.username,
+                        member.age,
+                        team.teamId,
+                        team.name))
+                .from(member)
+                .leftJoin(team).on(member.teamId.eq(team.teamId))
+                .where(conditionOf(condition))
+                .orderBy(member.memberId.asc());
+    }
+
+    /**
+     * member_id 순으로 정렬된 샤드별 결과를 하나로 합치면서 앞에서 skip 개를 버리고 limit 개를 돌려준다.
+     * 힙에는 샤드별 다음 행만 들어 있어서 한 행에 log(샤드 수) 비교다.
+     */
+    static List<MemberTeamDto> merge(List<List<MemberTeamDto>> perShard, long skip, long limit) {
+        PriorityQueue<Head> heap = new PriorityQueue<>(Math.max(1, perShard.size()),
+                (a, b) -> BY_MEMBER_ID.compare(a.current(), b.current()));
+        int total = 0;
+        for (List<MemberTeamDto> rows : perShard) {
+            if (!rows.isEmpty()) {
+                heap.add(new Head(rows));
+                total += rows.size();
+            }
+        }
+        List<MemberTeamDto> result = new ArrayList<>((int) Math.min(limit, Math.max(0, total - skip)));
+        long skipped = 0;
+        while (!heap.isEmpty() && result.size() < limit) {
+            Head head = heap.poll();
+            if (skipped < skip) {
+                skipped++;
+            } else {
+                result.add(head.current());
+            }
+            if (head.advance()) {
+                heap.add(head);
+            }
+        }
+        return result;
+    }
+
+    private static final class Head {
+        private final List<MemberTeamDto> rows;
+        private int index;
+
+        Head(List<MemberTeamDto> rows) {
+            this.rows = rows;
+        }
+
+        MemberTeamDto current() {
+            return rows.get(index);
+        }
+
+        boolean advance() {
+            return ++index < rows.size();
+        }
+    }
+
+    private BooleanExpression[] conditionOf(MemberSearchCondition condition) {
+        return new BooleanExpression[]{
+                usernameEq(condition.getUserName(), condition.getUsernameMatch()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe())
+        };
+    }
+
+    //샤드에는 UsernameIndex 가 없으니 그대로 SQL 비교
+    private BooleanExpression usernameEq(String userName, UsernameMatch match) {
+        if (!hasText(userName)) {
+            return null;
+        }
+        switch (match == null ? UsernameMatch.EXACT : match) {
+            case PREFIX:
+                return member.username.startsWith(userName);
+            case CONTAINS:
+                return member.username.contains(userName);
+            case EXACT:
+            default:
+                return member.username.eq(userName);
+        }
+    }
+
+    private BooleanExpression teamNameEq(String teamName) {
+        return hasText(teamName) ? team.name.eq(teamName) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+}
@@ -0,0 +1,140 @@
+package study.querydsl.shard;
+
+
+import com.querydsl.core.Tuple;
+import com.querydsl.sql.SQLExpressions;
+import com.querydsl.sql.SQLQueryFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static study.querydsl.repository.sql.SMember.member;
+import static study.querydsl.repository.sql.STeam.team;
+
+/**
+ * 샤드 쓰기 : 팀은 팀명으로, 회원은 소속 팀으로 샤드를 고른다 (규칙은 Shards 참고)
+ * 쓰기는 항상 샤드 하나의 트랜잭션이다. 팀을 옮기면서 샤드가 바뀌는 경우만 두 샤드에 걸친다.
+ * 샤드에 데이터를 넣는 유일한 경로다 (JPA 엔티티 쓰기는 기본 DB 에만 간다).
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "querydsl.shard", name = "enabled", havingValue = "true")
+public class ShardedMemberStore {
+
+    private final Shards shards;
+
+    public long createTeam(String name) {
+        Shard shard = shards.forTeamName(name);
+        Long teamId = shard.getWriteTransaction().execute(status -> {
+            SQLQueryFactory query = shard.getQueryFactory();
+            long id = nextval(query, "team_seq");
+            query.insert(team)
+                    .set(team.teamId, id)
+                    .set(team.name, name)
+                    .execute();
+            return id;
+        });
+        return teamId;
+    }
+
+    public long createMember(String username, int age, Long teamId) {
+        Shard shard = shards.forTeam(teamId);
+        Long memberId = shard.getWriteTransaction().execute(status -> {
+            SQLQueryFactory query = shard.getQueryFactory();
+            long id = nextval(query, "member_seq");
+            query.insert(member)
+                    .set(member.memberId, id)
+                    .set(member.username, username)
+                    .set(member.age, age)
+                    .set(member.teamId, teamId)
+                    .execute();
+            return id;
+        });
+        return memberId;
+    }
+
+    /**
+     * 회원의 팀을 바꾼다. 새 팀이 다른 샤드에 있으면 같은 member_id 로 새 샤드에 넣고 원래 샤드에서 지운다.
+     * 두 샤드에 걸친 이동은 원자적이지 않다 - 삽입 후 삭제 전에 실패하면 두 샤드에 같은 회원이 남으니
+     * 같은 호출을 다시 하면 된다 (삽입은 이미 있으면 건너뛴다).
+     */
+    public void changeTeam(long memberId, Long teamId) {
+        Shard target = shards.forTeam(teamId);
+        List<Shard> owners = findOwners(memberId);
+        if (owners.isEmpty()) {
+            throw unknownMember(memberId);
+        }
+        Shard source = owners.get(0);
+        if (owners.size() == 1 && source == target) {
+            long updated = target.getWriteTransaction().execute(status -> target.getQueryFactory()
+                    .update(member)
+                    .set(member.teamId, teamId)
+                    .where(member.memberId.eq(memberId))
+                    .execute());
+            if (updated == 0) {
+                throw unknownMember(memberId);
+            }
+            return;
+        }
+        Tuple row = source.getReadTransaction().execute(status -> source.getQueryFactory()
+                .select(member.username, member.age)
+                .from(member)
+                .where(member.memberId.eq(memberId))
+                .fetchOne());
+        //findOwners 이후에 다른 요청이 지웠다
+        if (row == null) {
+            throw unknownMember(memberId);
+        }
+        target.getWriteTransaction().executeWithoutResult(status -> {
+            SQLQueryFactory query = target.getQueryFactory();
+            if (query.selectOne().from(member).where(member.memberId.eq(memberId)).fetchFirst() == null) {
+                query.insert(member)
+                        .set(member.memberId, memberId)
+                        .set(member.username, row.get(member.username))
+                        .set(member.age, row.get(member.age))
+                        .set(member.teamId, teamId)
+                        .execute();
+            } else {
+                query.update(member)
+                        .set(member.teamId, teamId)
+                        .where(member.memberId.eq(memberId))
+                        .execute();
+            }
+        });
+        for (Shard owner : owners) {
+            if (owner != target) {
+                owner.getWriteTransaction().executeWithoutResult(status -> owner.getQueryFactory()
+                        .delete(member)
+                        .where(member.memberId.eq(memberId))
+                        .execute());
+            }
+        }
+    }
+
+    //회원이 옮겨다닐 수 있어서 member_id 로는 샤드를 알 수 없다 (드문 작업이라 전체 샤드 조회)
+    private List<Shard> findOwners(long memberId) {
+        List<Boolean> found = shards.scatter(shards.all(), shard -> shard.getQueryFactory()
+                .selectOne()
+                .from(member)
+                .where(member.memberId.eq(memberId))
+                .fetchFirst() != null);
+        List<Shard> owners = new ArrayList<>();
+        for (int i = 0; i < found.size(); i++) {
+            if (found.get(i)) {
+                owners.add(shards.get(i));
+            }
+        }
+        return owners;
+    }
+
+    private static IllegalArgumentException unknownMember(long memberId) {
+        return new IllegalArgumentException("unknown member : " + memberId);
+    }
+
+    private static long nextval(SQLQueryFactory query, String sequence) {
+        return query.select(SQLExpressions.nextval(sequence)).fetchOne();
+    }
+}
@@ -0,0 +1,175 @@
+package study.querydsl.shard;
+
+
+import com.querydsl.sql.H2Templates;
+import com.querydsl.sql.SQLQueryFactory;
+import com.querydsl.sql.spring.SpringConnectionProvider;
+import com.querydsl.sql.spring.SpringExceptionTranslator;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.budget.QueryBudgetContext;
+import study.querydsl.budget.QueryBudgetSqlListener;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * team_id 기준으로 나눈 회원 샤드들
+ * - 팀은 팀명 해시로 샤드를 정하고, 그 샤드의 team_seq 에서 id 를 받는다
+ * - 샤드 i 의 시퀀스는 i+1 부터 샤드 수만큼 증가하므로 id 만 보고 샤드를 안다 : (team_id - 1) % 샤드 수
+ * - 회원은 소속 팀의 샤드에 있고 (팀 없으면 0번), member_id 도 같은 방식이라 샤드 사이에 겹치지 않는다
+ * 팀과 그 팀원이 항상 같은 샤드에 있어서 member-team 조인은 샤드 안에서 끝난다.
+ * 샤드 수를 바꾸거나 팀 이름을 바꾸려면 데이터를 옮겨야 한다 (여기서는 지원하지 않는다).
+ *
+ * 주의 : 샤드는 기본 DB 와 따로 있는 저장소다. 데이터는 ShardedMemberStore 로만 들어가고
+ * JPA 엔티티(Member, Team) 쓰기, 벌크 작업, Querydsl 벌크 절은 샤드에 닿지 않는다. 읽기는 readPath=SHARD (ShardedMemberSearch).
+ * (JPA 쓰기를 샤드로 보내지 않는 이유 : 기본 DB 의 team_id 는 위 id 규칙을 따르지 않아 id 로 샤드를 찾을 수 없다)
+ *
+ * 샤드 쿼리도 QueryBudgetSqlListener 로 요청 타임아웃이 걸리고, scatter 는 요청 컨텍스트를 샤드 스레드로 넘겨서
+ * 요청이 취소되면 모든 샤드의 쿼리가 같이 취소된다.
+ *
+ * 샤드 데이터소스는 빈으로 등록하지 않는다 (기본 DataSource 자동 설정이 꺼지지 않게).
+ * querydsl.shard.enabled=true 일 때만 만들어진다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "querydsl.shard", name = "enabled", havingValue = "true")
+public class Shards {
+
+    private final List<Shard> shards = new ArrayList<>();
+    private final ExecutorService executor;
+
+    public Shards(ShardProperties properties) {
+        if (properties.getUrls().isEmpty()) {
+            throw new IllegalStateException("querydsl.shard.urls is empty");
+        }
+        for (int i = 0; i < properties.getUrls().size(); i++) {
+            shards.add(open(i, properties));
+        }
+        this.executor = Executors.newFixedThreadPool(shards.size());
+        log.info("opened {} member shards", shards.size());
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    public List<Shard> all() {
+        return Collections.unmodifiableList(shards);
+    }
+
+    public Shard get(int index) {
+        return shards.get(index);
+    }
+
+    public Shard forTeam(Long teamId) {
+        if (teamId == null) {
+            return shards.get(0);
+        }
+        return shards.get((int) Math.floorMod(teamId - 1, (long) shards.size()));
+    }
+
+    //String.hashCode 는 명세로 고정된 값이라 재시작해도 같은 샤드
+    public Shard forTeamName(String teamName) {
+        return shards.get(Math.floorMod(teamName.hashCode(), shards.size()));
+    }
+
+    /**
+     * 샤드마다 읽기 트랜잭션 안에서 task 를 동시에 실행하고 샤드 순서대로 결과를 모은다.
+     * 한 샤드라도 실패하면 나머지를 취소하고 그 예외를 던진다.
+     * 부른 스레드의 QueryBudgetContext 를 샤드 스레드에 넘긴다 (타임아웃, 취소).
+     */
+    public <T> List<T> scatter(List<Shard> targets, Function<Shard, T> task) {
+        if (targets.size() == 1) {
+            Shard shard = targets.get(0);
+            return Collections.singletonList(shard.getReadTransaction().execute(status -> task.apply(shard)));
+        }
+        List<Future<T>> futures = new ArrayList<>(targets.size());
+        for (Shard shard : targets) {
+            futures.add(executor.submit(QueryBudgetContext.propagate(
+                    () -> shard.getReadTransaction().execute(status -> task.apply(shard)))));
+        }
+        List<T> results = new ArrayList<>(targets.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("shard query interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+        for (Shard shard : shards) {
+            ((HikariDataSource) shard.getDataSource()).close();
+        }
+    }
+
+    private Shard open(int index, ShardProperties properties) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(properties.getUrls().get(index))
+                .username(properties.getUsername())
+                .password(properties.getPassword())
+                .build();
+        dataSource.setMaximumPoolSize(properties.getPoolSize());
+        dataSource.setPoolName("shard" + index);
+        createSchema(new JdbcTemplate(dataSource), index, properties.getUrls().size());
+
+        com.querydsl.sql.Configuration configuration = new com.querydsl.sql.Configuration(new H2Templates());
+        configuration.setExceptionTranslator(new SpringExceptionTranslator());
+        configuration.addListener(new QueryBudgetSqlListener());
+        SQLQueryFactory queryFactory = new SQLQueryFactory(configuration, new SpringConnectionProvider(dataSource));
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        TransactionTemplate readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+        TransactionTemplate writeTransaction = new TransactionTemplate(transactionManager);
+        return new Shard(index, dataSource, queryFactory, readTransaction, writeTransaction);
+    }
+
+    //SMember, STeam 과 같은 모양의 테이블 (기본 DB 는 하이버네이트가 만들지만 샤드는 직접 만든다)
+    private static void createSchema(JdbcTemplate jdbc, int index, int count) {
+        String sequence = " start with " + (index + 1) + " increment by " + count;
+        jdbc.execute("create sequence if not exists team_seq" + sequence);
+        jdbc.execute("create sequence if not exists member_seq" + sequence);
+        jdbc.execute("create table if not exists team ("
+                + "team_id bigint not null primary key, "
+                + "member_count bigint default 0 not null, "
+                + "name varchar(255))");
+        jdbc.execute("create table if not exists member ("
+                + "member_id bigint not null primary key, "
+                + "age integer not null, "
+                + "team_id bigint references team(team_id), "
+                + "username varchar(255))");
+        jdbc.execute("create index if not exists idx_member_username on member(username)");
+        jdbc.execute("create index if not exists idx_member_team_age on member(team_id, age desc)");
+        jdbc.execute("create index if not exists idx_team_name on team(name)");
+    }
+}
@@ -0,0 +1,451 @@
+package study.querydsl.snapshot;
+
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.BulkClauseExecutedEvent;
+import study.querydsl.entity.MemberChangedEvent;
+import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.entity.MemberState;
+import study.querydsl.entity.MembersBulkChangedEvent;
+import study.querydsl.entity.TeamChangedEvent;
+import study.querydsl.entity.UsernameMatch;
+import study.querydsl.warmup.StartupOrder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 검색 조건(회원명, 팀명, 나이)에 필요한 컬럼만 JVM 안에 열 단위 배열로 들고 있는 읽기 모델
+ * - member_id, age, team_id : 기본형 배열 (member_id 오름차순)
+ * - username : 사전 인코딩 (int 코드 배열 + 코드 -> 문자열 사전)
+ * 검색은 배열을 한번 훑는 루프라서 SQL 없이 count 와 페이지를 같이 계산한다.
+ * 커밋된 Member/Team 변경 이벤트로 증분 갱신하고, 벌크 변경이 있으면 DB 에서 다시 만든다.
+ * rebuild 는 한번에 하나만 돌고, 읽는 동안 커밋된 변경은 따로 모아 두었다가 쓰기 락 안에서 새 열에 다시 적용한 뒤 바꿔 끼운다.
+ * Querydsl 벌크 절은 커밋하는 스레드에서 rebuild 하지 않고 표시만 해 두었다가 스케줄 스레드가 한번에 다시 만든다.
+ * 그 사이 (querydsl.snapshot.rebuild-interval-millis) 검색은 벌크 절 전의 값을 본다.
+ *
+ * querydsl.snapshot.enabled=true 일 때만 만들어진다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "querydsl.snapshot", name = "enabled", havingValue = "true")
+public class MemberColumnarSnapshot {
+
+    private static final long NO_TEAM = Long.MIN_VALUE;
+    private static final int NO_USERNAME = -1;
+    private static final int LOAD_BATCH_SIZE = 10_000;
+
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate readTransaction;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Columns columns = new Columns();
+    //rebuild 중에 커밋된 Member/Team 변경, rebuild 중일 때만 null 이 아니다 (쓰기 락으로 보호)
+    private List<Object> pending;
+    //rebuild 는 한번에 하나만
+    private final Object rebuildLock = new Object();
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+
+    public MemberColumnarSnapshot(JPAQueryFactory queryFactory, PlatformTransactionManager transactionManager) {
+        this.queryFactory = queryFactory;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class ScanResult {
+        private final List<MemberTeamDto> content;
+        private final long total;
+    }
+
+    //조건에 맞는 행 중 offset 부터 limit 개와 전체 개수 (member_id 순)
+    public ScanResult scan(MemberSearchCondition condition, long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            return scan(columns, condition, 0, offset, limit, true);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //afterMemberId 보다 큰 행 중 조건에 맞는 limit 개 (커서 기반 페이지, 전체 개수는 세지 않는다)
+    public List<MemberTeamDto> scanAfter(MemberSearchCondition condition, Long afterMemberId, int limit) {
+        lock.readLock().lock();
+        try {
+            Columns c = columns;
+            int from = 0;
+            if (afterMemberId != null) {
+                int index = Arrays.binarySearch(c.ids, 0, c.size, afterMemberId);
+                from = index >= 0 ? index + 1 : -index - 1;
+            }
+            return scan(c, condition, from, 0, limit, false).getContent();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private ScanResult scan(Columns c, MemberSearchCondition condition, int from, long offset, int limit, boolean countAll) {
+        int ageFrom = condition.getAgeGoe() != null ? condition.getAgeGoe() : Integer.MIN_VALUE;
+        int ageTo = condition.getAgeLoe() != null ? condition.getAgeLoe() : Integer.MAX_VALUE;
+        long[] teamFilter = null;
+        if (hasText(condition.getTeamName())) {
+            teamFilter = c.teamIdsNamed(condition.getTeamName());
+            if (teamFilter.length == 0) {
+                return new ScanResult(new ArrayList<>(), 0);
+            }
+        }
+        boolean[] usernameFilter = null;
+        if (hasText(condition.getUserName())) {
+            usernameFilter = c.usernameCodesMatching(condition.getUserName(), condition.getUsernameMatch());
+        }
+
+        List<MemberTeamDto> content = new ArrayList<>();
+        long total = 0;
+        long[] ids = c.ids;
+        int[] ages = c.ages;
+        long[] teamIds = c.teamIds;
+        int[] usernameCodes = c.usernameCodes;
+        BitSet deleted = c.deleted;
+        for (int i = from; i < c.size; i++) {
+            int age = ages[i];
+            if (age < ageFrom || age > ageTo) {
+                continue;
+            }
+            if (teamFilter != null && !contains(teamFilter, teamIds[i])) {
+                continue;
+            }
+            if (usernameFilter != null) {
+                int code = usernameCodes[i];
+                if (code == NO_USERNAME || !usernameFilter[code]) {
+                    continue;
+                }
+            }
+            if (deleted.get(i)) {
+                continue;
+            }
+            if (total >= offset && content.size() < limit) {
+                content.add(c.toDto(i, ids[i]));
+            } else if (!countAll && content.size() >= limit) {
+                break;
+            }
+            total++;
+        }
+        return new ScanResult(content, total);
+    }
+
+    @Order(StartupOrder.LOADERS)
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            lock.writeLock().lock();
+            try {
+                pending = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            try {
+                Columns rebuilt = load();
+                lock.writeLock().lock();
+                try {
+                    //읽기 전후로 커밋된 변경, 최종 값으로 덮어쓰므로 이미 읽은 것에 다시 적용해도 결과는 같다
+                    for (Object event : pending) {
+                        apply(rebuilt, event);
+                    }
+                    columns = rebuilt;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                log.info("member snapshot rebuilt : {} members, {} usernames", rebuilt.size, rebuilt.usernames.size());
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    pending = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    private Columns load() {
+        Columns rebuilt = new Columns();
+        List<Tuple> teams = readTransaction.execute(status -> queryFactory
+                .select(team.id, team.name)
+                .from(team)
+                .fetch());
+        for (Tuple row : teams) {
+            rebuilt.putTeam(row.get(team.id), row.get(team.name));
+        }
+        long lastId = Long.MIN_VALUE;
+        while (true) {
+            long after = lastId;
+            List<Tuple> rows = readTransaction.execute(status -> queryFactory
+                    .select(member.id, member.username, member.age, member.team.id)
+                    .from(member)
+                    .where(member.id.gt(after))
+                    .orderBy(member.id.asc())
+                    .limit(LOAD_BATCH_SIZE)
+                    .fetch());
+            for (Tuple row : rows) {
+                lastId = row.get(member.id);
+                rebuilt.append(lastId, new MemberState(row.get(member.username), row.get(member.age), row.get(member.team.id)));
+            }
+            if (rows.size() < LOAD_BATCH_SIZE) {
+                break;
+            }
+        }
+        return rebuilt;
+    }
+
+    @TransactionalEventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        changed(event);
+    }
+
+    @TransactionalEventListener
+    public void onTeamChanged(TeamChangedEvent event) {
+        changed(event);
+    }
+
+    private void changed(Object event) {
+        lock.writeLock().lock();
+        try {
+            apply(columns, event);
+            if (pending != null) {
+                pending.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void apply(Columns target, Object event) {
+        if (event instanceof MemberChangedEvent) {
+            MemberChangedEvent memberChanged = (MemberChangedEvent) event;
+            if (memberChanged.getType() == MemberChangedEvent.Type.DELETED) {
+                target.delete(memberChanged.getMemberId());
+            } else {
+                target.upsert(memberChanged.getMemberId(), memberChanged.getAfter());
+            }
+            return;
+        }
+        TeamChangedEvent teamChanged = (TeamChangedEvent) event;
+        if (teamChanged.getType() == TeamChangedEvent.Type.DELETED) {
+            target.teamNames.remove(teamChanged.getTeamId());
+        } else {
+            target.putTeam(teamChanged.getTeamId(), teamChanged.getName());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkChanged(MembersBulkChangedEvent event) {
+        rebuild();
+    }
+
+    //작업 밖에서 실행된 Querydsl 벌크 절, 팀명도 들고 있으므로 Team 절도 다시 만든다. 커밋하는 스레드를 붙잡지 않도록 표시만 한다
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkClause(BulkClauseExecutedEvent event) {
+        if (event.needsRebuild("Member", "Team")) {
+            rebuildRequested.set(true);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${querydsl.snapshot.rebuild-interval-millis:1000}")
+    public void rebuildIfRequested() {
+        //다른 스레드가 표시를 가져가 rebuild 중이면 끝날 때까지 기다린다
+        synchronized (rebuildLock) {
+            if (!rebuildRequested.getAndSet(false)) {
+                return;
+            }
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                rebuildRequested.set(true);
+                throw e;
+            }
+        }
+    }
+
+    private static boolean contains(long[] values, long value) {
+        for (long v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //lock 으로 보호되는 열 데이터
+    private static class Columns {
+
+        private long[] ids = new long[1024];
+        private int[] ages = new int[1024];
+        private long[] teamIds = new long[1024];
+        private int[] usernameCodes = new int[1024];
+        private BitSet deleted = new BitSet();
+        private int size;
+        private int deletedCount;
+
+        private final List<String> usernames = new ArrayList<>();
+        private final Map<String, Integer> usernameCodeOf = new HashMap<>();
+        private final Map<Long, String> teamNames = new HashMap<>();
+
+        MemberTeamDto toDto(int i, long id) {
+            long teamId = teamIds[i];
+            int code = usernameCodes[i];
+            return new MemberTeamDto(id,
+                    code == NO_USERNAME ? null : usernames.get(code),
+                    ages[i],
+                    teamId == NO_TEAM ? null : teamId,
+                    teamId == NO_TEAM ? null : teamNames.get(teamId));
+        }
+
+        long[] teamIdsNamed(String name) {
+            return teamNames.entrySet().stream()
+                    .filter(e -> name.equals(e.getValue()))
+                    .mapToLong(Map.Entry::getKey)
+                    .toArray();
+        }
+
+        //사전의 회원명 중 조건에 맞는 코드 표시, 행마다 문자열 비교를 하지 않기 위해
+        boolean[] usernameCodesMatching(String userName, UsernameMatch match) {
+            boolean[] matches = new boolean[usernames.size()];
+            if (match == null || match == UsernameMatch.EXACT) {
+                Integer code = usernameCodeOf.get(userName);
+                if (code != null) {
+                    matches[code] = true;
+                }
+                return matches;
+            }
+            for (int code = 0; code < matches.length; code++) {
+                String username = usernames.get(code);
+                matches[code] = match == UsernameMatch.PREFIX ? username.startsWith(userName) : username.contains(userName);
+            }
+            return matches;
+        }
+
+        void putTeam(Long teamId, String name) {
+            teamNames.put(teamId, name);
+        }
+
+        //id 오름차순으로 들어온다고 가정 (rebuild)
+        void append(long id, MemberState state) {
+            ensureCapacity(size + 1);
+            set(size, id, state);
+            size++;
+        }
+
+        void upsert(long id, MemberState state) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                if (deleted.get(index)) {
+                    deleted.clear(index);
+                    deletedCount--;
+                }
+                set(index, id, state);
+                return;
+            }
+            //새 id 는 보통 가장 크므로 대부분 끝에 붙는다
+            int insertAt = -index - 1;
+            ensureCapacity(size + 1);
+            int moved = size - insertAt;
+            if (moved > 0) {
+                System.arraycopy(ids, insertAt, ids, insertAt + 1, moved);
+                System.arraycopy(ages, insertAt, ages, insertAt + 1, moved);
+                System.arraycopy(teamIds, insertAt, teamIds, insertAt + 1, moved);
+                System.arraycopy(usernameCodes, insertAt, usernameCodes, insertAt + 1, moved);
+                BitSet shifted = new BitSet();
+                for (int i = deleted.nextSetBit(0); i >= 0; i = deleted.nextSetBit(i + 1)) {
+                    shifted.set(i < insertAt ? i : i + 1);
+                }
+                deleted = shifted;
+            }
+            set(insertAt, id, state);
+            size++;
+        }
+
+        void delete(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0 || deleted.get(index)) {
+                return;
+            }
+            deleted.set(index);
+            deletedCount++;
+            //지워진 행이 1/4 을 넘으면 배열을 다시 채운다
+            if (deletedCount > 1024 && deletedCount > size / 4) {
+                compact();
+            }
+        }
+
+        private void set(int index, long id, MemberState state) {
+            ids[index] = id;
+            ages[index] = state.getAge();
+            teamIds[index] = state.getTeamId() != null ? state.getTeamId() : NO_TEAM;
+            usernameCodes[index] = encode(state.getUsername());
+        }
+
+        private int encode(String username) {
+            if (username == null) {
+                return NO_USERNAME;
+            }
+            return usernameCodeOf.computeIfAbsent(username, k -> {
+                usernames.add(k);
+                return usernames.size() - 1;
+            });
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= ids.length) {
+                return;
+            }
+            int newLength = Math.max(capacity, ids.length + (ids.length >> 1));
+            ids = Arrays.copyOf(ids, newLength);
+            ages = Arrays.copyOf(ages, newLength);
+            teamIds = Arrays.copyOf(teamIds, newLength);
+            usernameCodes = Arrays.copyOf(usernameCodes, newLength);
+        }
+
+        private void compact() {
+            int to = 0;
+            for (int from = 0; from < size; from++) {
+                if (deleted.get(from)) {
+                    continue;
+                }
+                ids[to] = ids[from];
+                ages[to] = ages[from];
+                teamIds[to] = teamIds[from];
+                usernameCodes[to] = usernameCodes[from];
+                to++;
+            }
+            size = to;
+            deleted = new BitSet();
+            deletedCount = 0;
+        }
+    }
+}
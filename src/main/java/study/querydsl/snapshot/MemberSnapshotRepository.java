@@ -0,0 +1,62 @@
+package study.querydsl.snapshot;
+
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Repository;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.repository.MemberRepositoryCustom;
+
+import java.util.List;
+
+/**
+ * MemberColumnarSnapshot 으로 답하는 MemberRepositoryCustom 구현, SQL 을 실행하지 않는다.
+ * 결과는 member_id 순이다. JPA 경로의 search / 페이지 조회는 순서를 정하지 않으므로
+ * 같은 조건이면 결과 집합과 전체 개수는 같지만 어떤 행이 몇번째 페이지에 들어가는지는 같다고 볼 수 없다.
+ */
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "querydsl.snapshot", name = "enabled", havingValue = "true")
+public class MemberSnapshotRepository implements MemberRepositoryCustom {
+
+    private final MemberColumnarSnapshot snapshot;
+
+    @Override
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return snapshot.scan(condition, 0, Integer.MAX_VALUE).getContent();
+    }
+
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        MemberColumnarSnapshot.ScanResult result = snapshot.scan(condition, pageable.getOffset(), pageable.getPageSize());
+        return new PageImpl<>(result.getContent(), pageable, result.getTotal());
+    }
+
+    //count 와 content 를 같은 스캔에서 구하니 따로 count 쿼리를 아낄 일이 없다
+    @Override
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return searchPageSimple(condition, pageable);
+    }
+
+    @Override
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Long afterMemberId, int size) {
+        List<MemberTeamDto> content = snapshot.scanAfter(condition, afterMemberId, size + 1);
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content.remove(size);
+        }
+        return new SliceImpl<>(content, PageRequest.of(0, size), hasNext);
+    }
+
+    @Override
+    public long count(MemberSearchCondition condition) {
+        return snapshot.scan(condition, 0, 0).getTotal();
+    }
+}
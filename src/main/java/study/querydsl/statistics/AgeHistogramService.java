@@ -0,0 +1,105 @@
+package study.querydsl.statistics;
+
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import study.querydsl.dto.AgeBucketDto;
+import study.querydsl.entity.BulkClauseExecutedEvent;
+import study.querydsl.entity.MemberChangedEvent;
+import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.entity.MembersBulkChangedEvent;
+import study.querydsl.repository.MemberHistogramRepository;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 나이 분포 캐시
+ * 조건 없는 전체 분포만 구간 폭(width) 별로 캐시한다. 키는 width 하나라 많아야 MAX_WIDTH 개.
+ * 팀명, 나이, 회원명 조건이 있는 요청은 값이 끝없이 다양하므로 매번 DB 에서 계산한다.
+ *
+ * 회원 변경이 커밋되면 세대(generation) 를 올려서 캐시 전체를 무효로 만든다. 커밋하는 스레드는 세대만 올리고(O(1)),
+ * 다시 계산은 다음 조회가 그 width 에 대해서만 한다. 지난 세대 값은 다음 조회가 덮어쓴다 (많아야 MAX_WIDTH 개).
+ * 캐시 값은 계산을 시작할 때의 세대를 같이 들고 있어서, 변경 커밋과 겹친 조회가 비운 뒤에 넣은 값은 쓰이지 않는다.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class AgeHistogramService {
+
+    public static final int MAX_WIDTH = 200;
+
+    private final MemberHistogramRepository memberHistogramRepository;
+    private final Map<Integer, Cached> cache = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    public List<AgeBucketDto> ageHistogram(MemberSearchCondition condition, int width) {
+        if (width < 1 || width > MAX_WIDTH) {
+            throw new IllegalArgumentException("width must be between 1 and " + MAX_WIDTH + " : " + width);
+        }
+        if (!unfiltered(condition)) {
+            return memberHistogramRepository.ageHistogram(condition, width);
+        }
+        //조회 전에 세대를 읽는다, 조회 중에 커밋된 변경이 있으면 이 값은 바로 무효
+        long current = generation.get();
+        Cached cached = cache.get(width);
+        if (cached != null && cached.generation == current) {
+            return cached.buckets;
+        }
+        List<AgeBucketDto> buckets = Collections.unmodifiableList(memberHistogramRepository.ageHistogram(condition, width));
+        cache.put(width, new Cached(current, buckets));
+        return buckets;
+    }
+
+    public boolean isCached(int width) {
+        Cached cached = cache.get(width);
+        return cached != null && cached.generation == generation.get();
+    }
+
+    @TransactionalEventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        invalidate();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkChanged(MembersBulkChangedEvent event) {
+        invalidate();
+    }
+
+    //작업 밖에서 실행된 Querydsl 벌크 절, 전체 분포는 팀과 상관없으니 Member 만 본다
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkClause(BulkClauseExecutedEvent event) {
+        if (event.needsRebuild("Member")) {
+            invalidate();
+        }
+    }
+
+    private void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    private static boolean unfiltered(MemberSearchCondition condition) {
+        return !hasText(condition.getUserName())
+                && !hasText(condition.getTeamName())
+                && condition.getAgeGoe() == null
+                && condition.getAgeLoe() == null;
+    }
+
+    private static final class Cached {
+
+        private final long generation;
+        private final List<AgeBucketDto> buckets;
+
+        private Cached(long generation, List<AgeBucketDto> buckets) {
+            this.generation = generation;
+            this.buckets = buckets;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package study.querydsl.statistics;
+
+
+import study.querydsl.dto.TeamStatisticsDto;
+
+import java.util.TreeMap;
+
+/**
+ * 팀 하나의 나이 집계 (count/sum/avg/max/min)
+ * 삭제가 있어도 max/min 을 다시 계산하지 않도록 나이별 인원수를 들고 있다.
+ * 변경할 때마다 결과 DTO 를 새로 만들어두기 때문에 읽기는 필드 하나 읽는 O(1).
+ */
+class TeamAgeAggregate {
+
+    private final Long teamId;
+    private final TreeMap<Integer, Long> countByAge = new TreeMap<>();
+    private long count;
+    private long sum;
+    private volatile TeamStatisticsDto snapshot;
+
+    TeamAgeAggregate(Long teamId) {
+        this.teamId = teamId;
+        this.snapshot = new TeamStatisticsDto(teamId, 0, 0, null, null, null);
+    }
+
+    synchronized void add(int age, long members) {
+        countByAge.merge(age, members, Long::sum);
+        count += members;
+        sum += age * members;
+        refresh();
+    }
+
+    synchronized void remove(int age) {
+        Long current = countByAge.get(age);
+        if (current == null) {
+            return;
+        }
+        if (current == 1) {
+            countByAge.remove(age);
+        } else {
+            countByAge.put(age, current - 1);
+        }
+        count--;
+        sum -= age;
+        refresh();
+    }
+
+    TeamStatisticsDto snapshot() {
+        return snapshot;
+    }
+
+    boolean isEmpty() {
+        return snapshot.getCount() == 0;
+    }
+
+    private void refresh() {
+        if (count == 0) {
+            snapshot = new TeamStatisticsDto(teamId, 0, 0, null, null, null);
+            return;
+        }
+        snapshot = new TeamStatisticsDto(teamId, count, sum, (double) sum / count,
+                countByAge.lastKey(), countByAge.firstKey());
+    }
+}
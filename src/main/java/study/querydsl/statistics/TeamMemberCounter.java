@@ -0,0 +1,217 @@
+package study.querydsl.statistics;
+
+
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.BulkClauseExecutedEvent;
+import study.querydsl.entity.MemberChangedEvent;
+import study.querydsl.entity.MemberState;
+import study.querydsl.entity.MembersBulkChangedEvent;
+import study.querydsl.entity.TeamChangedEvent;
+import study.querydsl.repository.support.InQueries;
+import study.querydsl.warmup.StartupOrder;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.repository.support.InQueries.MAX_IN_SIZE;
+
+/**
+ * team.member_count 를 커밋된 Member 변경마다 맞춘다.
+ * 변경은 팀별 LongAdder(스레드별 셀로 나뉜 카운터) 에 "건드렸다" 는 표시만 더하고, flush 가 주기적으로
+ * 마지막 flush 이후 건드린 팀만 update team set member_count = (select count ...) where team_id in (...) 로 다시 센다.
+ * 인기 팀에 회원이 몰려도 팀 행은 flush 때만 잠긴다.
+ *
+ * 증감을 더하지 않고 매번 다시 세는 이유 : 커밋 콜백은 커밋보다 늦게 오기 때문에, 다시 세는 쿼리가 이미 포함한 변경의
+ * 증감이 그 뒤에 도착하면 한번 더 더해진다. 다시 센 값은 몇 번 써도 같으므로 중복 반영이 없다.
+ * 다시 세는 쿼리 뒤에 커밋된 변경은 콜백이 그 뒤에 오므로 다음 flush 에서 그 팀을 한번 더 센다.
+ *
+ * LongAdder 는 리셋하지 않고 flush 한 합계를 따로 기억한다 (리셋과 동시에 더한 값을 잃지 않는다).
+ * 순증감이 0 이어도 건드린 횟수는 늘어나므로 (들어왔다 나간 회원) 그 팀도 다시 센다.
+ * 벌크 변경(MembersBulkChangedEvent, Member/Team 벌크 절) 과 시작 시점에는 전체 팀을 다시 세고,
+ * 없어진 팀의 합계는 버린다. 벌크 절은 표시만 해 두고 다음 주기 flush 가 센다 (연달아 실행돼도 한번).
+ */
+@Slf4j
+@Component
+public class TeamMemberCounter {
+
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate writeTransaction;
+
+    //팀별로 변경 이벤트가 온 횟수
+    private final Map<Long, LongAdder> touches = new ConcurrentHashMap<>();
+    //flushLock 안에서만 쓴다
+    private final Map<Long, Long> flushed = new HashMap<>();
+    private final Object flushLock = new Object();
+    private volatile boolean recountRequested;
+
+    //member_count 는 이 클래스가 관리하는 파생 값이라 갱신을 벌크 절 알림(ChangeStream, 다른 구독자) 으로 내보내지 않는다.
+    //그래서 애플리케이션의 JPAQueryFactory 빈(ChangeCapturingJPAQueryFactory) 대신 일반 팩토리로 쓴다
+    public TeamMemberCounter(EntityManager entityManager, PlatformTransactionManager transactionManager) {
+        this.queryFactory = new JPAQueryFactory(entityManager);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @TransactionalEventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        Long beforeTeamId = teamId(event.getBefore());
+        Long afterTeamId = teamId(event.getAfter());
+        if (beforeTeamId != null && beforeTeamId.equals(afterTeamId)) {
+            return;
+        }
+        touch(beforeTeamId);
+        touch(afterTeamId);
+    }
+
+    //지워진 팀에는 더 이상 회원 변경이 올 수 없다
+    @TransactionalEventListener
+    public void onTeamChanged(TeamChangedEvent event) {
+        if (event.getType() != TeamChangedEvent.Type.DELETED) {
+            return;
+        }
+        synchronized (flushLock) {
+            touches.remove(event.getTeamId());
+            flushed.remove(event.getTeamId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkChanged(MembersBulkChangedEvent event) {
+        recountRequested = true;
+        flush();
+    }
+
+    //엔티티 이벤트 없이 바뀐 회원, 지워진 팀. 커밋하는 스레드를 붙잡지 않도록 표시만 하고 다음 flush 가 한번에 다시 센다
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkClause(BulkClauseExecutedEvent event) {
+        if (event.needsRebuild("Member", "Team")) {
+            recountRequested = true;
+        }
+    }
+
+    //지난번 종료 때 반영하지 못한 변경이 있을 수 있으므로 시작할 때 한번 센다
+    @Order(StartupOrder.LOADERS)
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        recountRequested = true;
+        flush();
+    }
+
+    @Scheduled(fixedDelayString = "${querydsl.team-member-count.flush-interval-millis:1000}")
+    public void flush() {
+        synchronized (flushLock) {
+            Map<Long, Long> sums = new HashMap<>();
+            for (Map.Entry<Long, LongAdder> entry : touches.entrySet()) {
+                long sum = entry.getValue().sum();
+                if (sum != flushed.getOrDefault(entry.getKey(), 0L)) {
+                    sums.put(entry.getKey(), sum);
+                }
+            }
+
+            if (recountRequested) {
+                recountRequested = false;
+                try {
+                    long teams = writeTransaction.execute(status -> {
+                        long updated = recount(null);
+                        prune();
+                        return updated;
+                    });
+                    log.info("team member counts recounted : {} teams", teams);
+                } catch (RuntimeException e) {
+                    recountRequested = true;
+                    throw e;
+                }
+                sums.keySet().retainAll(touches.keySet());
+                flushed.putAll(sums);
+                return;
+            }
+
+            if (sums.isEmpty()) {
+                return;
+            }
+            List<Long> teamIds = new ArrayList<>(new TreeSet<>(sums.keySet()));
+            writeTransaction.executeWithoutResult(status -> {
+                for (int from = 0; from < teamIds.size(); from += MAX_IN_SIZE) {
+                    recount(teamIds.subList(from, Math.min(from + MAX_IN_SIZE, teamIds.size())));
+                }
+            });
+            //update 가 커밋된 뒤에만 반영된 것으로 기록한다, 실패하면 다음 flush 에서 다시 시도
+            flushed.putAll(sums);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    //teamIds 가 null 이면 전체 팀
+    private long recount(List<Long> teamIds) {
+        return queryFactory.update(team)
+                .set(team.memberCount, JPAExpressions
+                        .select(member.count())
+                        .from(member)
+                        .where(member.team.eq(team)))
+                .where(teamIds == null ? null : InQueries.in(team.id, teamIds))
+                .execute();
+    }
+
+    //없어진 팀의 카운터를 버린다 (flushLock 안에서)
+    private void prune() {
+        if (touches.isEmpty()) {
+            return;
+        }
+        List<Long> known = new ArrayList<>(new TreeSet<>(touches.keySet()));
+        Set<Long> existing = new HashSet<>();
+        for (int from = 0; from < known.size(); from += MAX_IN_SIZE) {
+            existing.addAll(queryFactory
+                    .select(team.id)
+                    .from(team)
+                    .where(InQueries.in(team.id, known.subList(from, Math.min(from + MAX_IN_SIZE, known.size()))))
+                    .fetch());
+        }
+        for (Long teamId : known) {
+            if (!existing.contains(teamId)) {
+                touches.remove(teamId);
+                flushed.remove(teamId);
+            }
+        }
+    }
+
+    //카운터를 들고 있는 팀 수
+    int trackedTeams() {
+        return touches.size();
+    }
+
+    private void touch(Long teamId) {
+        if (teamId != null) {
+            touches.computeIfAbsent(teamId, id -> new LongAdder()).increment();
+        }
+    }
+
+    private static Long teamId(MemberState state) {
+        return state == null ? null : state.getTeamId();
+    }
+}
@@ -0,0 +1,200 @@
+package study.querydsl.statistics;
+
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.TeamStatisticsDto;
+import study.querydsl.entity.BulkClauseExecutedEvent;
+import study.querydsl.entity.MemberChangedEvent;
+import study.querydsl.entity.MemberState;
+import study.querydsl.entity.MembersBulkChangedEvent;
+import study.querydsl.warmup.StartupOrder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 팀별 나이 통계를 메모리에 들고 있다가 Member 변경이 커밋될 때마다 증분으로 맞춘다.
+ * 팀 인원수와 상관없이 조회는 O(1) 이고, group by 쿼리는 시작할 때와 벌크 변경 뒤에만 실행한다.
+ * 벌크 변경은 벌크 작업(MembersBulkChangedEvent) 과 그 밖에서 실행한 Querydsl update/delete 절(BulkClauseExecutedEvent) 둘 다다.
+ * Querydsl 벌크 절은 커밋하는 스레드에서 rebuild 하지 않고 표시만 해 두었다가 스케줄 스레드가 한번에 다시 만든다 (연달아 실행돼도 한번).
+ *
+ * rebuild 는 회원별 (팀, 나이) 를 읽은 뒤 읽는 동안 커밋된 변경을 회원별 최종 상태로 덮어쓰고 나서 집계한다.
+ * 덮어쓰기는 여러 번 해도 결과가 같아서, 읽기 전에 커밋돼 이미 들어 있는 변경이 한번 더 세어지지 않는다.
+ */
+@Slf4j
+@Component
+public class TeamStatistics {
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate readTransaction;
+    private volatile Map<Long, TeamAgeAggregate> aggregates = new ConcurrentHashMap<>();
+    //aggregates 증분 갱신과 rebuild 교체를 맞추는 락, pending 은 rebuild 중일 때만 null 이 아니다
+    private final Object aggregatesLock = new Object();
+    private List<MemberChangedEvent> pending;
+    //rebuild 는 한번에 하나만
+    private final Object rebuildLock = new Object();
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+
+    public TeamStatistics(JPAQueryFactory queryFactory, PlatformTransactionManager transactionManager) {
+        this.queryFactory = queryFactory;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+    }
+
+    public Optional<TeamStatisticsDto> get(Long teamId) {
+        TeamAgeAggregate aggregate = aggregates.get(teamId);
+        return aggregate == null || aggregate.isEmpty() ? Optional.empty() : Optional.of(aggregate.snapshot());
+    }
+
+    public List<TeamStatisticsDto> getAll() {
+        List<TeamStatisticsDto> result = new ArrayList<>();
+        for (TeamAgeAggregate aggregate : aggregates.values()) {
+            if (!aggregate.isEmpty()) {
+                result.add(aggregate.snapshot());
+            }
+        }
+        return result;
+    }
+
+    @Order(StartupOrder.LOADERS)
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (aggregatesLock) {
+                pending = new ArrayList<>();
+            }
+            try {
+                Map<Long, MemberState> states = load();
+                synchronized (aggregatesLock) {
+                    aggregates = aggregate(states, pending);
+                }
+                log.info("team statistics rebuilt : {} members", states.size());
+            } finally {
+                synchronized (aggregatesLock) {
+                    pending = null;
+                }
+            }
+        }
+    }
+
+    //읽기 전후로 커밋된 변경, 회원별 최종 상태로 덮어쓰므로 이미 읽은 것에 다시 적용해도 결과는 같다
+    static Map<Long, TeamAgeAggregate> aggregate(Map<Long, MemberState> states, List<MemberChangedEvent> pending) {
+        for (MemberChangedEvent event : pending) {
+            if (event.getAfter() == null) {
+                states.remove(event.getMemberId());
+            } else {
+                states.put(event.getMemberId(), event.getAfter());
+            }
+        }
+        Map<Long, TeamAgeAggregate> rebuilt = new ConcurrentHashMap<>();
+        for (MemberState state : states.values()) {
+            add(rebuilt, state);
+        }
+        return rebuilt;
+    }
+
+    //나이별 인원수까지 집계해야 삭제 후에도 max/min 을 증분으로 유지할 수 있다. 읽는 동안의 변경을 덮어쓰려고 회원 단위로 읽는다
+    private Map<Long, MemberState> load() {
+        Map<Long, MemberState> states = new HashMap<>();
+        long lastId = Long.MIN_VALUE;
+        while (true) {
+            long after = lastId;
+            List<Tuple> rows = readTransaction.execute(status -> queryFactory
+                    .select(member.id, member.age, member.team.id)
+                    .from(member)
+                    .where(member.id.gt(after), member.team.isNotNull())
+                    .orderBy(member.id.asc())
+                    .limit(LOAD_BATCH_SIZE)
+                    .fetch());
+            for (Tuple row : rows) {
+                lastId = row.get(member.id);
+                states.put(lastId, new MemberState(null, row.get(member.age), row.get(member.team.id)));
+            }
+            if (rows.size() < LOAD_BATCH_SIZE) {
+                break;
+            }
+        }
+        return states;
+    }
+
+    @TransactionalEventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        if (!event.teamOrAgeChanged()) {
+            return;
+        }
+        synchronized (aggregatesLock) {
+            remove(aggregates, event.getBefore());
+            add(aggregates, event.getAfter());
+            if (pending != null) {
+                pending.add(event);
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkChanged(MembersBulkChangedEvent event) {
+        rebuild();
+    }
+
+    //커밋하는 스레드를 붙잡지 않도록 표시만 한다
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBulkClause(BulkClauseExecutedEvent event) {
+        if (event.needsRebuild("Member")) {
+            rebuildRequested.set(true);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${querydsl.team-statistics.rebuild-interval-millis:1000}")
+    public void rebuildIfRequested() {
+        //다른 스레드가 표시를 가져가 rebuild 중이면 끝날 때까지 기다린다
+        synchronized (rebuildLock) {
+            if (!rebuildRequested.getAndSet(false)) {
+                return;
+            }
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                rebuildRequested.set(true);
+                throw e;
+            }
+        }
+    }
+
+    private static void add(Map<Long, TeamAgeAggregate> aggregates, MemberState state) {
+        if (state == null || state.getTeamId() == null) {
+            return;
+        }
+        aggregates.computeIfAbsent(state.getTeamId(), TeamAgeAggregate::new).add(state.getAge(), 1);
+    }
+
+    private static void remove(Map<Long, TeamAgeAggregate> aggregates, MemberState state) {
+        if (state == null || state.getTeamId() == null) {
+            return;
+        }
+        TeamAgeAggregate aggregate = aggregates.get(state.getTeamId());
+        if (aggregate != null) {
+            aggregate.remove(state.getAge());
+        }
+    }
+}
@@ -3,6 +3,9 @@ package study.querydsl;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import study.querydsl.entity.BlockSequenceGenerator;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -12,7 +15,10 @@ import javax.persistence.Id;
 @Getter @Setter
 public class testEntity {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(generator = "test_entity_seq")
+    @GenericGenerator(name = "test_entity_seq", strategy = BlockSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = "sequence_name", value = "test_entity_seq"))
     private Long id;
 
 }
@@ -0,0 +1,97 @@
+package study.querydsl.timing;
+
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 요청 하나 동안의 하이버네이트 통계 (문장 수, 쿼리 시간, 로딩한 엔티티, 컬렉션 초기화) 와 직렬화 시간
+ * 요청을 처리하는 스레드에 바인딩된다. 비동기 요청이면 RequestTimingConfig 의 인터셉터가
+ * 작업 스레드에도 바인딩한다. 한 시점에 한 스레드만 쓰므로 동기화하지 않는다.
+ */
+@Getter
+public class RequestTiming {
+
+    public static final String ATTRIBUTE = RequestTiming.class.getName();
+
+    //Server-Timing 에 따로 보여주는 문장 수 (v3 의 content, count 처럼 앞쪽 몇 개면 충분하다)
+    static final int MAX_STATEMENT_TIMINGS = 10;
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    private int statements;
+    private long queryNanos;
+    private final long[] statementNanos = new long[MAX_STATEMENT_TIMINGS];
+    private long entitiesLoaded;
+    private long collectionsFetched;
+    private long serializeStartNanos;
+    private long serializeNanos;
+    private long totalNanos;
+
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    static void bind(RequestTiming timing) {
+        CURRENT.set(timing);
+    }
+
+    static void unbind() {
+        CURRENT.remove();
+    }
+
+    void statementExecuted(long nanos) {
+        if (statements < MAX_STATEMENT_TIMINGS) {
+            statementNanos[statements] = nanos;
+        }
+        statements++;
+        queryNanos += nanos;
+    }
+
+    void entityLoaded() {
+        entitiesLoaded++;
+    }
+
+    void collectionFetched() {
+        collectionsFetched++;
+    }
+
+    void serializeStarted() {
+        if (serializeStartNanos == 0) {
+            serializeStartNanos = System.nanoTime();
+        }
+    }
+
+    void finish() {
+        long now = System.nanoTime();
+        if (serializeStartNanos != 0) {
+            serializeNanos = now - serializeStartNanos;
+        }
+        totalNanos = now - startNanos;
+    }
+
+    public long[] getStatementNanos() {
+        return Arrays.copyOf(statementNanos, Math.min(statements, MAX_STATEMENT_TIMINGS));
+    }
+
+    //db;dur=12.40;desc="2 statements", sql-1;dur=10.10, sql-2;dur=2.30, load;desc="20 entities, 1 collections", ...
+    public String toServerTiming() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("db;dur=").append(millis(queryNanos)).append(";desc=\"").append(statements).append(" statements\"");
+        for (int i = 0; i < Math.min(statements, MAX_STATEMENT_TIMINGS); i++) {
+            sb.append(", sql-").append(i + 1).append(";dur=").append(millis(statementNanos[i]));
+        }
+        sb.append(", load;desc=\"").append(entitiesLoaded).append(" entities, ")
+                .append(collectionsFetched).append(" collections\"");
+        sb.append(", serialize;dur=").append(millis(serializeNanos));
+        sb.append(", total;dur=").append(millis(totalNanos));
+        return sb.toString();
+    }
+
+    static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0);
+    }
+}
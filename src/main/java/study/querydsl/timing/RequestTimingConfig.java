@@ -0,0 +1,89 @@
+package study.querydsl.timing;
+
+
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Collections;
+import java.util.concurrent.Callable;
+
+/**
+ * querydsl.request-timing.enabled=true 일 때 요청별 하이버네이트 통계를 모은다
+ * - 세션 이벤트 리스너 : 실행한 문장 수와 시간
+ * - 인테그레이터 : 로딩한 엔티티, 초기화한 컬렉션
+ * - ResponseBodyAdvice : 직렬화 시작 시각
+ * - CallableProcessingInterceptor : WebAsyncTask 작업 스레드에 RequestTiming 바인딩
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "querydsl.request-timing", name = "enabled", havingValue = "true")
+public class RequestTimingConfig implements WebMvcConfigurer {
+
+    @Bean
+    RequestTimingFilter requestTimingFilter(RequestTimingProperties properties) {
+        return new RequestTimingFilter(properties);
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer requestTimingHibernateProperties() {
+        return properties -> {
+            properties.put("hibernate.session.events.auto", RequestTimingSessionListener.class.getName());
+            properties.put("hibernate.integrator_provider",
+                    (IntegratorProvider) () -> Collections.singletonList(new RequestTimingIntegrator()));
+        };
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            @Override
+            public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+                Object timing = request.getAttribute(RequestTiming.ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+                if (timing != null) {
+                    RequestTiming.bind((RequestTiming) timing);
+                }
+            }
+
+            @Override
+            public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+                RequestTiming.unbind();
+            }
+        });
+    }
+
+    //메시지 컨버터가 응답을 쓰기 직전, 컴포넌트 스캔으로 등록되므로 조건을 따로 건다
+    @ControllerAdvice
+    @ConditionalOnProperty(prefix = "querydsl.request-timing", name = "enabled", havingValue = "true")
+    static class SerializeTimingAdvice implements ResponseBodyAdvice<Object> {
+
+        @Override
+        public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+            return true;
+        }
+
+        @Override
+        public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                      Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                      ServerHttpRequest request, ServerHttpResponse response) {
+            RequestTiming timing = RequestTiming.current();
+            if (timing != null) {
+                timing.serializeStarted();
+            }
+            return body;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package study.querydsl.timing;
+
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 샘플링된 요청의 RequestTiming 을 Server-Timing 헤더와 로그로 남긴다
+ * 직렬화 시간까지 헤더에 넣기 위해 측정하는 요청만 응답 본문을 버퍼링한다.
+ * 비동기 요청(WebAsyncTask) 은 마지막 async 디스패치가 끝날 때 헤더를 쓴다.
+ */
+@Slf4j
+public class RequestTimingFilter extends OncePerRequestFilter {
+
+    private final RequestTimingProperties properties;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public RequestTimingFilter(RequestTimingProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String pattern : properties.getExcludePaths()) {
+            if (pathMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestTiming timing;
+        HttpServletResponse responseToUse = response;
+        if (isAsyncDispatch(request)) {
+            timing = (RequestTiming) request.getAttribute(RequestTiming.ATTRIBUTE);
+        } else if (sampled(request)) {
+            timing = new RequestTiming();
+            request.setAttribute(RequestTiming.ATTRIBUTE, timing);
+            responseToUse = new ContentCachingResponseWrapper(response);
+        } else {
+            timing = null;
+        }
+
+        if (timing == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        RequestTiming.bind(timing);
+        try {
+            filterChain.doFilter(request, responseToUse);
+        } finally {
+            RequestTiming.unbind();
+        }
+        if (!isAsyncStarted(request)) {
+            finish(request, responseToUse, timing);
+        }
+    }
+
+    private boolean sampled(HttpServletRequest request) {
+        return "true".equalsIgnoreCase(request.getHeader(properties.getForceHeader()))
+                || ThreadLocalRandom.current().nextDouble() < properties.getSampleRate();
+    }
+
+    private void finish(HttpServletRequest request, HttpServletResponse response, RequestTiming timing)
+            throws IOException {
+        timing.finish();
+        ContentCachingResponseWrapper wrapper = WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+        if (wrapper == null) {
+            return;
+        }
+        wrapper.addHeader("Server-Timing", timing.toServerTiming());
+        log.info("request-timing method={} uri={} status={} statements={} queryMs={} entities={} collections={} serializeMs={} totalMs={}",
+                request.getMethod(), request.getRequestURI(), wrapper.getStatus(),
+                timing.getStatements(), RequestTiming.millis(timing.getQueryNanos()),
+                timing.getEntitiesLoaded(), timing.getCollectionsFetched(),
+                RequestTiming.millis(timing.getSerializeNanos()), RequestTiming.millis(timing.getTotalNanos()));
+        wrapper.copyBodyToResponse();
+    }
+}
@@ -0,0 +1,45 @@
+package study.querydsl.timing;
+
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+/**
+ * 엔티티 로딩, 컬렉션 초기화를 측정 중인 요청에 더한다 (hibernate.integrator_provider 로 등록)
+ */
+public class RequestTimingIntegrator implements Integrator {
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                          SessionFactoryServiceRegistry serviceRegistry) {
+        EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_LOAD, (PostLoadEventListener) this::onPostLoad);
+        registry.appendListeners(EventType.INIT_COLLECTION, (InitializeCollectionEventListener) this::onInitializeCollection);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    private void onPostLoad(PostLoadEvent event) {
+        RequestTiming timing = RequestTiming.current();
+        if (timing != null) {
+            timing.entityLoaded();
+        }
+    }
+
+    private void onInitializeCollection(InitializeCollectionEvent event) {
+        RequestTiming timing = RequestTiming.current();
+        if (timing != null) {
+            timing.collectionFetched();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package study.querydsl.timing;
+
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Getter @Setter
+@ConfigurationProperties(prefix = "querydsl.request-timing")
+public class RequestTimingProperties {
+
+    //켜야만 필터와 하이버네이트 리스너가 등록된다
+    private boolean enabled = false;
+
+    //측정할 요청 비율 (0 ~ 1), 측정하지 않는 요청은 ThreadLocal 조회 한번만 한다
+    private double sampleRate = 0.01;
+
+    //이 헤더가 true 인 요청은 항상 측정한다
+    private String forceHeader = "X-Request-Timing";
+
+    //측정하지 않는 경로 (응답을 버퍼링하므로 스트리밍 응답은 제외)
+    private List<String> excludePaths = new ArrayList<>(Arrays.asList("/v1/members/stream", "/actuator/**"));
+}
@@ -0,0 +1,40 @@
+package study.querydsl.timing;
+
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * 세션마다 하나씩 만들어지는 하이버네이트 세션 이벤트 리스너 (hibernate.session.events.auto)
+ * 측정 중인 요청이 없으면 ThreadLocal 조회 한번으로 끝난다.
+ */
+public class RequestTimingSessionListener extends BaseSessionEventListener {
+
+    private long executeStart;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        executeStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        record();
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        executeStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        record();
+    }
+
+    private void record() {
+        RequestTiming timing = RequestTiming.current();
+        if (timing != null) {
+            timing.statementExecuted(System.nanoTime() - executeStart);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package study.querydsl.warmup;
+
+
+import org.springframework.core.Ordered;
+
+/**
+ * ApplicationReadyEvent 리스너 순서
+ * 순서를 지정하지 않은 리스너는 모두 LOWEST_PRECEDENCE 라 서로의 순서가 정해지지 않는다.
+ * 파생 데이터를 DB 에서 읽어 두는 리스너를 먼저, 워밍업을 맨 마지막에 실행해야
+ * 워밍업 쿼리가 채워진 인덱스/스냅샷을 쓰고, 준비 상태도 둘 다 끝난 뒤에 바뀐다.
+ */
+public final class StartupOrder {
+
+    //회원명 인덱스, 팀 통계, 컬럼 스냅샷, 팀 인원수
+    public static final int LOADERS = 0;
+
+    public static final int WARM_UP = Ordered.LOWEST_PRECEDENCE;
+
+    private StartupOrder() {
+    }
+}
@@ -0,0 +1,253 @@
+package study.querydsl.warmup;
+
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.entity.UsernameMatch;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberReadPaths;
+import study.querydsl.repository.MemberRepositoryCustom;
+import study.querydsl.repository.ReadPath;
+import study.querydsl.repository.sql.MemberBatchSearchRepository;
+import study.querydsl.statistics.AgeHistogramService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 배포 직후 첫 요청들이 JPQL 컴파일, Querydsl 식 생성, JIT 때문에 느린 것을 막기 위해
+ * 준비(readiness) 상태를 보고하기 전에 검색 쿼리를 미리 돌린다.
+ * - 검색 조건 조합 x 읽기 경로 x MemberRepositoryCustom 메서드 전부 (JPQL/SQL 모양마다 한번씩 컴파일)
+ *   조건이 하나도 없는 모양은 테이블 전체를 읽게 되므로 작은 페이지, 슬라이스, count 만 돌린다
+ * - 웹 서버가 떠 있으면 /v1 ~ /v4 에 합성 요청 (MVC, Jackson 경로까지), 요청마다 아무 회원과도 맞지 않는 조건을 붙인다
+ * - 나이 분포 캐시 채우기
+ *
+ * 스프링 부트는 ApplicationReadyEvent 리스너가 모두 끝난 다음에 ReadinessState.ACCEPTING_TRAFFIC 를 발행하므로
+ * 이 리스너를 가장 마지막 순서로 동기 실행하면 그동안 /actuator/health/readiness 는 OUT_OF_SERVICE 다.
+ * 스냅샷, 인덱스 로딩 같은 다른 ApplicationReadyEvent 리스너는 StartupOrder.LOADERS 순서라 먼저 끝난다.
+ * 워밍업이 실패해도 느릴 뿐이라 로그만 남기고 준비 상태로 넘어간다.
+ *
+ * querydsl.warm-up.enabled=true 일 때만 만들어진다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "querydsl.warm-up", name = "enabled", havingValue = "true")
+public class StartupWarmUp {
+
+    //실제 데이터와 겹치지 않을 값, 이 조건이 붙은 쿼리는 결과가 비어서 싸다 (조건 없는 모양은 queryShapes 참고)
+    private static final String USERNAME = "warm-up";
+    private static final String TEAM_NAME = "warm-up";
+    private static final int PAGE_SIZE = 20;
+
+    private final MemberReadPaths memberReadPaths;
+    private final MemberJpaRepository memberJpaRepository;
+    private final MemberBatchSearchRepository memberBatchSearchRepository;
+    private final AgeHistogramService ageHistogramService;
+    private final RestTemplateBuilder restTemplateBuilder;
+    private final WarmUpProperties properties;
+    private final ApplicationAvailability availability;
+    private final Timer timer;
+
+    @Getter
+    private volatile boolean completed;
+    @Getter
+    private volatile long durationMillis;
+    //워밍업을 시작할 때의 준비 상태, REFUSING_TRAFFIC 여야 한다
+    @Getter
+    private volatile ReadinessState readinessDuringWarmUp;
+
+    public StartupWarmUp(MemberReadPaths memberReadPaths,
+                         MemberJpaRepository memberJpaRepository,
+                         MemberBatchSearchRepository memberBatchSearchRepository,
+                         AgeHistogramService ageHistogramService,
+                         RestTemplateBuilder restTemplateBuilder,
+                         WarmUpProperties properties,
+                         ApplicationAvailability availability,
+                         MeterRegistry meterRegistry) {
+        this.memberReadPaths = memberReadPaths;
+        this.memberJpaRepository = memberJpaRepository;
+        this.memberBatchSearchRepository = memberBatchSearchRepository;
+        this.ageHistogramService = ageHistogramService;
+        this.restTemplateBuilder = restTemplateBuilder;
+        this.properties = properties;
+        this.availability = availability;
+        this.timer = Timer.builder("querydsl.warmup.duration")
+                .description("startup warm-up before readiness")
+                .register(meterRegistry);
+    }
+
+    @Order(StartupOrder.WARM_UP)
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp(ApplicationReadyEvent event) {
+        readinessDuringWarmUp = availability.getReadinessState();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(properties.getMaxDurationMillis());
+        List<MemberSearchCondition> conditions = conditions();
+        Set<MemberRepositoryCustom> repositories = repositories();
+
+        int rounds = 0;
+        while (rounds < properties.getIterations() && System.nanoTime() < deadline) {
+            if (!step("query shapes", () -> queryShapes(conditions, repositories))) {
+                break;
+            }
+            rounds++;
+        }
+        step("age histogram cache", this::fillCaches);
+        int requests = 0;
+        String baseUrl = baseUrl(event.getApplicationContext());
+        if (baseUrl != null) {
+            RestTemplate restTemplate = restTemplateBuilder.rootUri(baseUrl).build();
+            for (int i = 0; i < properties.getHttpIterations() && System.nanoTime() < deadline; i++) {
+                requests += syntheticRequests(restTemplate);
+            }
+        }
+
+        durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        timer.record(durationMillis, TimeUnit.MILLISECONDS);
+        completed = true;
+        log.info("warm-up finished in {} ms : {} query rounds x {} conditions x {} read paths, {} http requests",
+                durationMillis, rounds, conditions.size(), repositories.size(), requests);
+    }
+
+    private void queryShapes(List<MemberSearchCondition> conditions, Set<MemberRepositoryCustom> repositories) {
+        List<MemberSearchCondition> filtered = new ArrayList<>();
+        for (MemberSearchCondition condition : conditions) {
+            //조건 없는 search 는 전체 회원을 읽으므로 건너뛰고, 페이지가 있는 메서드만 돌린다
+            boolean unfiltered = unfiltered(condition);
+            if (!unfiltered) {
+                filtered.add(condition);
+                memberJpaRepository.search(condition);
+            }
+            for (MemberRepositoryCustom repository : repositories) {
+                if (!unfiltered) {
+                    repository.search(condition);
+                }
+                repository.searchPageSimple(condition, PageRequest.of(0, PAGE_SIZE));
+                //두번째 페이지라야 count 쿼리까지 실행된다
+                repository.searchPageComplex(condition, PageRequest.of(1, PAGE_SIZE));
+                repository.searchSlice(condition, null, PAGE_SIZE);
+                repository.searchSlice(condition, 0L, PAGE_SIZE);
+                repository.count(condition);
+            }
+        }
+        memberBatchSearchRepository.search(filtered.subList(0,
+                Math.min(filtered.size(), MemberBatchSearchRepository.MAX_CONDITIONS)));
+    }
+
+    static boolean unfiltered(MemberSearchCondition condition) {
+        return condition.getUserName() == null
+                && condition.getTeamName() == null
+                && condition.getAgeGoe() == null
+                && condition.getAgeLoe() == null;
+    }
+
+    //조건 없는 전체 분포만 캐시하므로 설정한 구간 폭마다 한번씩 채운다
+    private void fillCaches() {
+        for (Integer width : properties.getHistogramWidths()) {
+            ageHistogramService.ageHistogram(new MemberSearchCondition(), width);
+        }
+    }
+
+    //요청마다 맞는 회원이 없는 조건을 붙인다, 실제 트래픽을 받기 전에 전체 테이블을 읽지 않는다
+    static List<String> syntheticUris() {
+        List<String> uris = new ArrayList<>();
+        for (ReadPath readPath : ReadPath.values()) {
+            uris.add("/v1/members?userName=" + USERNAME + "&readPath=" + readPath);
+            uris.add("/v2/members?page=0&size=" + PAGE_SIZE + "&teamName=" + TEAM_NAME + "&readPath=" + readPath);
+            uris.add("/v3/members?page=1&size=" + PAGE_SIZE + "&teamName=" + TEAM_NAME + "&readPath=" + readPath);
+            uris.add("/v4/members?size=" + PAGE_SIZE + "&userName=" + USERNAME + "&ageGoe=10&readPath=" + readPath);
+        }
+        //조건 없는 분포는 fillCaches 가 이미 채웠다
+        uris.add("/v1/members/age-histogram?teamName=" + TEAM_NAME);
+        return uris;
+    }
+
+    private int syntheticRequests(RestTemplate restTemplate) {
+        List<String> uris = syntheticUris();
+        int sent = 0;
+        for (String uri : uris) {
+            try {
+                restTemplate.getForObject(uri, String.class);
+                sent++;
+            } catch (RestClientException e) {
+                log.warn("warm-up request {} failed : {}", uri, e.getMessage());
+            }
+        }
+        return sent;
+    }
+
+    //회원명/팀명/나이 조건의 모든 조합 (있는 조건마다 JPQL 이 달라진다), 회원명은 비교 방식별로
+    static List<MemberSearchCondition> conditions() {
+        List<MemberSearchCondition> conditions = new ArrayList<>();
+        for (int mask = 0; mask < 16; mask++) {
+            List<UsernameMatch> matches = (mask & 1) != 0
+                    ? Arrays.asList(UsernameMatch.values())
+                    : Arrays.asList((UsernameMatch) null);
+            for (UsernameMatch match : matches) {
+                MemberSearchCondition condition = new MemberSearchCondition();
+                if ((mask & 1) != 0) {
+                    condition.setUserName(USERNAME);
+                    condition.setUsernameMatch(match);
+                }
+                if ((mask & 2) != 0) {
+                    condition.setTeamName(TEAM_NAME);
+                }
+                if ((mask & 4) != 0) {
+                    condition.setAgeGoe(10);
+                }
+                if ((mask & 8) != 0) {
+                    condition.setAgeLoe(40);
+                }
+                conditions.add(condition);
+            }
+        }
+        return conditions;
+    }
+
+    //스냅샷이 꺼져 있으면 SNAPSHOT 이 JPA 저장소로 돌아오니 같은 저장소는 한번만
+    private Set<MemberRepositoryCustom> repositories() {
+        Set<MemberRepositoryCustom> repositories = new LinkedHashSet<>();
+        for (ReadPath readPath : ReadPath.values()) {
+            repositories.add(memberReadPaths.repository(readPath));
+        }
+        return repositories;
+    }
+
+    private String baseUrl(ApplicationContext context) {
+        if (!(context instanceof WebServerApplicationContext)) {
+            return null;
+        }
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        return port > 0 ? "http://localhost:" + port : null;
+    }
+
+    private boolean step(String name, Runnable step) {
+        try {
+            step.run();
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("warm-up step '{}' failed, continuing without it", name, e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package study.querydsl.warmup;
+
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Getter @Setter
+@ConfigurationProperties(prefix = "querydsl.warm-up")
+public class WarmUpProperties {
+
+    //켜져 있으면 준비(readiness) 보고 전에 워밍업을 끝낸다
+    private boolean enabled = false;
+
+    //쿼리 모양 전체를 몇 번 반복할지 (첫 번은 쿼리 플랜 컴파일, 나머지는 JIT 용)
+    private int iterations = 10;
+
+    //웹 서버가 떠 있으면 자기 자신에게 보내는 합성 요청 반복 수
+    private int httpIterations = 5;
+
+    //이 시간이 지나면 남은 반복은 건너뛰고 준비 상태로 넘어간다
+    private long maxDurationMillis = 30_000;
+
+    //미리 채워 둘 나이 분포 구간 폭 (컨트롤러 기본값 10)
+    private List<Integer> histogramWidths = new ArrayList<>(Arrays.asList(10));
+}
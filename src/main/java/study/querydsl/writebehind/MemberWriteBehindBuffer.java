@@ -0,0 +1,222 @@
+package study.querydsl.writebehind;
+
+
+import com.querydsl.core.Tuple;
+import com.querydsl.sql.SQLQueryFactory;
+import com.querydsl.sql.dml.SQLUpdateClause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.MemberChangedEvent;
+import study.querydsl.entity.MemberState;
+import study.querydsl.repository.support.InQueries;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static study.querydsl.repository.sql.SMember.member;
+import static study.querydsl.repository.sql.STeam.team;
+
+/**
+ * 자주 바뀌는 회원 나이/팀 변경을 member_id 별로 합쳐 두었다가 주기적으로 한 트랜잭션에 JDBC 배치로 쓴다.
+ * 같은 회원을 초당 여러번 바꿔도 flush 한번에 update 한 건이다.
+ *
+ * flush 는 변경 전 값을 select ... for update 로 잠그고 한번에 읽어서 MemberChangedEvent(UPDATED) 를 직접 발행하므로
+ * 통계, 스냅샷 같은 구독자는 엔티티로 바꾼 것과 똑같이 커밋 후에 반영한다.
+ * 잠근 값에서 나머지 컬럼을 채우므로, 그 사이 다른 트랜잭션이 바꾼 컬럼을 옛 값으로 되돌리지 않는다.
+ * 없는 회원, 없는 팀으로의 변경은 버린다 (로그와 dropped 지표).
+ * flush 가 실패하면 꺼낸 변경을 버퍼에 되돌려서 (그 사이 들어온 더 새 변경이 이긴다) 다음 flush 에서 다시 쓴다.
+ *
+ * 읽기 : 저장소(JPA, SQL, 스냅샷) 조회는 flush 되기 전 값을 보지 못한다. 방금 쓴 값을 읽어야 하면
+ * {@link #pending(long)} 으로 덮어 보거나 {@link #flush()} 를 먼저 부른다.
+ * 같은 회원을 JPA 로도 고치면 같은 컬럼은 나중에 커밋한 쪽이 이기고, 다른 컬럼은 둘 다 남는다.
+ * 내구성 : 종료할 때 남은 변경을 모두 쓰고 나서야 트랜잭션 매니저가 닫힌다 (종료 중에 들어온 변경은 거절).
+ * 프로세스가 비정상 종료하면 마지막 flush 이후 변경(최대 flush 간격만큼) 은 잃는다.
+ *
+ * 지표 : querydsl.write-behind.pending (대기 중인 회원 수), querydsl.write-behind.flush (flush 시간),
+ * querydsl.write-behind.rows (쓴 행), querydsl.write-behind.coalesced (합쳐진 변경), querydsl.write-behind.dropped
+ */
+@Slf4j
+@Component
+public class MemberWriteBehindBuffer {
+
+    private final SQLQueryFactory sqlQueryFactory;
+    private final TransactionTemplate writeTransaction;
+    private final ApplicationEventPublisher publisher;
+    private final WriteBehindProperties properties;
+
+    private final ConcurrentHashMap<Long, PendingMemberUpdate> pending = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+    private volatile boolean closed;
+
+    private final Timer flushTimer;
+    private final Counter rows;
+    private final Counter coalesced;
+    private final Counter dropped;
+
+    public MemberWriteBehindBuffer(SQLQueryFactory sqlQueryFactory,
+                                   PlatformTransactionManager transactionManager,
+                                   ApplicationEventPublisher publisher,
+                                   WriteBehindProperties properties,
+                                   MeterRegistry meterRegistry) {
+        this.sqlQueryFactory = sqlQueryFactory;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.publisher = publisher;
+        this.properties = properties;
+        Gauge.builder("querydsl.write-behind.pending", pending, Map::size)
+                .description("members with unflushed updates")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("querydsl.write-behind.flush").register(meterRegistry);
+        this.rows = Counter.builder("querydsl.write-behind.rows").register(meterRegistry);
+        this.coalesced = Counter.builder("querydsl.write-behind.coalesced").register(meterRegistry);
+        this.dropped = Counter.builder("querydsl.write-behind.dropped").register(meterRegistry);
+    }
+
+    public void updateAge(long memberId, int age) {
+        enqueue(PendingMemberUpdate.age(memberId, age));
+    }
+
+    //teamId 가 null 이면 팀에서 뺀다
+    public void changeTeam(long memberId, Long teamId) {
+        enqueue(PendingMemberUpdate.team(memberId, teamId));
+    }
+
+    //아직 flush 되지 않은 변경, 조회 결과에 덮어 쓸 때
+    public Optional<PendingMemberUpdate> pending(long memberId) {
+        return Optional.ofNullable(pending.get(memberId));
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${querydsl.write-behind.flush-interval-millis:200}")
+    public void flush() {
+        synchronized (flushLock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            //remove 로 하나씩 꺼내서, 꺼낸 뒤에 들어온 변경은 다음 flush 로 간다
+            List<PendingMemberUpdate> updates = new ArrayList<>(pending.size());
+            for (Long memberId : pending.keySet()) {
+                PendingMemberUpdate update = pending.remove(memberId);
+                if (update != null) {
+                    updates.add(update);
+                }
+            }
+            Timer.Sample sample = Timer.start();
+            try {
+                Integer written = writeTransaction.execute(status -> write(updates));
+                rows.increment(written == null ? 0 : written);
+            } catch (RuntimeException e) {
+                requeue(updates);
+                log.warn("write-behind flush of {} members failed, will retry", updates.size(), e);
+                throw e;
+            } finally {
+                sample.stop(flushTimer);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        closed = true;
+        flush();
+    }
+
+    private void enqueue(PendingMemberUpdate update) {
+        if (closed) {
+            throw new IllegalStateException("write-behind buffer is closed");
+        }
+        pending.merge(update.getMemberId(), update, (earlier, later) -> {
+            coalesced.increment();
+            return earlier.then(later);
+        });
+        //flush 가 실패하면 예외가 호출한 쪽으로 간다 (넣은 변경은 버퍼에 남아 있다)
+        if (pending.size() >= properties.getMaxPending()) {
+            flush();
+        }
+    }
+
+    private int write(List<PendingMemberUpdate> updates) {
+        List<Long> memberIds = new ArrayList<>(updates.size());
+        Set<Long> teamIds = new HashSet<>();
+        for (PendingMemberUpdate update : updates) {
+            memberIds.add(update.getMemberId());
+            if (update.isTeamChanged() && update.getTeamId() != null) {
+                teamIds.add(update.getTeamId());
+            }
+        }
+        //쓰기 전까지 다른 트랜잭션이 바꾸지 못하게 잠근다 (커밋할 때 풀린다)
+        Map<Long, MemberState> before = new HashMap<>();
+        for (Tuple row : InQueries.fetchInOrder(memberIds, r -> r.get(member.memberId), chunk -> sqlQueryFactory
+                .select(member.memberId, member.username, member.age, member.teamId)
+                .from(member)
+                .where(member.memberId.in(chunk))
+                .forUpdate()
+                .fetch())) {
+            before.put(row.get(member.memberId),
+                    new MemberState(row.get(member.username), row.get(member.age), row.get(member.teamId)));
+        }
+        Set<Long> existingTeams = new HashSet<>(InQueries.fetchInOrder(teamIds, id -> id, chunk -> sqlQueryFactory
+                .select(team.teamId)
+                .from(team)
+                .where(team.teamId.in(chunk))
+                .fetch()));
+
+        //모든 행을 같은 모양(age, team_id 둘 다 set) 으로 써서 배치 하나로 보낸다
+        SQLUpdateClause batch = sqlQueryFactory.update(member);
+        List<MemberChangedEvent> events = new ArrayList<>();
+        for (PendingMemberUpdate update : updates) {
+            MemberState current = before.get(update.getMemberId());
+            if (current == null
+                    || (update.isTeamChanged() && update.getTeamId() != null && !existingTeams.contains(update.getTeamId()))) {
+                dropped.increment();
+                log.warn("dropping write-behind update for missing member or team : {}", update);
+                continue;
+            }
+            MemberState after = new MemberState(current.getUsername(),
+                    update.getAge() != null ? update.getAge() : current.getAge(),
+                    update.isTeamChanged() ? update.getTeamId() : current.getTeamId());
+            if (after.getAge() == current.getAge() && Objects.equals(after.getTeamId(), current.getTeamId())) {
+                continue;
+            }
+            batch.set(member.age, after.getAge())
+                    .set(member.teamId, after.getTeamId())
+                    .where(member.memberId.eq(update.getMemberId()))
+                    .addBatch();
+            events.add(new MemberChangedEvent(MemberChangedEvent.Type.UPDATED, update.getMemberId(), current, after));
+        }
+        if (events.isEmpty()) {
+            return 0;
+        }
+        batch.execute();
+        //트랜잭션 안에서 발행해야 @TransactionalEventListener 가 커밋 후에 받는다
+        events.forEach(publisher::publishEvent);
+        return events.size();
+    }
+
+    //실패한 변경보다 그 사이 들어온 변경이 더 새 것
+    private void requeue(List<PendingMemberUpdate> updates) {
+        for (PendingMemberUpdate update : updates) {
+            pending.merge(update.getMemberId(), update, (newer, older) -> older.then(newer));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package study.querydsl.writebehind;
+
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 아직 DB 에 쓰지 않은 회원 한명의 변경
+ * 나이와 팀은 따로 합친다 - 나이만 바꾼 뒤 팀만 바꾸면 둘 다 남고, 같은 컬럼은 마지막 값만 남는다.
+ */
+@Getter
+@ToString
+public class PendingMemberUpdate {
+
+    private final long memberId;
+    //null 이면 나이는 그대로
+    private final Integer age;
+    private final boolean teamChanged;
+    //teamChanged 일 때만 의미, null 이면 팀 없음
+    private final Long teamId;
+
+    PendingMemberUpdate(long memberId, Integer age, boolean teamChanged, Long teamId) {
+        this.memberId = memberId;
+        this.age = age;
+        this.teamChanged = teamChanged;
+        this.teamId = teamId;
+    }
+
+    static PendingMemberUpdate age(long memberId, int age) {
+        return new PendingMemberUpdate(memberId, age, false, null);
+    }
+
+    static PendingMemberUpdate team(long memberId, Long teamId) {
+        return new PendingMemberUpdate(memberId, null, true, teamId);
+    }
+
+    //this 다음에 later 가 들어왔을 때
+    PendingMemberUpdate then(PendingMemberUpdate later) {
+        return new PendingMemberUpdate(memberId,
+                later.age != null ? later.age : age,
+                teamChanged || later.teamChanged,
+                later.teamChanged ? later.teamId : teamId);
+    }
+}
@@ -0,0 +1,17 @@
+package study.querydsl.writebehind;
+
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter @Setter
+@ConfigurationProperties(prefix = "querydsl.write-behind")
+public class WriteBehindProperties {
+
+    //주기적인 flush 간격 (@Scheduled 가 직접 읽는다), 프로세스가 죽으면 이 시간만큼의 변경을 잃을 수 있다
+    private long flushIntervalMillis = 200;
+
+    //쌓인 회원 수가 이만큼이면 변경을 넣은 스레드가 바로 flush 한다
+    private int maxPending = 10_000;
+}
@@ -0,0 +1,141 @@
+package study.querydsl.budget;
+
+import com.querydsl.core.types.dsl.Wildcard;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.sql.SQLQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.QMember;
+import study.querydsl.repository.sql.SMember;
+
+import javax.persistence.EntityManager;
+import java.sql.SQLException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+
+//쿼리는 다른 스레드에서 커밋된 데이터를 읽으므로 테스트 트랜잭션으로 감싸지 않는다
+@SpringBootTest
+class QueryBudgetCancelTest {
+
+    //150^4 행을 훑는 쿼리, 취소나 타임아웃이 없으면 수십초 걸린다
+    private static final int ROWS = 150;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    SQLQueryFactory sqlQueryFactory;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    ExecutorService executor;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < ROWS; i++) {
+                em.persist(new Member("member" + i, i));
+            }
+        });
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    public void after() {
+        executor.shutdownNow();
+        transactionTemplate.executeWithoutResult(status -> queryFactory.delete(member).execute());
+    }
+
+    @Test
+    public void cancelRunningJpaQuery() throws Exception {
+        assertCancelled(this::slowJpaQuery);
+    }
+
+    @Test
+    public void cancelRunningSqlQuery() throws Exception {
+        assertCancelled(this::slowSqlQuery);
+    }
+
+    @Test
+    public void budgetTimeoutStopsJpaQuery() throws Exception {
+        QueryBudgetContext context = new QueryBudgetContext(new QueryBudget("test", 200, 10_000, 1_000));
+        long start = System.nanoTime();
+
+        Future<Long> running = executor.submit(() -> inBudget(context, this::slowJpaQuery));
+
+        assertThatThrownBy(() -> running.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasRootCauseInstanceOf(SQLException.class);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5_000);
+    }
+
+    private void assertCancelled(Callable<Long> query) throws Exception {
+        //타임아웃은 길게 잡아서 취소로만 끝나게 한다
+        QueryBudgetContext context = new QueryBudgetContext(new QueryBudget("test", 200, 10_000, 60_000));
+        Future<Long> running = executor.submit(() -> inBudget(context, query));
+        Thread.sleep(500);
+        assertThat(running.isDone()).isFalse();
+
+        //문장이 실행되기 전에 부른 cancel 은 효과가 없으니 끝날 때까지 다시 부른다
+        long start = System.nanoTime();
+        while (!running.isDone() && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10)) {
+            context.cancel();
+            Thread.sleep(100);
+        }
+
+        assertThatThrownBy(() -> running.get(1, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasRootCauseInstanceOf(SQLException.class);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5_000);
+    }
+
+    private Long inBudget(QueryBudgetContext context, Callable<Long> query) throws Exception {
+        QueryBudgetContext.bind(context);
+        try {
+            return query.call();
+        } finally {
+            QueryBudgetContext.unbind();
+        }
+    }
+
+    private Long slowJpaQuery() {
+        QMember m1 = new QMember("m1");
+        QMember m2 = new QMember("m2");
+        QMember m3 = new QMember("m3");
+        QMember m4 = new QMember("m4");
+        return transactionTemplate.execute(status -> queryFactory
+                .select(m1.count())
+                .from(m1, m2, m3, m4)
+                .where(m1.age.add(m2.age).add(m3.age).add(m4.age).lt(0))
+                .fetchOne());
+    }
+
+    private Long slowSqlQuery() {
+        SMember m1 = new SMember("m1");
+        SMember m2 = new SMember("m2");
+        SMember m3 = new SMember("m3");
+        SMember m4 = new SMember("m4");
+        return transactionTemplate.execute(status -> sqlQueryFactory
+                .select(Wildcard.count)
+                .from(m1, m2, m3, m4)
+                .where(m1.age.add(m2.age).add(m3.age).add(m4.age).lt(0))
+                .fetchOne());
+    }
+}
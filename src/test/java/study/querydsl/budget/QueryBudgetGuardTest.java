@@ -0,0 +1,135 @@
+package study.querydsl.budget;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueryBudgetGuardTest {
+
+    SimpleMeterRegistry meterRegistry;
+    QueryBudgetGuard guard;
+
+    @BeforeEach
+    public void before() {
+        QueryBudgetProperties properties = new QueryBudgetProperties();
+        properties.getEndpoints().put("v2", new QueryBudgetProperties.Limits(50, null, 1_500L));
+        meterRegistry = new SimpleMeterRegistry();
+        guard = new QueryBudgetGuard(properties, meterRegistry);
+    }
+
+    @Test
+    public void endpointLimitsFallBackToDefaults() throws Exception {
+        QueryBudget v2 = guard.budget("v2");
+        QueryBudget v3 = guard.budget("v3");
+
+        assertThat(v2.getMaxPageSize()).isEqualTo(50);
+        assertThat(v2.getMaxOffset()).isEqualTo(10_000L);
+        assertThat(v2.timeoutSeconds()).isEqualTo(2);
+        assertThat(v3.getMaxPageSize()).isEqualTo(200);
+    }
+
+    @Test
+    public void rejectPageSizeAndOffset() throws Exception {
+        guard.checkPage("v2", PageRequest.of(0, 50));
+
+        assertThatThrownBy(() -> guard.checkPage("v2", PageRequest.of(0, 100_000)))
+                .isInstanceOf(QueryBudgetExceededException.class);
+        assertThatThrownBy(() -> guard.checkPage("v2", PageRequest.of(1_000, 20)))
+                .isInstanceOf(QueryBudgetExceededException.class)
+                .hasMessageContaining("cursor");
+
+        assertThat(meterRegistry.counter(QueryBudgetGuard.METRIC, "endpoint", "v2", "reason", "page-size").count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.counter(QueryBudgetGuard.METRIC, "endpoint", "v2", "reason", "offset").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void cancelRegisteredQuery() throws Exception {
+        QueryBudgetContext context = new QueryBudgetContext(guard.budget("v2"));
+        AtomicInteger cancels = new AtomicInteger();
+
+        context.register(cancels::incrementAndGet);
+        context.cancel();
+        //취소된 뒤에 등록되는 쿼리는 바로 취소된다
+        context.register(cancels::incrementAndGet);
+
+        assertThat(context.isCancelled()).isTrue();
+        assertThat(cancels.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void streamBindsBudgetAndCancelsOnDisconnect() throws Exception {
+        AtomicInteger cancels = new AtomicInteger();
+        StreamingResponseBody body = guard.stream("v2", out -> {
+            QueryBudgetContext context = QueryBudgetContext.current();
+            assertThat(context.getBudget().getEndpoint()).isEqualTo("v2");
+            context.register(cancels::incrementAndGet);
+            throw new IOException("Broken pipe");
+        });
+
+        assertThatThrownBy(() -> body.writeTo(new ByteArrayOutputStream())).isInstanceOf(IOException.class);
+
+        assertThat(cancels.get()).isEqualTo(1);
+        assertThat(QueryBudgetContext.current()).isNull();
+        assertThat(meterRegistry.counter(QueryBudgetGuard.METRIC, "endpoint", "v2", "reason", "cancelled").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void propagatedContextCancelsEveryThread() throws Exception {
+        QueryBudgetContext context = new QueryBudgetContext(guard.budget("v2"));
+        AtomicInteger cancels = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        QueryBudgetContext.bind(context);
+        try {
+            List<Future<QueryBudgetContext>> futures = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                futures.add(executor.submit(QueryBudgetContext.propagate(() -> {
+                    QueryBudgetContext.current().register(cancels::incrementAndGet);
+                    //cancel 은 스레드마다 등록한 쿼리를 모두 취소한다, 끝난 스레드의 것은 빠진다
+                    return QueryBudgetContext.current();
+                })));
+            }
+            for (Future<QueryBudgetContext> future : futures) {
+                assertThat(future.get(5, TimeUnit.SECONDS)).isSameAs(context);
+            }
+            //실행 스레드에는 컨텍스트가 남지 않는다
+            assertThat(executor.submit(QueryBudgetContext::current).get(5, TimeUnit.SECONDS)).isNull();
+
+            CountDownLatch registered = new CountDownLatch(3);
+            CountDownLatch release = new CountDownLatch(1);
+            for (int i = 0; i < 3; i++) {
+                executor.submit(QueryBudgetContext.propagate(() -> {
+                    QueryBudgetContext.current().register(cancels::incrementAndGet);
+                    registered.countDown();
+                    return release.await(5, TimeUnit.SECONDS);
+                }));
+            }
+            assertThat(registered.await(5, TimeUnit.SECONDS)).isTrue();
+            context.cancel();
+            release.countDown();
+        } finally {
+            QueryBudgetContext.unbind();
+            executor.shutdownNow();
+        }
+
+        assertThat(cancels.get()).isEqualTo(3);
+    }
+}
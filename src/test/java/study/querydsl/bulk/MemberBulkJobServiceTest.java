@@ -0,0 +1,195 @@
+package study.querydsl.bulk;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+//청크마다 별도 트랜잭션으로 커밋되기 때문에 테스트 트랜잭션(@Transactional)으로 감싸지 않는다
+@SpringBootTest
+class MemberBulkJobServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberBulkJobService bulkJobService;
+
+    @Autowired
+    BulkJobProperties properties;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 100; i++) {
+                em.persist(new Member("member" + i, i, i % 2 == 0 ? teamA : teamB));
+            }
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            queryFactory.delete(member).execute();
+            queryFactory.delete(team).execute();
+        });
+    }
+
+    @Test
+    public void bulkUpdateByChunk() throws Exception {
+        //given
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        MemberBulkJob job = MemberBulkJob.update(condition, clause -> clause.set(member.age, member.age.add(1)));
+        job.setChunkSize(7L);
+        job.setWorkers(3);
+
+        //when
+        BulkJobProgress progress = bulkJobService.run(job);
+
+        //then
+        assertThat(progress.getState()).isEqualTo(BulkJobProgress.State.COMPLETED);
+        assertThat(progress.getTotalChunks()).isGreaterThan(1);
+        assertThat(progress.getAffectedRows()).isEqualTo(50);
+        Integer ageSum = queryFactory
+                .select(member.age.sum())
+                .from(member)
+                .where(member.team.name.eq("teamA"))
+                .fetchOne();
+        //0 + 2 + ... + 98 = 2450, 50명 모두 +1
+        assertThat(ageSum).isEqualTo(2500);
+    }
+
+    @Test
+    public void bulkDeleteByChunk() throws Exception {
+        //given
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(90);
+        MemberBulkJob job = MemberBulkJob.delete(condition);
+        job.setChunkSize(3L);
+
+        //when
+        BulkJobProgress progress = bulkJobService.run(job);
+
+        //then
+        assertThat(progress.getAffectedRows()).isEqualTo(10);
+        assertThat(queryFactory.select(member.count()).from(member).fetchOne()).isEqualTo(90);
+    }
+
+    @Test
+    public void resumeFailedJob() throws Exception {
+        //given
+        MemberSearchCondition condition = new MemberSearchCondition();
+        AtomicInteger calls = new AtomicInteger();
+        MemberBulkJob job = MemberBulkJob.update(condition, clause -> {
+            //첫 청크는 실패시킨다
+            if (calls.getAndIncrement() == 0) {
+                throw new IllegalStateException("chunk failure");
+            }
+            clause.set(member.age, member.age.add(1));
+        });
+        job.setWorkers(1);
+        job.setChunkSize(10L);
+
+        //when
+        BulkJobProgress failed = bulkJobService.run(job);
+        BulkJobProgress.State stateBeforeResume = failed.getState();
+        long rowsBeforeResume = failed.getAffectedRows();
+        BulkJobProgress progress = bulkJobService.resume(failed.getJobId());
+
+        //then
+        assertThat(stateBeforeResume).isEqualTo(BulkJobProgress.State.FAILED);
+        assertThat(rowsBeforeResume).isEqualTo(0);
+        assertThat(failed.getJobId()).isEqualTo(progress.getJobId());
+        assertThat(progress.getState()).isEqualTo(BulkJobProgress.State.COMPLETED);
+        assertThat(progress.getAffectedRows()).isEqualTo(100);
+    }
+
+    @Test
+    public void rejectsInvalidWorkersAndChunkSize() throws Exception {
+        MemberBulkJob noWorkers = MemberBulkJob.delete(new MemberSearchCondition());
+        noWorkers.setWorkers(0);
+        MemberBulkJob noChunk = MemberBulkJob.delete(new MemberSearchCondition());
+        noChunk.setChunkSize(0L);
+
+        assertThatThrownBy(() -> bulkJobService.run(noWorkers)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> bulkJobService.run(noChunk)).isInstanceOf(IllegalArgumentException.class);
+        //아무것도 지우지 않았다
+        assertThat(queryFactory.select(member.count()).from(member).fetchOne()).isEqualTo(100);
+    }
+
+    @Test
+    public void evictsFinishedJobsAfterRetention() throws Exception {
+        BulkJobProgress progress = bulkJobService.run(MemberBulkJob.delete(noMatch()));
+        assertThat(progress.getState()).isEqualTo(BulkJobProgress.State.COMPLETED);
+
+        //보관 기간 안에서는 남아 있다
+        bulkJobService.evictFinishedJobs(progress.getFinishedAtMillis() + properties.getJobRetentionMillis() - 1);
+        assertThat(bulkJobService.getProgress(progress.getJobId())).isPresent();
+
+        bulkJobService.evictFinishedJobs(progress.getFinishedAtMillis() + properties.getJobRetentionMillis() + 1);
+        assertThat(bulkJobService.getProgress(progress.getJobId())).isEmpty();
+        assertThatThrownBy(() -> bulkJobService.resume(progress.getJobId()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void capsRetainedJobs() throws Exception {
+        int maxRetainedJobs = properties.getMaxRetainedJobs();
+        properties.setMaxRetainedJobs(2);
+        try {
+            BulkJobProgress first = bulkJobService.run(MemberBulkJob.delete(noMatch()));
+            Thread.sleep(5);
+            BulkJobProgress second = bulkJobService.run(MemberBulkJob.delete(noMatch()));
+            Thread.sleep(5);
+            BulkJobProgress third = bulkJobService.run(MemberBulkJob.delete(noMatch()));
+            bulkJobService.evictFinishedJobs(System.currentTimeMillis());
+
+            //가장 먼저 끝난 작업부터 지운다
+            assertThat(bulkJobService.getProgress(first.getJobId())).isEmpty();
+            assertThat(bulkJobService.getProgress(second.getJobId())).isPresent();
+            assertThat(bulkJobService.getProgress(third.getJobId())).isPresent();
+        } finally {
+            properties.setMaxRetainedJobs(maxRetainedJobs);
+        }
+    }
+
+    @Test
+    public void chunkCountInLong() throws Exception {
+        assertThat(BulkJobProgress.chunkCount(1, 0, 10)).isZero();
+        assertThat(BulkJobProgress.chunkCount(1, 10, 10)).isEqualTo(1);
+        assertThat(BulkJobProgress.chunkCount(0, 3_000_000_000L, 1_000)).isEqualTo(3_000_001);
+        assertThatThrownBy(() -> BulkJobProgress.chunkCount(0, Long.MAX_VALUE - 1, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private MemberSearchCondition noMatch() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(1_000);
+        return condition;
+    }
+}
@@ -0,0 +1,242 @@
+package study.querydsl.changestream;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.MemberState;
+import study.querydsl.entity.Team;
+import study.querydsl.statistics.TeamMemberCounter;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+//커밋된 변경만 흐르기 때문에 테스트 트랜잭션으로 감싸지 않는다
+@SpringBootTest
+class ChangeStreamTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    ChangeStream changeStream;
+
+    @Autowired
+    TeamMemberCounter teamMemberCounter;
+
+    List<ChangeRecord> received = new CopyOnWriteArrayList<>();
+    ChangeStream.Subscription subscription;
+
+    @BeforeEach
+    public void before() {
+        subscription = changeStream.subscribe("test", received::addAll);
+    }
+
+    @AfterEach
+    public void after() {
+        subscription.close();
+        transactionTemplate.executeWithoutResult(status -> {
+            queryFactory.delete(member).execute();
+            queryFactory.delete(team).execute();
+        });
+    }
+
+    @Test
+    public void entityAndBulkChanges() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        Member member1 = new Member("member1", 10, teamA);
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(teamA);
+            em.persist(member1);
+        });
+
+        //when 수정, 벌크 update, 삭제
+        transactionTemplate.executeWithoutResult(status ->
+                em.find(Member.class, member1.getId()).setAge(20));
+        transactionTemplate.executeWithoutResult(status -> queryFactory
+                .update(member)
+                .set(member.age, member.age.add(1))
+                .where(member.team.id.eq(teamA.getId()))
+                .execute());
+        transactionTemplate.executeWithoutResult(status ->
+                em.remove(em.find(Member.class, member1.getId())));
+        awaitReceived(5);
+
+        //then
+        List<ChangeRecord> members = received.stream()
+                .filter(r -> r.getEntity().equals("Member"))
+                .collect(Collectors.toList());
+        assertThat(members).extracting("operation").containsExactly(
+                ChangeRecord.Operation.CREATED,
+                ChangeRecord.Operation.UPDATED,
+                ChangeRecord.Operation.BULK_UPDATED,
+                ChangeRecord.Operation.DELETED);
+        assertThat(((MemberState) members.get(1).getAfter()).getAge()).isEqualTo(20);
+        assertThat(members.get(2).getAffectedRows()).isEqualTo(1);
+        assertThat(members.get(2).getEntityId()).isNull();
+        assertThat(received).extracting("entity").contains("Team");
+        //번호는 빠짐없이 증가한다
+        for (int i = 1; i < received.size(); i++) {
+            assertThat(received.get(i).getSequence()).isEqualTo(received.get(i - 1).getSequence() + 1);
+        }
+    }
+
+    @Test
+    public void memberCountFlushIsNotPublished() throws Exception {
+        //given member_count 증감이 쌓인 상태
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            em.persist(new Member("member1", 10, teamA));
+        });
+        long last = changeStream.getLastSequence();
+
+        //when update team set member_count ... 실행
+        teamMemberCounter.flush();
+
+        //then 파생 값 갱신은 변경으로 흘리지 않는다
+        assertThat(changeStream.getLastSequence()).isEqualTo(last);
+    }
+
+    @Test
+    public void rolledBackChangesAreNotPublished() throws Exception {
+        long last = changeStream.getLastSequence();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member("rolledBack", 1));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        assertThat(changeStream.getLastSequence()).isEqualTo(last);
+    }
+
+    @Test
+    public void slowSubscriberOverflows() throws Exception {
+        //given 버퍼 8칸, 첫 묶음에서 멈춰 있는 구독자
+        ChangeStreamProperties properties = new ChangeStreamProperties();
+        properties.setBufferSize(8);
+        properties.setPublishTimeoutMillis(10);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ChangeStream stream = new ChangeStream(properties, registry);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicLong missed = new AtomicLong();
+        List<Long> sequences = new CopyOnWriteArrayList<>();
+        stream.subscribe("slow", new ChangeSubscriber() {
+            @Override
+            public void onChanges(List<ChangeRecord> batch) {
+                batch.forEach(r -> sequences.add(r.getSequence()));
+                await(release);
+            }
+
+            @Override
+            public void onOverflow(long count) {
+                missed.addAndGet(count);
+            }
+        });
+
+        //when 버퍼보다 많이 발행해도 발행하는 쪽은 끝난다
+        for (int i = 0; i < 40; i++) {
+            stream.publish("Member", ChangeRecord.Operation.UPDATED, (long) i, null, null, 1);
+        }
+        release.countDown();
+        stream.close();
+
+        //then
+        assertThat(registry.get("querydsl.change-stream.backpressure").counter().count()).isPositive();
+        assertThat(missed.get()).isPositive();
+        assertThat(sequences).isSorted();
+        //받은 것 + 건너뛴 것 = 발행한 것
+        assertThat(sequences.size() + missed.get()).isEqualTo(40);
+    }
+
+    @Test
+    public void stuckSubscriberStallsPublisherOnce() throws Exception {
+        //given 버퍼 8칸, 발행 timeout 50ms, 첫 묶음에서 멈춰 있는 구독자
+        ChangeStreamProperties properties = new ChangeStreamProperties();
+        properties.setBufferSize(8);
+        properties.setPublishTimeoutMillis(50);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ChangeStream stream = new ChangeStream(properties, registry);
+        CountDownLatch release = new CountDownLatch(1);
+        stream.subscribe("stuck", batch -> await(release));
+
+        //when 큰 트랜잭션 하나만큼 발행
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            stream.publish("Member", ChangeRecord.Operation.UPDATED, (long) i, null, null, 1);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        release.countDown();
+        stream.close();
+
+        //then 행마다 timeout 을 기다리면 50초. 멈춘 구독자 때문에 기다린 것은 한번
+        //(구독 스레드가 늦게 떠서 첫 묶음을 가져가기 전에 한번 더 밀릴 수는 있다)
+        assertThat(registry.get("querydsl.change-stream.backpressure").counter().count()).isBetween(1.0, 2.0);
+        assertThat(elapsedMillis).isLessThan(2_000);
+    }
+
+    @Test
+    public void batches() throws Exception {
+        ChangeStreamProperties properties = new ChangeStreamProperties();
+        properties.setMaxBatchSize(16);
+        ChangeStream stream = new ChangeStream(properties, new SimpleMeterRegistry());
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        CountDownLatch first = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        stream.subscribe("batches", batch -> {
+            batchSizes.add(batch.size());
+            first.countDown();
+            await(release);
+        });
+
+        stream.publish("Member", ChangeRecord.Operation.UPDATED, 0L, null, null, 1);
+        first.await(5, TimeUnit.SECONDS);
+        //첫 묶음을 처리하는 동안 쌓인 것은 다음에 한번에 온다
+        for (int i = 1; i <= 40; i++) {
+            stream.publish("Member", ChangeRecord.Operation.UPDATED, (long) i, null, null, 1);
+        }
+        release.countDown();
+        stream.close();
+
+        assertThat(batchSizes).containsExactly(1, 16, 16, 8);
+    }
+
+    private void awaitReceived(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (received.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(received.size()).isGreaterThanOrEqualTo(count);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
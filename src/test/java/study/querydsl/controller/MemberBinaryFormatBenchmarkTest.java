@@ -0,0 +1,81 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.JsonTest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//./gradlew benchmark 로만 실행된다
+//JSON / Smile / CBOR 응답 크기(압축 전후)와 인코딩/디코딩 시간 비교
+@Tag("benchmark")
+@JsonTest
+class MemberBinaryFormatBenchmarkTest {
+
+    static final int MEMBERS = 100_000;
+    static final int ITERATIONS = 10;
+    static final TypeReference<List<MemberTeamDto>> LIST = new TypeReference<List<MemberTeamDto>>() {};
+
+    @Autowired
+    ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+
+    @Test
+    public void jsonVsSmileVsCbor() throws Exception {
+        List<MemberTeamDto> members = new ArrayList<>();
+        for (int i = 0; i < MEMBERS; i++) {
+            members.add(i % 10 == 0
+                    ? new MemberTeamDto((long) i, "member" + i, i % 100, null, null)
+                    : new MemberTeamDto((long) i, "member" + i, i % 100, (long) (i % 10), "team" + (i % 10)));
+        }
+
+        measure("json", objectMapperBuilder.getObject().build(), members);
+        measure("smile", objectMapperBuilder.getObject().factory(new SmileFactory()).build(), members);
+        measure("cbor", objectMapperBuilder.getObject().factory(new CBORFactory()).build(), members);
+    }
+
+    private void measure(String name, ObjectMapper mapper, List<MemberTeamDto> members) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(members);
+        assertThat(mapper.readValue(bytes, LIST)).isEqualTo(members);
+        for (int i = 0; i < 3; i++) {
+            mapper.readValue(mapper.writeValueAsBytes(members), LIST);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mapper.writeValueAsBytes(members);
+        }
+        double encodeMillis = (System.nanoTime() - start) / 1_000_000.0 / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mapper.readValue(bytes, LIST);
+        }
+        double decodeMillis = (System.nanoTime() - start) / 1_000_000.0 / ITERATIONS;
+
+        System.out.printf("%-6s %,d bytes (gzip %,d), encode %.1f ms, decode %.1f ms%n",
+                name, bytes.length, gzip(bytes), encodeMillis, decodeMillis);
+    }
+
+    //server.compression 과 같은 gzip 적용 후 크기
+    private int gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.size();
+    }
+}
@@ -0,0 +1,128 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class MemberControllerTest {
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    RequestMappingHandlerAdapter handlerAdapter;
+
+    @Test
+    public void batchWithNullConditionIsBadRequest() throws Exception {
+        mockMvc.perform(post("/v1/members/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"teamName\":\"teamA\"}, null]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    //batch 도 다른 검색처럼 한도를 걸고 비동기 스레드에서 실행한다
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void batchRunsInBudget() throws Exception {
+        MvcResult started = mockMvc.perform(post("/v1/members/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"teamName\":\"teamA\"}, {\"ageGoe\":10}]"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        JsonNode result = new ObjectMapper().readTree(mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray());
+
+        assertThat(result).hasSize(2);
+    }
+
+    @Test
+    public void binaryConvertersReplaced() throws Exception {
+        //스프링 기본 컨버터 대신 하나씩만 남는다
+        assertThat(handlerAdapter.getMessageConverters())
+                .filteredOn(MappingJackson2SmileHttpMessageConverter.class::isInstance).hasSize(1);
+        assertThat(handlerAdapter.getMessageConverters())
+                .filteredOn(MappingJackson2CborHttpMessageConverter.class::isInstance).hasSize(1);
+    }
+
+    //검색은 비동기 스레드에서 실행되므로 데이터를 커밋해 두고 테스트 트랜잭션 없이 돈다
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void smileAndCborSameAsJson() throws Exception {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30));
+        });
+        try {
+            JsonNode json = new ObjectMapper().readTree(fetch(MediaType.APPLICATION_JSON));
+            JsonNode smile = new ObjectMapper(new SmileFactory()).readTree(fetch(SMILE));
+            JsonNode cbor = new ObjectMapper(new CBORFactory()).readTree(fetch(MediaType.APPLICATION_CBOR));
+
+            assertThat(json).hasSize(3);
+            //search 는 순서를 정하지 않는다
+            assertThat(smile).containsExactlyInAnyOrderElementsOf(json);
+            assertThat(cbor).containsExactlyInAnyOrderElementsOf(json);
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> {
+                queryFactory.delete(member).execute();
+                queryFactory.delete(team).execute();
+            });
+        }
+    }
+
+    private byte[] fetch(MediaType accept) throws Exception {
+        MvcResult started = mockMvc.perform(get("/v1/members").accept(accept))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(accept))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+}
@@ -0,0 +1,54 @@
+package study.querydsl.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.JsonTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JsonTest
+class DtoSerializersTest {
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    //비교 기준: 직렬화기가 등록되지 않은 BeanSerializer 출력
+    ObjectMapper plain = new ObjectMapper();
+
+    @Test
+    public void sameJsonAsBeanSerializer() throws Exception {
+        Object[] values = {
+                new MemberTeamDto(1L, "mem\"ber1", 10, 2L, "teamA"),
+                new MemberTeamDto(3L, "member2", 20, null, null),
+                new MemberDto("member1", 10),
+                new UserDto("member1", 10),
+                new AgeBucketDto(10, 19, 3L),
+                new TeamStatisticsDto(1L, 2L, 30L, 15.0, 20, 10),
+                new TeamStatisticsDto(null, 0L, 0L, null, null, null)
+        };
+
+        for (Object value : values) {
+            assertThat(objectMapper.writeValueAsString(value))
+                    .isEqualTo(plain.writeValueAsString(value));
+        }
+    }
+
+    @Test
+    public void compactPage() throws Exception {
+        SliceImpl<MemberTeamDto> slice = new SliceImpl<>(Arrays.asList(
+                new MemberTeamDto(1L, "member1", 10, 2L, "teamA"),
+                new MemberTeamDto(5L, "member2", 20, 2L, "teamA")), PageRequest.of(0, 2), true);
+
+        CompactPage<MemberTeamDto> page = CompactPage.of(slice, null);
+
+        assertThat(page.getCursor()).isEqualTo("5");
+        assertThat(objectMapper.writeValueAsString(page))
+                .isEqualTo(plain.writeValueAsString(page))
+                .doesNotContain("pageable");
+    }
+}
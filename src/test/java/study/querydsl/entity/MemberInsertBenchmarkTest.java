@@ -0,0 +1,86 @@
+package study.querydsl.entity;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static study.querydsl.entity.QMember.member;
+
+//./gradlew benchmark 로만 실행된다
+//동시 writer 수에 따른 insert 처리량, BlockSizeOne 은 insert 마다 시퀀스를 부르던 이전 방식과 같은 조건
+@Tag("benchmark")
+@SpringBootTest
+class MemberInsertBenchmarkTest {
+
+    static final int MEMBERS_PER_ROUND = 20_000;
+    static final int MEMBERS_PER_TRANSACTION = 100;
+    static final int[] WRITERS = {1, 2, 4, 8};
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    public void after() {
+        transactionTemplate.executeWithoutResult(status -> queryFactory.delete(member).execute());
+    }
+
+    @Test
+    public void concurrentWriters() throws Exception {
+        insert(2, MEMBERS_PER_ROUND / 4);
+
+        for (int writers : WRITERS) {
+            long start = System.nanoTime();
+            insert(writers, MEMBERS_PER_ROUND);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            System.out.printf("%s writers=%d %,.0f rows/s%n",
+                    getClass().getSimpleName(), writers, MEMBERS_PER_ROUND / seconds);
+        }
+    }
+
+    private void insert(int writers, int members) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            int perWriter = members / writers;
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                futures.add(pool.submit(() -> {
+                    for (int from = 0; from < perWriter; from += MEMBERS_PER_TRANSACTION) {
+                        int start = from;
+                        transactionTemplate.executeWithoutResult(status -> {
+                            for (int i = start; i < start + MEMBERS_PER_TRANSACTION; i++) {
+                                em.persist(new Member("bench" + writer + "-" + i, i % 100));
+                            }
+                        });
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @SpringBootTest(properties = "spring.jpa.properties.querydsl.id.block-size=1")
+    static class BlockSizeOne extends MemberInsertBenchmarkTest {
+    }
+}
@@ -0,0 +1,121 @@
+package study.querydsl.entity;
+
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//팀 인원수와 상관없이 회원 추가/이동/인원수 조회가 members 컬렉션을 로딩하지 않는지 쿼리 수로 확인한다
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class TeamMembersTest {
+
+    static final int TEAM_SIZE = 500;
+
+    @Autowired
+    EntityManager em;
+
+    Statistics statistics;
+    Long teamAId;
+    Long teamBId;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < TEAM_SIZE; i++) {
+            em.persist(new Member("member" + i, i, teamA));
+        }
+        em.flush();
+        em.clear();
+        teamAId = teamA.getId();
+        teamBId = teamB.getId();
+        statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void addMemberToLoadedTeam() throws Exception {
+        Team teamA = em.find(Team.class, teamAId);
+        statistics.clear();
+
+        em.persist(new Member("new", 1, teamA));
+        em.flush();
+
+        assertThat(Hibernate.isInitialized(teamA.getMembers())).isFalse();
+        assertThat(statistics.getCollectionLoadCount()).isEqualTo(0);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(0);
+        //insert 하나 (+ id 블록을 새로 받으면 시퀀스 호출 하나)
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    public void addMemberToTeamReference() throws Exception {
+        Team teamA = em.getReference(Team.class, teamAId);
+        statistics.clear();
+
+        em.persist(new Member("new", 1, teamA));
+        em.flush();
+
+        assertThat(Hibernate.isInitialized(teamA)).isFalse();
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(0);
+        assertThat(statistics.getCollectionLoadCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void moveMemberBetweenTeams() throws Exception {
+        Team teamA = em.find(Team.class, teamAId);
+        Team teamB = em.find(Team.class, teamBId);
+        Member member = em.createQuery("select m from Member m where m.username = :username", Member.class)
+                .setParameter("username", "member0")
+                .getSingleResult();
+        statistics.clear();
+
+        member.setTeam(teamB);
+        em.flush();
+
+        assertThat(statistics.getCollectionLoadCount()).isEqualTo(0);
+        //update 하나
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(teamA.countMembers()).isEqualTo(TEAM_SIZE - 1);
+        assertThat(teamB.countMembers()).isEqualTo(1);
+    }
+
+    @Test
+    public void memberCountWithoutLoading() throws Exception {
+        Team teamA = em.find(Team.class, teamAId);
+        statistics.clear();
+
+        int count = teamA.countMembers();
+
+        assertThat(count).isEqualTo(TEAM_SIZE);
+        assertThat(Hibernate.isInitialized(teamA.getMembers())).isFalse();
+        assertThat(statistics.getCollectionLoadCount()).isEqualTo(0);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void loadedCollectionStaysInSync() throws Exception {
+        Team teamA = em.find(Team.class, teamAId);
+        Team teamB = em.find(Team.class, teamBId);
+        Hibernate.initialize(teamA.getMembers());
+        Hibernate.initialize(teamB.getMembers());
+
+        Member added = new Member("new", 1, teamA);
+        em.persist(added);
+        Member moved = teamA.getMembers().get(0);
+        moved.setTeam(teamB);
+
+        assertThat(teamA.getMembers()).hasSize(TEAM_SIZE).contains(added).doesNotContain(moved);
+        assertThat(teamB.getMembers()).containsExactly(moved);
+    }
+}
@@ -0,0 +1,149 @@
+package study.querydsl.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.BindException;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+//파티션은 각자 트랜잭션으로 읽기 때문에 데이터를 커밋해 두고 테스트한다
+@SpringBootTest(properties = {
+        "querydsl.export.partitions=3",
+        "querydsl.export.row-group-size=7"
+})
+class MemberExportJobTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberExportJob exportJob;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 50; i++) {
+                Team t = i % 5 == 0 ? null : i % 2 == 0 ? teamA : teamB;
+                em.persist(t == null ? new Member("member" + i, i) : new Member("member" + i, i, t));
+            }
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            queryFactory.delete(member).execute();
+            queryFactory.delete(team).execute();
+        });
+    }
+
+    @Test
+    public void exportAndReadBack() throws Exception {
+        //when
+        ExportManifest manifest = exportJob.export(directory);
+
+        //then manifest
+        assertThat(manifest.getTotalRows()).isEqualTo(50);
+        assertThat(manifest.getPartitions()).hasSize(3);
+        assertThat(manifest.getPartitions().stream().mapToLong(ExportManifest.Partition::getRows).sum())
+                .isEqualTo(50);
+        ExportManifest written = objectMapper.readValue(
+                directory.resolve(MemberExportJob.MANIFEST).toFile(), ExportManifest.class);
+        assertThat(written.getTotalRows()).isEqualTo(50);
+        assertThat(written.getColumns()).containsExactly("member_id", "username", "age", "team_id", "team_name");
+
+        //then 파일을 다시 읽으면 DB 와 같다
+        List<MemberTeamDto> rows = new ArrayList<>();
+        for (ExportManifest.Partition partition : manifest.getPartitions()) {
+            try (MemberColumnarReader reader = new MemberColumnarReader(directory.resolve(partition.getFile()))) {
+                assertThat(reader.getRows()).isEqualTo(partition.getRows());
+                assertThat(reader.getRowGroups()).isEqualTo(partition.getRowGroups());
+                reader.forEach(dto -> {
+                    assertThat(dto.getMemberId()).isBetween(partition.getFromId(), partition.getToId());
+                    rows.add(dto);
+                });
+            }
+        }
+        assertThat(rows).hasSize(50);
+        assertThat(rows).extracting("userName").contains("member0", "member49");
+        assertThat(rows).filteredOn(dto -> dto.getTeamId() == null).hasSize(10)
+                .allMatch(dto -> dto.getTeamName() == null);
+        assertThat(rows).filteredOn(dto -> "teamA".equals(dto.getTeamName()))
+                .extracting("age").allMatch(age -> (int) age % 2 == 0);
+    }
+
+    @Test
+    public void emptyTable() throws Exception {
+        after();
+
+        ExportManifest manifest = exportJob.export(directory);
+
+        assertThat(manifest.getTotalRows()).isZero();
+        assertThat(manifest.getPartitions()).isEmpty();
+        assertThat(directory.resolve(MemberExportJob.MANIFEST)).exists();
+    }
+
+    @Test
+    public void split() throws Exception {
+        List<long[]> ranges = MemberExportJob.split(1, 10, 3);
+
+        assertThat(ranges).hasSize(3);
+        assertThat(ranges.get(0)).containsExactly(1, 4);
+        assertThat(ranges.get(1)).containsExactly(5, 7);
+        assertThat(ranges.get(2)).containsExactly(8, 10);
+        assertThat(MemberExportJob.split(5, 6, 4)).hasSize(2);
+    }
+
+    @Test
+    public void rejectsNonPositiveSizesWhenBinding() throws Exception {
+        for (String name : new String[]{"partitions", "row-group-size", "fetch-size"}) {
+            Map<String, String> source = new HashMap<>();
+            source.put("querydsl.export." + name, "0");
+            Binder binder = new Binder(new MapConfigurationPropertySource(source));
+
+            assertThatThrownBy(() -> binder.bind("querydsl.export", ExportProperties.class))
+                    .isInstanceOf(BindException.class)
+                    .hasRootCauseInstanceOf(IllegalArgumentException.class);
+        }
+        assertThatThrownBy(() -> new MemberColumnarWriter(directory.resolve("zero.mcol"), 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
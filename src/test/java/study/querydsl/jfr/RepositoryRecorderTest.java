@@ -0,0 +1,123 @@
+package study.querydsl.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.entity.Team;
+import study.querydsl.entity.UsernameMatch;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "querydsl.jfr.repository-call.threshold-millis=0",
+        "querydsl.jfr.query.threshold-millis=0"})
+@Transactional
+class RepositoryRecorderTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void recordsCallAndQueries() throws Exception {
+        //given
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUserName("member");
+        condition.setUsernameMatch(UsernameMatch.PREFIX);
+        condition.setAgeGoe(10);
+
+        //when
+        List<RecordedEvent> events;
+        Path file = Files.createTempFile("repository-recorder", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("study.querydsl.RepositoryCall").withThreshold(Duration.ZERO);
+            recording.enable("study.querydsl.QueryExecution").withThreshold(Duration.ZERO);
+            recording.start();
+            Page<MemberTeamDto> page = memberRepository.searchPageComplex(condition, PageRequest.of(0, 3));
+            assertThat(page.getTotalElements()).isEqualTo(4);
+            recording.stop();
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        //then 저장소 호출 하나에 content, count 쿼리 두개
+        List<RecordedEvent> calls = ofType(events, "study.querydsl.RepositoryCall");
+        assertThat(calls).hasSize(1);
+        RecordedEvent call = calls.get(0);
+        assertThat(call.getString("repository")).isEqualTo("MemberRepository");
+        assertThat(call.getString("method")).isEqualTo("searchPageComplex");
+        assertThat(call.getString("conditionShape")).isEqualTo("userName=PREFIX,ageGoe");
+        assertThat(call.getLong("rows")).isEqualTo(3);
+        assertThat(call.getLong("totalCount")).isEqualTo(4);
+        assertThat(call.getString("jpqlFingerprint")).isNotEmpty();
+
+        List<RecordedEvent> queries = ofType(events, "study.querydsl.QueryExecution");
+        assertThat(queries).extracting(e -> e.getString("kind")).containsExactly("CONTENT", "COUNT");
+        //조건 값은 파라미터로만 들어간다
+        assertThat(queries).allSatisfy(e -> assertThat(e.getString("jpql")).doesNotContain("member%"));
+        assertThat(queries.get(0).getString("jpqlFingerprint")).isEqualTo(call.getString("jpqlFingerprint"));
+    }
+
+    @Test
+    public void noopWhenDisabled() throws Exception {
+        RepositoryJfrProperties properties = new RepositoryJfrProperties();
+        properties.setEnabled(false);
+
+        RepositoryCall call = new RepositoryRecorder(properties).start("MemberRepository", "search", null);
+
+        assertThat(call).isSameAs(RepositoryCall.NOOP);
+    }
+
+    @Test
+    public void conditionShapeHasNoValues() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        assertThat(ConditionShape.of(condition)).isEqualTo("none");
+
+        condition.setUserName("secret");
+        condition.setTeamName("teamA");
+        condition.setAgeLoe(40);
+        assertThat(ConditionShape.of(condition)).isEqualTo("userName=EXACT,teamName,ageLoe");
+    }
+
+    private List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(e -> e.getEventType().getName().equals(name))
+                .collect(Collectors.toList());
+    }
+}
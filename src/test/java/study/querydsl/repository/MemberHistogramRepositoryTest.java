@@ -0,0 +1,76 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.AgeBucketDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberHistogramRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberHistogramRepository memberHistogramRepository;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 100; i++) {
+            em.persist(new Member("member" + i, i, i % 2 == 0 ? teamA : teamB));
+        }
+    }
+
+    @Test
+    public void ageHistogram() throws Exception {
+        //given
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(15);
+
+        //when
+        List<AgeBucketDto> result = memberHistogramRepository.ageHistogram(condition, 25);
+
+        //then teamA 는 짝수 나이, 16 ~ 98
+        assertThat(result).containsExactly(
+                new AgeBucketDto(0, 25, 5),
+                new AgeBucketDto(25, 50, 12),
+                new AgeBucketDto(50, 75, 13),
+                new AgeBucketDto(75, 100, 12));
+    }
+
+    @Test
+    public void negativeAgesFloorToBucket() throws Exception {
+        //given
+        Team teamC = new Team("teamC");
+        em.persist(teamC);
+        em.persist(new Member("minus1", -1, teamC));
+        em.persist(new Member("minus10", -10, teamC));
+        em.persist(new Member("minus11", -11, teamC));
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamC");
+
+        //when
+        List<AgeBucketDto> result = memberHistogramRepository.ageHistogram(condition, 10);
+
+        //then 0 쪽으로 버리면 -1 이 [0, 10) 에 들어간다
+        assertThat(result).containsExactly(
+                new AgeBucketDto(-20, -10, 1),
+                new AgeBucketDto(-10, 0, 2));
+    }
+}
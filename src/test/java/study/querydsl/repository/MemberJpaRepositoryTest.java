@@ -1,6 +1,7 @@
 package study.querydsl.repository;
 
 import org.assertj.core.api.Assertions;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -75,5 +76,30 @@ class MemberJpaRepositoryTest {
         assertThat(memberTeamDtos).extracting("userName").containsExactly("member4");
     }
 
-
-}
\ No newline at end of file
+    @Test
+    public void searchMemberIsManagedReadOnlyVariantIsNot() throws Exception {
+        //given
+        Member member1 = new Member("member1", 10);
+        em.persist(member1);
+        em.flush();
+        em.clear();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(0);
+        condition.setAgeLoe(100);
+
+        //when searchMember 는 보통 엔티티라 수정하면 반영되고, 조회 전에 flush 된다
+        Member found = memberJpaRepository.searchMember(condition).get(0);
+        found.setAge(50);
+        condition.setAgeGoe(50);
+        assertThat(memberJpaRepository.searchMember(condition)).containsExactly(found);
+
+        //then 읽기 전용 조회는 dirty checking 대상이 아니다
+        em.clear();
+        Member readOnly = memberJpaRepository.searchMemberReadOnly(condition).get(0);
+        assertThat(em.unwrap(Session.class).isReadOnly(readOnly)).isTrue();
+        readOnly.setAge(70);
+        em.flush();
+        em.clear();
+        assertThat(memberJpaRepository.findById(member1.getId()).get().getAge()).isEqualTo(50);
+    }
+}
@@ -0,0 +1,92 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.sql.MemberSqlRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//./gradlew benchmark 로만 실행된다
+@Tag("benchmark")
+@SpringBootTest
+@Transactional
+class MemberReadPathBenchmarkTest {
+
+    static final int MEMBERS = 20_000;
+    static final int WARMUP = 20;
+    static final int ITERATIONS = 50;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberSqlRepository memberSqlRepository;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < MEMBERS; i++) {
+            em.persist(new Member("member" + i, i % 100, i % 2 == 0 ? teamA : teamB));
+            if (i % 1000 == 0) {
+                em.flush();
+                em.clear();
+                teamA = em.find(Team.class, teamA.getId());
+                teamB = em.find(Team.class, teamB.getId());
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void searchJpaVsSql() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        //두 경로 결과가 같은지 먼저 확인
+        assertThat(memberSqlRepository.search(condition))
+                .containsExactlyInAnyOrderElementsOf(memberRepository.search(condition));
+
+        measure("search jpa", () -> memberRepository.search(condition));
+        measure("search sql", () -> memberSqlRepository.search(condition));
+
+        PageRequest page = PageRequest.of(10, 100);
+        measure("page jpa", () -> memberRepository.searchPageComplex(condition, page).getContent());
+        measure("page sql", () -> memberSqlRepository.searchPageComplex(condition, page).getContent());
+    }
+
+    private void measure(String name, Supplier<List<MemberTeamDto>> query) {
+        for (int i = 0; i < WARMUP; i++) {
+            query.get();
+            em.clear();
+        }
+        long start = System.nanoTime();
+        int rows = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            rows += query.get().size();
+            em.clear();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-12s avg %.3f ms (%d rows/iteration)%n",
+                name, elapsed / 1_000_000.0 / ITERATIONS, rows / ITERATIONS);
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
@@ -12,6 +13,8 @@ import study.querydsl.entity.MemberSearchCondition;
 import study.querydsl.entity.Team;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -94,18 +97,77 @@ class MemberRepositoryTest {
         assertThat(result.getSize()).isEqualTo(3);
         assertThat(result.getContent()).extracting("userName").containsExactly("member1","member2","member3");
     }
-}
-
-
-
-
-
 
+    @Test
+    public void findByIds() throws Exception {
+        //given
+        Member member1 = new Member("member1",10);
+        Member member2 = new Member("member2",20);
+        Member member3 = new Member("member3",30);
+        memberRepository.save(member1);
+        memberRepository.save(member2);
+        memberRepository.save(member3);
+        em.flush();
+        em.clear();
 
+        //when
+        List<Member> result = memberRepository.findByIds(
+                Arrays.asList(member3.getId(), member1.getId(), -1L, member3.getId(), member2.getId()));
 
+        //then 입력 순서대로, 중복 키는 한번만, 없는 키는 빠진다
+        assertThat(result).extracting("username").containsExactly("member3", "member1", "member2");
+    }
 
+    @Test
+    public void findByUsernames() throws Exception {
+        //given
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            memberRepository.save(new Member("member" + i, i));
+            names.add("member" + (599 - i));
+        }
+        memberRepository.save(new Member("member7", 70));
+        names.add("member7");
+        names.add("unknown");
+        em.flush();
+        em.clear();
+
+        //when 512개 청크 하나 + 나머지 청크(128개로 채움)
+        List<Member> result = memberRepository.findByUsernames(names);
 
+        //then
+        assertThat(result).hasSize(601);
+        assertThat(result.get(0).getUsername()).isEqualTo("member599");
+        assertThat(result).filteredOn(m -> m.getUsername().equals("member7"))
+                .extracting("age").containsExactly(7, 70);
+    }
 
+    @Test
+    public void searchSlice() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("member" + i, 10 + i, teamA));
+        }
+        em.flush();
+        em.clear();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
 
+        //when 커서를 넘기며 2개씩
+        Slice<MemberTeamDto> first = memberRepository.searchSlice(condition, null, 2);
+        Long cursor = first.getContent().get(1).getMemberId();
+        Slice<MemberTeamDto> second = memberRepository.searchSlice(condition, cursor, 2);
+        Long lastCursor = second.getContent().get(1).getMemberId();
+        Slice<MemberTeamDto> last = memberRepository.searchSlice(condition, lastCursor, 2);
 
+        //then
+        assertThat(first.getContent()).extracting("userName").containsExactly("member0", "member1");
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.getContent()).extracting("userName").containsExactly("member2", "member3");
+        assertThat(last.getContent()).extracting("userName").containsExactly("member4");
+        assertThat(last.hasNext()).isFalse();
+    }
 
+}
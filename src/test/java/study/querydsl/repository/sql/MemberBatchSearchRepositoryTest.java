@@ -0,0 +1,97 @@
+package study.querydsl.repository.sql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+class MemberBatchSearchRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberBatchSearchRepository memberBatchSearchRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50));
+        //SQL 경로는 같은 트랜잭션 커넥션을 쓰므로 flush 만 하면 보인다
+        em.flush();
+    }
+
+    @Test
+    public void batchSearch() throws Exception {
+        //given
+        MemberSearchCondition byTeamA = condition(null, "teamA", null, null);
+        MemberSearchCondition byTeamB = condition(null, "teamB", null, null);
+        MemberSearchCondition byName = condition("member4", null, null, null);
+        MemberSearchCondition byAge = condition(null, null, 25, 45);
+        MemberSearchCondition complex = condition("member3", "teamB", 30, null);
+        MemberSearchCondition none = condition(null, "teamC", null, null);
+        MemberSearchCondition all = condition(null, null, null, null);
+        List<MemberSearchCondition> conditions = Arrays.asList(byTeamA, byTeamB, byName, byAge, complex, none, all, byTeamA);
+
+        //when
+        List<List<MemberTeamDto>> result = memberBatchSearchRepository.search(conditions);
+
+        //then
+        assertThat(result).hasSize(conditions.size());
+        assertThat(result.get(0)).extracting("userName").containsExactly("member1", "member2");
+        assertThat(result.get(1)).extracting("userName").containsExactly("member3", "member4");
+        assertThat(result.get(2)).extracting("userName").containsExactly("member4");
+        assertThat(result.get(3)).extracting("userName").containsExactly("member3", "member4");
+        assertThat(result.get(4)).extracting("userName").containsExactly("member3");
+        assertThat(result.get(5)).isEmpty();
+        assertThat(result.get(6)).extracting("userName").containsExactly("member1", "member2", "member3", "member4", "member5");
+        assertThat(result.get(7)).isEqualTo(result.get(0));
+        //조건 하나씩 검색한 결과와 같아야 한다
+        for (int i = 0; i < conditions.size(); i++) {
+            assertThat(result.get(i)).containsExactlyInAnyOrderElementsOf(memberRepository.search(conditions.get(i)));
+        }
+    }
+
+    @Test
+    public void nullConditionRejected() throws Exception {
+        List<MemberSearchCondition> conditions = Arrays.asList(condition(null, "teamA", null, null), null);
+
+        assertThatThrownBy(() -> memberBatchSearchRepository.search(conditions))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("index 1");
+    }
+
+    private MemberSearchCondition condition(String userName, String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUserName(userName);
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+}
@@ -0,0 +1,105 @@
+package study.querydsl.repository.sql;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+
+//./gradlew benchmark 로만 실행된다
+@Tag("benchmark")
+@SpringBootTest
+@Transactional
+class MemberJsonStreamBenchmarkTest {
+
+    static final int MEMBERS = 100_000;
+    static final int ITERATIONS = 10;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberSqlRepository memberSqlRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < MEMBERS; i++) {
+            em.persist(new Member("member" + i, i % 100, teamA));
+            if (i % 1000 == 0) {
+                em.flush();
+                em.clear();
+                teamA = em.find(Team.class, teamA.getId());
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void dtoListVsStreaming() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        for (int i = 0; i < 3; i++) {
+            objectMapper.writeValue(new NullOutputStream(), memberSqlRepository.search(condition));
+            stream(condition);
+        }
+
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            objectMapper.writeValue(new NullOutputStream(), memberSqlRepository.search(condition));
+        }
+        report("dto list", start, allocatedBytes() - allocated);
+
+        allocated = allocatedBytes();
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            stream(condition);
+        }
+        report("streaming", start, allocatedBytes() - allocated);
+    }
+
+    private void stream(MemberSearchCondition condition) throws IOException {
+        try (JsonGenerator gen = objectMapper.createGenerator(new NullOutputStream())) {
+            memberSqlRepository.writeSearchJson(condition, gen);
+        }
+    }
+
+    private void report(String name, long start, long allocated) {
+        System.out.printf("%-10s avg %.1f ms, allocated %.1f bytes/row%n",
+                name,
+                (System.nanoTime() - start) / 1_000_000.0 / ITERATIONS,
+                (double) allocated / ITERATIONS / MEMBERS);
+    }
+
+    //현재 스레드가 지금까지 할당한 바이트 (HotSpot)
+    private long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    static class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package study.querydsl.repository.sql;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Team;
+import study.querydsl.entity.UsernameMatch;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberSqlRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberSqlRepository memberSqlRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("te\"am\\B");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("멤버3", 30, teamB));
+        em.persist(new Member(null, 40, teamB));
+        em.persist(new Member("member5", 50));
+        em.flush();
+    }
+
+    @Test
+    public void searchSameAsJpa() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        assertThat(memberSqlRepository.search(condition))
+                .containsExactlyInAnyOrderElementsOf(memberJpaRepository.search(condition));
+    }
+
+    @Test
+    public void searchPathsSameAsJpa() throws Exception {
+        for (MemberSearchCondition condition : conditions()) {
+            List<MemberTeamDto> expected = memberRepository.search(condition);
+            assertThat(memberSqlRepository.search(condition)).as("search %s", condition)
+                    .containsExactlyInAnyOrderElementsOf(expected);
+            assertThat(memberRepository.count(condition)).as("count %s", condition).isEqualTo(expected.size());
+            assertThat(memberSqlRepository.count(condition)).as("count %s", condition).isEqualTo(expected.size());
+
+            //한 페이지에 다 들어오는 경우 내용까지 같다
+            PageRequest all = PageRequest.of(0, 10);
+            assertSamePage(memberSqlRepository.searchPageSimple(condition, all),
+                    memberRepository.searchPageSimple(condition, all), expected);
+            assertSamePage(memberSqlRepository.searchPageComplex(condition, all),
+                    memberRepository.searchPageComplex(condition, all), expected);
+
+            //나눠진 페이지는 정렬이 없어서 행 순서는 비교하지 않고 크기와 전체 수만 본다
+            PageRequest second = PageRequest.of(1, 2);
+            assertSamePage(memberSqlRepository.searchPageSimple(condition, second),
+                    memberRepository.searchPageSimple(condition, second), expected);
+            assertSamePage(memberSqlRepository.searchPageComplex(condition, second),
+                    memberRepository.searchPageComplex(condition, second), expected);
+        }
+    }
+
+    @Test
+    public void streamedJsonIsByteIdentical() throws Exception {
+        //given
+        MemberSearchCondition condition = new MemberSearchCondition();
+        byte[] expected = objectMapper.writeValueAsBytes(memberSqlRepository.search(condition));
+
+        //when
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator gen = objectMapper.createGenerator(out)) {
+            memberSqlRepository.writeSearchJson(condition, gen);
+        }
+
+        //then
+        assertThat(out.toByteArray()).isEqualTo(expected);
+    }
+
+    private void assertSamePage(Page<MemberTeamDto> sql, Page<MemberTeamDto> jpa, List<MemberTeamDto> all) {
+        assertThat(sql.getTotalElements()).isEqualTo(jpa.getTotalElements());
+        assertThat(sql.getTotalPages()).isEqualTo(jpa.getTotalPages());
+        assertThat(sql.getContent()).hasSameSizeAs(jpa.getContent());
+        assertThat(all).containsAll(sql.getContent());
+        if (jpa.getTotalElements() <= jpa.getSize()) {
+            assertThat(sql.getContent()).containsExactlyInAnyOrderElementsOf(jpa.getContent());
+        }
+    }
+
+    private List<MemberSearchCondition> conditions() {
+        List<MemberSearchCondition> conditions = new ArrayList<>();
+        conditions.add(new MemberSearchCondition());
+
+        MemberSearchCondition team = new MemberSearchCondition();
+        team.setTeamName("teamA");
+        conditions.add(team);
+
+        MemberSearchCondition age = new MemberSearchCondition();
+        age.setAgeGoe(20);
+        age.setAgeLoe(40);
+        conditions.add(age);
+
+        MemberSearchCondition exact = new MemberSearchCondition();
+        exact.setUserName("member2");
+        conditions.add(exact);
+
+        MemberSearchCondition prefix = new MemberSearchCondition();
+        prefix.setUserName("mem");
+        prefix.setUsernameMatch(UsernameMatch.PREFIX);
+        conditions.add(prefix);
+
+        MemberSearchCondition contains = new MemberSearchCondition();
+        contains.setUserName("ber");
+        contains.setUsernameMatch(UsernameMatch.CONTAINS);
+        contains.setAgeGoe(15);
+        conditions.add(contains);
+        return conditions;
+    }
+}
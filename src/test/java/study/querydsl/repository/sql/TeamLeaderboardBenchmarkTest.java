@@ -0,0 +1,134 @@
+package study.querydsl.repository.sql;
+
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.sql.SQLExpressions;
+import com.querydsl.sql.SQLQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.QMember;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 팀별 최고령 회원 : row_number() 창 함수 vs 상관 서브쿼리
+ * - jpa max   : QuerydslBasicTest.subQuery 와 같은 age = (select max(age) ... where team = m.team) 형태 (N = 1)
+ * - sql count : 나보다 앞선 팀원 수 < N 인 회원 (N 명 일반형)
+ */
+//./gradlew benchmark 로만 실행된다
+@Tag("benchmark")
+@SpringBootTest
+@Transactional
+class TeamLeaderboardBenchmarkTest {
+
+    static final int TEAMS = 200;
+    static final int MEMBERS = 20_000;
+    static final int TOP = 3;
+    static final int WARMUP = 5;
+    static final int ITERATIONS = 20;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    SQLQueryFactory sqlQueryFactory;
+
+    @Autowired
+    TeamLeaderboardRepository teamLeaderboardRepository;
+
+    @BeforeEach
+    public void before() {
+        List<Long> teamIds = new ArrayList<>();
+        for (int t = 0; t < TEAMS; t++) {
+            Team team = new Team("team" + t);
+            em.persist(team);
+            teamIds.add(team.getId());
+        }
+        em.flush();
+        em.clear();
+        for (int i = 0; i < MEMBERS; i++) {
+            em.persist(new Member("member" + i, (i * 31) % 90,
+                    em.getReference(Team.class, teamIds.get(i % TEAMS))));
+            if (i % 1000 == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void oldestPerTeam() throws Exception {
+        //top 1 은 동점이 있으면 서브쿼리 쪽이 더 많이 돌려주니 팀 수만 비교한다
+        assertThat(teamLeaderboardRepository.oldestPerTeam(null, 1)).hasSize(TEAMS);
+        assertThat(correlatedCount(TOP)).hasSize(teamLeaderboardRepository.oldestPerTeam(null, TOP).size());
+
+        measure("top1 window", () -> teamLeaderboardRepository.oldestPerTeam(null, 1));
+        measure("top1 jpa max", this::correlatedMax);
+        measure("top" + TOP + " window", () -> teamLeaderboardRepository.oldestPerTeam(null, TOP));
+        measure("top" + TOP + " sql count", () -> correlatedCount(TOP));
+    }
+
+    private List<?> correlatedMax() {
+        QMember memberSub = new QMember("memberSub");
+        return queryFactory
+                .select(member.id, member.username, member.age, member.team.id)
+                .from(member)
+                .where(member.age.eq(
+                        JPAExpressions
+                                .select(memberSub.age.max())
+                                .from(memberSub)
+                                .where(memberSub.team.eq(member.team))
+                ))
+                .fetch();
+    }
+
+    private List<?> correlatedCount(int top) {
+        SMember ahead = new SMember("ahead");
+        SMember m = SMember.member;
+        return sqlQueryFactory
+                .select(m.memberId, m.username, m.age, m.teamId)
+                .from(m)
+                .where(m.teamId.isNotNull(),
+                        Expressions.asNumber(SQLExpressions.select(ahead.memberId.count())
+                                .from(ahead)
+                                .where(ahead.teamId.eq(m.teamId),
+                                        ahead.age.gt(m.age)
+                                                .or(ahead.age.eq(m.age).and(ahead.memberId.lt(m.memberId)))))
+                                .lt((long) top))
+                .fetch();
+    }
+
+    private void measure(String name, Supplier<List<?>> query) {
+        for (int i = 0; i < WARMUP; i++) {
+            query.get();
+            em.clear();
+        }
+        long start = System.nanoTime();
+        int rows = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            rows += query.get().size();
+            em.clear();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-16s avg %.3f ms (%d rows/iteration)%n",
+                name, elapsed / 1_000_000.0 / ITERATIONS, rows / ITERATIONS);
+    }
+}
@@ -0,0 +1,79 @@
+package study.querydsl.repository.sql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+class TeamLeaderboardRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TeamLeaderboardRepository teamLeaderboardRepository;
+
+    Team teamA;
+    Team teamB;
+
+    @BeforeEach
+    public void before() {
+        teamA = new Team("teamA");
+        teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 40, teamA));
+        em.persist(new Member("member3", 40, teamA));
+        em.persist(new Member("member4", 30, teamA));
+        em.persist(new Member("member5", 20, teamB));
+        em.persist(new Member("member6", 50));
+        em.persist(new Team("emptyTeam"));
+        em.flush();
+    }
+
+    @Test
+    public void oldestPerTeam() throws Exception {
+        List<MemberTeamDto> result = teamLeaderboardRepository.oldestPerTeam(null, 1);
+
+        //팀 없는 회원, 회원 없는 팀은 빠진다. 동점이면 먼저 가입한 회원
+        assertThat(result).extracting("userName").containsExactly("member2", "member5");
+        assertThat(result).extracting("teamName").containsExactly("teamA", "teamB");
+    }
+
+    @Test
+    public void topN() throws Exception {
+        List<MemberTeamDto> result = teamLeaderboardRepository.oldestPerTeam(null, 3);
+
+        assertThat(result).extracting("userName").containsExactly("member2", "member3", "member4", "member5");
+        assertThat(result).extracting("age").containsExactly(40, 40, 30, 20);
+    }
+
+    @Test
+    public void singleTeam() throws Exception {
+        List<MemberTeamDto> result = teamLeaderboardRepository.oldestPerTeam(teamB.getId(), 10);
+
+        assertThat(result).extracting("userName").containsExactly("member5");
+        assertThat(result.get(0).getTeamId()).isEqualTo(teamB.getId());
+    }
+
+    @Test
+    public void limitOutOfRange() throws Exception {
+        assertThatThrownBy(() -> teamLeaderboardRepository.oldestPerTeam(null, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> teamLeaderboardRepository.oldestPerTeam(null, TeamLeaderboardRepository.MAX_LIMIT + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,103 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import static study.querydsl.entity.QMember.member;
+
+//./gradlew benchmark 로만 실행된다
+//일반 조회, 읽기 전용 조회, 읽기 전용 forEach 의 시간과 할당량 비교 (조회 뒤 flush 까지 포함)
+@Tag("benchmark")
+@SpringBootTest
+@Transactional
+class ReadOnlyQueriesBenchmarkTest {
+
+    static final int MEMBERS = 100_000;
+    static final int ITERATIONS = 5;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    ReadOnlyQueries readOnlyQueries;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < MEMBERS; i++) {
+            em.persist(new Member("member" + i, i % 100, teamA));
+            if (i % 1000 == 0) {
+                em.flush();
+                em.clear();
+                teamA = em.find(Team.class, teamA.getId());
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void managedVsReadOnly() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            managed();
+            readOnly();
+            forEach();
+        }
+
+        measure("managed", this::managed);
+        measure("read-only", this::readOnly);
+        measure("forEach", this::forEach);
+    }
+
+    private void managed() {
+        queryFactory.selectFrom(member).fetch();
+        em.flush();
+        em.clear();
+    }
+
+    private void readOnly() {
+        readOnlyQueries.apply(queryFactory.selectFrom(member)).fetch();
+        em.flush();
+        em.clear();
+    }
+
+    private void forEach() {
+        LongAdder ages = new LongAdder();
+        readOnlyQueries.forEach(queryFactory.selectFrom(member), m -> ages.add(m.getAge()));
+        em.flush();
+        em.clear();
+    }
+
+    private void measure(String name, Runnable run) {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            run.run();
+        }
+        System.out.printf("%-10s avg %.1f ms, allocated %.1f bytes/row%n",
+                name,
+                (System.nanoTime() - start) / 1_000_000.0 / ITERATIONS,
+                (double) (allocatedBytes() - allocated) / ITERATIONS / MEMBERS);
+    }
+
+    //현재 스레드가 지금까지 할당한 바이트 (HotSpot)
+    private long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
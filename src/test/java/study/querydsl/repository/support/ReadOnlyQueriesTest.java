@@ -0,0 +1,74 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+@SpringBootTest(properties = "querydsl.read-only.clear-interval=10")
+@Transactional
+class ReadOnlyQueriesTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    ReadOnlyQueries readOnlyQueries;
+
+    @BeforeEach
+    public void before() {
+        for (int i = 0; i < 25; i++) {
+            em.persist(new Member("member" + i, i));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void readOnlyEntitiesAreNotFlushed() throws Exception {
+        List<Member> result = readOnlyQueries.apply(queryFactory.selectFrom(member)).fetch();
+        Session session = em.unwrap(Session.class);
+
+        assertThat(result).hasSize(25);
+        assertThat(result).allMatch(session::isReadOnly);
+
+        //수정해도 dirty checking 대상이 아니다
+        result.get(0).setAge(100);
+        em.flush();
+        em.clear();
+        assertThat(queryFactory.selectFrom(member).where(member.age.eq(100)).fetch()).isEmpty();
+    }
+
+    @Test
+    public void forEachDetachesProcessedEntities() throws Exception {
+        Member other = new Member("other", 1);
+        em.persist(other);
+        AtomicInteger managedAtCallback = new AtomicInteger();
+
+        long count = readOnlyQueries.forEach(queryFactory.selectFrom(member).where(member.username.startsWith("member")),
+                m -> managedAtCallback.set(Math.max(managedAtCallback.get(), (int) countManaged())));
+
+        assertThat(count).isEqualTo(25);
+        //clear-interval(10) 개를 넘게 들고 있지 않는다 (+ other)
+        assertThat(managedAtCallback.get()).isLessThanOrEqualTo(11);
+        assertThat(em.contains(other)).isTrue();
+    }
+
+    private long countManaged() {
+        return em.unwrap(Session.class).getStatistics().getEntityCount();
+    }
+}
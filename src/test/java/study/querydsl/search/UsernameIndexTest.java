@@ -0,0 +1,184 @@
+package study.querydsl.search;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.entity.Team;
+import study.querydsl.entity.UsernameMatch;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+//인덱스는 커밋된 변경만 반영하기 때문에 테스트 트랜잭션으로 감싸지 않는다
+@SpringBootTest
+class UsernameIndexTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    UsernameIndex usernameIndex;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    Long aliceId;
+    Long aliciaId;
+    Long maliceId;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            Member alice = new Member("alice", 10, teamA);
+            em.persist(alice);
+            Member alicia = new Member("alicia", 20, teamA);
+            Member malice = new Member("malice", 30, teamA);
+            em.persist(alicia);
+            em.persist(malice);
+            em.persist(new Member("bob", 40, teamA));
+            em.flush();
+            aliceId = alice.getId();
+            aliciaId = alicia.getId();
+            maliceId = malice.getId();
+        });
+        //다른 테스트의 벌크 삭제로 다시 만들기를 기다리는 중이면 인덱스를 쓰지 않는다
+        usernameIndex.rebuildIfStale();
+    }
+
+    @AfterEach
+    public void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            queryFactory.delete(member).execute();
+            queryFactory.delete(team).execute();
+        });
+        usernameIndex.rebuild();
+    }
+
+    @Test
+    public void prefixAndContains() throws Exception {
+        assertThat(search("ali", UsernameMatch.PREFIX)).containsExactlyInAnyOrder("alice", "alicia");
+        assertThat(search("lic", UsernameMatch.CONTAINS)).containsExactlyInAnyOrder("alice", "alicia", "malice");
+        assertThat(search("alice", UsernameMatch.CONTAINS)).containsExactlyInAnyOrder("alice", "malice");
+        assertThat(search("zzz", UsernameMatch.CONTAINS)).isEmpty();
+        //3글자보다 짧으면 like 로 처리
+        assertThat(search("ob", UsernameMatch.CONTAINS)).containsExactly("bob");
+        assertThat(search("alice", UsernameMatch.EXACT)).containsExactly("alice");
+        assertThat(search("alice", null)).containsExactly("alice");
+    }
+
+    @Test
+    public void followsCommittedChanges() throws Exception {
+        //when
+        transactionTemplate.executeWithoutResult(status -> em.find(Member.class, aliceId).setUsername("carol"));
+
+        //then
+        assertThat(usernameIndex.findContaining("lic").get()).hasSize(2);
+        assertThat(search("car", UsernameMatch.PREFIX)).containsExactly("carol");
+        assertThat(search("alic", UsernameMatch.PREFIX)).containsExactly("alicia");
+    }
+
+    @Test
+    public void rebuildsAfterQuerydslBulkClause() throws Exception {
+        //when 엔티티 이벤트 없이 회원명 변경
+        transactionTemplate.executeWithoutResult(status -> queryFactory
+                .update(member)
+                .set(member.username, "zed")
+                .where(member.id.eq(aliceId))
+                .execute());
+
+        //then 다시 만들기 전까지는 like 로 찾는다
+        assertThat(search("zed", UsernameMatch.PREFIX)).containsExactly("zed");
+        usernameIndex.rebuildIfStale();
+        assertThat(usernameIndex.findByPrefix("zed").get()).containsExactly(aliceId);
+        assertThat(usernameIndex.findByPrefix("alice").get()).isEmpty();
+    }
+
+    @Test
+    public void emptyPostingListsRemoved() throws Exception {
+        int before = usernameIndex.postingLists();
+
+        //when 다른 회원과 겹치지 않는 회원명으로 바꿨다가 지운다
+        transactionTemplate.executeWithoutResult(status -> em.find(Member.class, aliceId).setUsername("qwxyz"));
+        transactionTemplate.executeWithoutResult(status -> em.remove(em.find(Member.class, aliceId)));
+
+        //then 회원명 alice 목록만 빠진다, alice 의 3-gram 은 malice, alicia 가 같이 쓴다
+        assertThat(usernameIndex.findByPrefix("qwx").get()).isEmpty();
+        assertThat(usernameIndex.postingLists()).isEqualTo(before - 1);
+    }
+
+    @Test
+    public void paddedCandidateIds() throws Exception {
+        //트랜잭션 밖에서는 인덱스로 찾은 id IN, 2의 거듭제곱 크기로 채운다
+        assertThat(usernameIndex.matches(member.username, member.id, "ali", UsernameMatch.PREFIX))
+                .isEqualTo(member.id.in(Arrays.asList(aliceId, aliciaId)));
+        assertThat(usernameIndex.matches(member.username, member.id, "lic", UsernameMatch.CONTAINS))
+                .isEqualTo(member.id.in(Arrays.asList(aliceId, aliciaId, maliceId, maliceId)));
+    }
+
+    @Test
+    public void uncommittedMembersInWriteTransaction() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUserName("ali");
+        condition.setUsernameMatch(UsernameMatch.PREFIX);
+
+        List<String> result = transactionTemplate.execute(status -> {
+            em.persist(new Member("alina", 50));
+            em.flush();
+            List<String> names = memberRepository.search(condition).stream()
+                    .map(MemberTeamDto::getUserName).collect(Collectors.toList());
+            status.setRollbackOnly();
+            return names;
+        });
+
+        //아직 인덱스에 없는 alina 도 like 로 찾는다
+        assertThat(result).containsExactlyInAnyOrder("alice", "alicia", "alina");
+    }
+
+    @Test
+    public void likeBeforeFirstRebuild() throws Exception {
+        UsernameIndex notLoaded = new UsernameIndex(queryFactory, transactionManager, new UsernameIndexProperties());
+
+        assertThat(notLoaded.isReady()).isFalse();
+        assertThat(notLoaded.matches(member.username, member.id, "ali", UsernameMatch.PREFIX))
+                .isEqualTo(member.username.startsWith("ali"));
+    }
+
+    //인덱스를 쓰는 경로 (읽기 전용 트랜잭션)
+    private List<String> search(String userName, UsernameMatch match) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUserName(userName);
+        condition.setUsernameMatch(match);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> {
+            List<MemberTeamDto> result = memberRepository.search(condition);
+            return result.stream().map(MemberTeamDto::getUserName).collect(Collectors.toList());
+        });
+    }
+}
@@ -0,0 +1,222 @@
+package study.querydsl.shard;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import study.querydsl.budget.QueryBudgetContext;
+import study.querydsl.budget.QueryBudgetGuard;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.repository.MemberReadPaths;
+import study.querydsl.repository.ReadPath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.repository.sql.SMember.member;
+import static study.querydsl.repository.sql.STeam.team;
+
+//샤드마다 로컬 H2 파일 하나 (build/test-shards)
+@SpringBootTest(properties = {
+        "querydsl.shard.enabled=true",
+        "querydsl.shard.urls[0]=jdbc:h2:file:./build/test-shards/shard0",
+        "querydsl.shard.urls[1]=jdbc:h2:file:./build/test-shards/shard1",
+        "querydsl.shard.urls[2]=jdbc:h2:file:./build/test-shards/shard2"
+})
+class ShardedMemberSearchTest {
+
+    static final String[] TEAMS = {"teamA", "teamB", "teamC", "teamD", "teamE", "teamF"};
+    static final int MEMBERS = 30;
+
+    @Autowired
+    Shards shards;
+
+    @Autowired
+    ShardedMemberStore store;
+
+    @Autowired
+    ShardedMemberSearch search;
+
+    @Autowired
+    MemberReadPaths memberReadPaths;
+
+    @Autowired
+    QueryBudgetGuard queryBudgetGuard;
+
+    List<Long> teamIds = new ArrayList<>();
+    List<MemberTeamDto> expected = new ArrayList<>();
+
+    @BeforeEach
+    public void before() {
+        for (Shard shard : shards.all()) {
+            shard.getWriteTransaction().executeWithoutResult(status -> {
+                shard.getQueryFactory().delete(member).execute();
+                shard.getQueryFactory().delete(team).execute();
+            });
+        }
+        for (String name : TEAMS) {
+            teamIds.add(store.createTeam(name));
+        }
+        for (int i = 0; i < MEMBERS; i++) {
+            //마지막 몇 명은 팀 없음
+            int t = i % (TEAMS.length + 1);
+            Long teamId = t < TEAMS.length ? teamIds.get(t) : null;
+            String teamName = t < TEAMS.length ? TEAMS[t] : null;
+            long id = store.createMember("member" + i, i, teamId);
+            expected.add(new MemberTeamDto(id, "member" + i, i, teamId, teamName));
+        }
+        expected.sort(Comparator.comparing(MemberTeamDto::getMemberId));
+    }
+
+    @Test
+    public void routing() throws Exception {
+        Set<Integer> used = new HashSet<>();
+        for (int i = 0; i < TEAMS.length; i++) {
+            //팀 id 로 찾은 샤드 = 팀명으로 찾은 샤드
+            assertThat(shards.forTeam(teamIds.get(i))).isSameAs(shards.forTeamName(TEAMS[i]));
+            used.add(shards.forTeam(teamIds.get(i)).getIndex());
+        }
+        assertThat(used).hasSizeGreaterThan(1);
+        //id 는 샤드 사이에 겹치지 않는다
+        assertThat(expected.stream().map(MemberTeamDto::getMemberId).distinct()).hasSize(MEMBERS);
+    }
+
+    @Test
+    public void searchAll() throws Exception {
+        assertThat(search.search(new MemberSearchCondition())).containsExactlyElementsOf(expected);
+        assertThat(search.count(new MemberSearchCondition())).isEqualTo(expected.size());
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+        condition.setAgeLoe(19);
+        assertThat(search.search(condition)).containsExactlyElementsOf(expected.stream()
+                .filter(dto -> dto.getAge() >= 10 && dto.getAge() <= 19)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void teamNameHitsOneShard() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamC");
+
+        assertThat(search.targets(condition)).containsExactly(shards.forTeamName("teamC"));
+        assertThat(search.search(condition)).containsExactlyElementsOf(expected.stream()
+                .filter(dto -> "teamC".equals(dto.getTeamName()))
+                .collect(Collectors.toList()));
+        assertThat(search.targets(new MemberSearchCondition())).hasSize(3);
+    }
+
+    @Test
+    public void pagesAcrossShards() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        Page<MemberTeamDto> page = search.searchPageComplex(condition, PageRequest.of(2, 4));
+        assertThat(page.getContent()).containsExactlyElementsOf(expected.subList(8, 12));
+        assertThat(page.getTotalElements()).isEqualTo(MEMBERS);
+
+        Page<MemberTeamDto> last = search.searchPageSimple(condition, PageRequest.of(7, 4));
+        assertThat(last.getContent()).containsExactlyElementsOf(expected.subList(28, 30));
+        assertThat(last.getTotalElements()).isEqualTo(MEMBERS);
+    }
+
+    @Test
+    public void sliceCursor() throws Exception {
+        List<MemberTeamDto> walked = new ArrayList<>();
+        Long cursor = null;
+        Slice<MemberTeamDto> slice;
+        do {
+            slice = search.searchSlice(new MemberSearchCondition(), cursor, 7);
+            walked.addAll(slice.getContent());
+            cursor = walked.get(walked.size() - 1).getMemberId();
+        } while (slice.hasNext());
+
+        assertThat(walked).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    public void shardReadPath() throws Exception {
+        assertThat(memberReadPaths.resolve("v1", ReadPath.SHARD)).isEqualTo(ReadPath.SHARD);
+        assertThat(memberReadPaths.repository("v1", ReadPath.SHARD)).isSameAs(search);
+    }
+
+    //요청 컨텍스트가 샤드 스레드까지 넘어가야 타임아웃, 취소가 모든 샤드 쿼리에 걸린다
+    @Test
+    public void scatterPropagatesQueryBudget() throws Exception {
+        List<QueryBudgetContext> contexts = queryBudgetGuard.run("v1",
+                () -> shards.scatter(shards.all(), shard -> QueryBudgetContext.current())).getCallable().call();
+
+        assertThat(contexts).hasSize(shards.size());
+        assertThat(contexts).doesNotContainNull();
+        assertThat(new HashSet<>(contexts)).hasSize(1);
+    }
+
+    @Test
+    public void changeTeamOfUnknownMember() throws Exception {
+        //given 지워진 회원
+        long memberId = expected.get(0).getMemberId();
+        for (Shard shard : shards.all()) {
+            shard.getWriteTransaction().executeWithoutResult(status -> shard.getQueryFactory()
+                    .delete(member).where(member.memberId.eq(memberId)).execute());
+        }
+
+        //then
+        assertThatThrownBy(() -> store.changeTeam(memberId, teamIds.get(1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("unknown member");
+    }
+
+    @Test
+    public void changeTeamAcrossShards() throws Exception {
+        //given 다른 샤드에 있는 두 팀
+        int from = 0;
+        int to = -1;
+        for (int i = 1; i < TEAMS.length; i++) {
+            if (shards.forTeam(teamIds.get(i)) != shards.forTeam(teamIds.get(from))) {
+                to = i;
+                break;
+            }
+        }
+        assertThat(to).isPositive();
+        MemberTeamDto moved = expected.stream()
+                .filter(dto -> TEAMS[0].equals(dto.getTeamName()))
+                .findFirst().get();
+
+        //when
+        store.changeTeam(moved.getMemberId(), teamIds.get(to));
+
+        //then
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(TEAMS[to]);
+        assertThat(search.search(condition)).extracting("memberId").contains(moved.getMemberId());
+        assertThat(search.searchPageComplex(new MemberSearchCondition(), PageRequest.of(0, 5)).getTotalElements())
+                .isEqualTo(MEMBERS);
+    }
+
+    @Test
+    public void merge() throws Exception {
+        List<List<MemberTeamDto>> perShard = Arrays.asList(
+                Arrays.asList(dto(1), dto(4), dto(7)),
+                new ArrayList<>(),
+                Arrays.asList(dto(2), dto(3), dto(9)));
+
+        assertThat(ShardedMemberSearch.merge(perShard, 0, 100)).extracting("memberId")
+                .containsExactly(1L, 2L, 3L, 4L, 7L, 9L);
+        assertThat(ShardedMemberSearch.merge(perShard, 2, 3)).extracting("memberId")
+                .containsExactly(3L, 4L, 7L);
+    }
+
+    private static MemberTeamDto dto(long id) {
+        return new MemberTeamDto(id, "member" + id, 0, null, null);
+    }
+}
@@ -0,0 +1,208 @@
+package study.querydsl.snapshot;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.entity.Team;
+import study.querydsl.entity.UsernameMatch;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+//스냅샷은 커밋된 변경만 반영하기 때문에 테스트 트랜잭션으로 감싸지 않는다
+@SpringBootTest(properties = "querydsl.snapshot.enabled=true")
+class MemberSnapshotRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberSnapshotRepository memberSnapshotRepository;
+
+    @Autowired
+    MemberColumnarSnapshot snapshot;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            Team teamC = new Team("teamC");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(teamC);
+            Team[] teams = {teamA, teamB, teamC, null};
+            for (int i = 0; i < 200; i++) {
+                em.persist(new Member("member" + (i % 50), i % 70, teams[i % 4]));
+            }
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            queryFactory.delete(member).execute();
+            queryFactory.delete(team).execute();
+        });
+        snapshot.rebuild();
+    }
+
+    @Test
+    public void sameResultAsJpa() throws Exception {
+        for (MemberSearchCondition condition : conditions()) {
+            assertSameAsJpa(condition);
+        }
+    }
+
+    @Test
+    public void followsCommittedChanges() throws Exception {
+        //when
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Member> members = queryFactory.selectFrom(member).orderBy(member.id.asc()).limit(30).fetch();
+            for (int i = 0; i < 10; i++) {
+                members.get(i).setAge(99);
+            }
+            for (int i = 10; i < 20; i++) {
+                em.remove(members.get(i));
+            }
+            Team teamD = new Team("teamD");
+            em.persist(teamD);
+            for (int i = 20; i < 30; i++) {
+                members.get(i).setTeam(teamD);
+            }
+            em.persist(new Member("newMember", 1, teamD));
+        });
+
+        //then
+        for (MemberSearchCondition condition : conditions()) {
+            assertSameAsJpa(condition);
+        }
+        MemberSearchCondition teamD = new MemberSearchCondition();
+        teamD.setTeamName("teamD");
+        assertThat(memberSnapshotRepository.search(teamD)).hasSize(11);
+    }
+
+    @Test
+    public void querydslBulkClauseRebuildsOnSchedule() throws Exception {
+        //when 엔티티 이벤트 없이 나이 변경
+        transactionTemplate.executeWithoutResult(status -> queryFactory
+                .update(member)
+                .set(member.age, member.age.add(100))
+                .where(member.age.lt(10))
+                .execute());
+
+        //then 스케줄 스레드가 한번 다시 만든다
+        snapshot.rebuildIfRequested();
+        for (MemberSearchCondition condition : conditions()) {
+            assertSameAsJpa(condition);
+        }
+    }
+
+    @Test
+    public void changesCommittedDuringRebuildAreKept() throws Exception {
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> rebuilding = executor.submit(() -> {
+                while (!done.get()) {
+                    snapshot.rebuild();
+                }
+            });
+
+            //when rebuild 와 겹치게 하나씩 커밋
+            List<Long> ids = transactionTemplate.execute(status ->
+                    queryFactory.select(member.id).from(member).orderBy(member.id.asc()).limit(40).fetch());
+            for (int i = 0; i < ids.size(); i++) {
+                Long id = ids.get(i);
+                boolean remove = i % 2 == 0;
+                transactionTemplate.executeWithoutResult(status -> {
+                    Member found = em.find(Member.class, id);
+                    if (remove) {
+                        em.remove(found);
+                    } else {
+                        found.setAge(99);
+                    }
+                });
+            }
+            done.set(true);
+            rebuilding.get(10, TimeUnit.SECONDS);
+        } finally {
+            done.set(true);
+            executor.shutdownNow();
+        }
+
+        //then 다시 만들지 않아도 DB 와 같다
+        for (MemberSearchCondition condition : conditions()) {
+            assertSameAsJpa(condition);
+        }
+    }
+
+    //JPA 의 search / 페이지는 순서를 정하지 않으므로 결과 집합과 개수만 비교한다
+    private void assertSameAsJpa(MemberSearchCondition condition) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<MemberTeamDto> expected = memberRepository.search(condition);
+            assertThat(memberSnapshotRepository.search(condition))
+                    .as(condition.toString())
+                    .containsExactlyInAnyOrderElementsOf(expected);
+            assertThat(memberSnapshotRepository.count(condition)).isEqualTo(expected.size());
+
+            PageRequest pageRequest = PageRequest.of(1, 7);
+            Page<MemberTeamDto> page = memberSnapshotRepository.searchPageComplex(condition, pageRequest);
+            assertThat(page.getTotalElements()).isEqualTo(expected.size());
+            assertThat(page.getContent()).hasSize((int) Math.max(0, Math.min(7, expected.size() - 7)));
+        });
+    }
+
+    private List<MemberSearchCondition> conditions() {
+        List<MemberSearchCondition> conditions = new ArrayList<>();
+        String[] userNames = {null, "member7", "member1", "nobody"};
+        UsernameMatch[] matches = {UsernameMatch.EXACT, UsernameMatch.PREFIX, UsernameMatch.CONTAINS};
+        String[] teamNames = {null, "teamA", "teamC", "teamZ"};
+        Integer[][] ages = {{null, null}, {10, null}, {null, 40}, {20, 30}};
+        for (String userName : userNames) {
+            for (UsernameMatch match : matches) {
+                for (String teamName : teamNames) {
+                    for (Integer[] age : ages) {
+                        MemberSearchCondition condition = new MemberSearchCondition();
+                        condition.setUserName(userName);
+                        condition.setUsernameMatch(match);
+                        condition.setTeamName(teamName);
+                        condition.setAgeGoe(age[0]);
+                        condition.setAgeLoe(age[1]);
+                        conditions.add(condition);
+                    }
+                }
+            }
+        }
+        return conditions;
+    }
+}
@@ -0,0 +1,228 @@
+package study.querydsl.statistics;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.bulk.MemberBulkJob;
+import study.querydsl.bulk.MemberBulkJobService;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.MemberChangedEvent;
+import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.entity.MemberState;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+//커밋된 변경만 반영하기 때문에 테스트 트랜잭션으로 감싸지 않는다
+@SpringBootTest
+class TeamMemberCounterTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    TeamMemberCounter teamMemberCounter;
+
+    @Autowired
+    MemberBulkJobService bulkJobService;
+
+    Team teamA;
+    Team teamB;
+
+    @BeforeEach
+    public void before() {
+        teamA = new Team("teamA");
+        teamB = new Team("teamB");
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(teamA);
+            em.persist(teamB);
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            queryFactory.delete(member).execute();
+            queryFactory.delete(team).execute();
+        });
+        teamMemberCounter.flush();
+    }
+
+    @Test
+    public void createMoveDelete() throws Exception {
+        //given
+        List<Long> ids = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 10; i++) {
+                Member m = new Member("member" + i, i, i < 7 ? teamA : teamB);
+                em.persist(m);
+                ids.add(m.getId());
+            }
+        });
+        teamMemberCounter.flush();
+        assertThat(memberCount(teamA)).isEqualTo(7);
+        assertThat(memberCount(teamB)).isEqualTo(3);
+
+        //when 두명 이동, 한명 삭제, 팀 없는 회원 추가
+        transactionTemplate.executeWithoutResult(status -> {
+            Team b = em.find(Team.class, teamB.getId());
+            em.find(Member.class, ids.get(0)).setTeam(b);
+            em.find(Member.class, ids.get(1)).setTeam(b);
+            em.remove(em.find(Member.class, ids.get(9)));
+            em.persist(new Member("noTeam", 1));
+        });
+        teamMemberCounter.flush();
+
+        //then
+        assertThat(memberCount(teamA)).isEqualTo(5);
+        assertThat(memberCount(teamB)).isEqualTo(4);
+    }
+
+    @Test
+    public void concurrentWritersOnHotTeam() throws Exception {
+        //given
+        int writers = 8;
+        int perWriter = 50;
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        List<Future<?>> futures = new ArrayList<>();
+
+        //when flush 와 동시에 insert
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < perWriter; i++) {
+                    int n = i;
+                    transactionTemplate.executeWithoutResult(status ->
+                            em.persist(new Member("hot" + writer + "-" + n, n,
+                                    em.getReference(Team.class, teamA.getId()))));
+                    if (n % 10 == 0) {
+                        teamMemberCounter.flush();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        teamMemberCounter.flush();
+
+        //then
+        assertThat(memberCount(teamA)).isEqualTo(writers * perWriter);
+    }
+
+    @Test
+    public void recountAfterBulkDelete() throws Exception {
+        //given
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 20; i++) {
+                em.persist(new Member("member" + i, i, i % 2 == 0 ? teamA : teamB));
+            }
+        });
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+
+        //when 엔티티 이벤트 없이 10명 삭제
+        bulkJobService.run(MemberBulkJob.delete(condition));
+        teamMemberCounter.flush();
+
+        //then
+        assertThat(memberCount(teamA)).isEqualTo(5);
+        assertThat(memberCount(teamB)).isEqualTo(5);
+    }
+
+    @Test
+    public void lateCallbackAfterRecountNotDoubleCounted() throws Exception {
+        //given 커밋된 3명을 다시 센다
+        List<Long> ids = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 3; i++) {
+                Member m = new Member("member" + i, i, teamA);
+                em.persist(m);
+                ids.add(m.getId());
+            }
+        });
+        teamMemberCounter.onReady();
+        assertThat(memberCount(teamA)).isEqualTo(3);
+
+        //when 다시 센 값에 이미 들어간 변경의 커밋 콜백이 늦게 도착
+        teamMemberCounter.onMemberChanged(new MemberChangedEvent(MemberChangedEvent.Type.CREATED, ids.get(0),
+                null, new MemberState("member0", 0, teamA.getId())));
+        teamMemberCounter.flush();
+
+        //then
+        assertThat(memberCount(teamA)).isEqualTo(3);
+    }
+
+    @Test
+    public void querydslBulkClauseRecounts() throws Exception {
+        //given
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 6; i++) {
+                em.persist(new Member("member" + i, i, teamA));
+            }
+        });
+        teamMemberCounter.flush();
+
+        //when 엔티티 이벤트 없는 벌크 update
+        transactionTemplate.executeWithoutResult(status -> queryFactory.update(member)
+                .set(member.team, em.getReference(Team.class, teamB.getId()))
+                .where(member.age.lt(2))
+                .execute());
+
+        //then 다음 flush 가 전체를 다시 센다
+        teamMemberCounter.flush();
+        assertThat(memberCount(teamA)).isEqualTo(4);
+        assertThat(memberCount(teamB)).isEqualTo(2);
+    }
+
+    @Test
+    public void deletedTeamsArePruned() throws Exception {
+        //given
+        Team teamC = new Team("teamC");
+        Team teamD = new Team("teamD");
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(teamC);
+            em.persist(teamD);
+            em.persist(new Member("c", 1, teamC));
+            em.persist(new Member("d", 1, teamD));
+        });
+        teamMemberCounter.flush();
+        int tracked = teamMemberCounter.trackedTeams();
+
+        //when 엔티티로 지운 팀, 벌크로 지운 팀
+        transactionTemplate.executeWithoutResult(status -> {
+            queryFactory.delete(member).where(member.team.id.in(teamC.getId(), teamD.getId())).execute();
+            em.remove(em.find(Team.class, teamC.getId()));
+        });
+        transactionTemplate.executeWithoutResult(status ->
+                queryFactory.delete(team).where(team.id.eq(teamD.getId())).execute());
+        teamMemberCounter.flush();
+
+        //then
+        assertThat(teamMemberCounter.trackedTeams()).isEqualTo(tracked - 2);
+    }
+
+    private long memberCount(Team t) {
+        return queryFactory.select(team.memberCount).from(team).where(team.id.eq(t.getId())).fetchOne();
+    }
+}
@@ -0,0 +1,186 @@
+package study.querydsl.statistics;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.bulk.MemberBulkJob;
+import study.querydsl.bulk.MemberBulkJobService;
+import study.querydsl.dto.TeamStatisticsDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.MemberChangedEvent;
+import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.entity.MemberState;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+//통계는 커밋된 변경만 반영하기 때문에 테스트 트랜잭션으로 감싸지 않는다
+@SpringBootTest
+class TeamStatisticsTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    TeamStatistics teamStatistics;
+
+    @Autowired
+    MemberBulkJobService bulkJobService;
+
+    @AfterEach
+    public void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            queryFactory.delete(member).execute();
+            queryFactory.delete(team).execute();
+        });
+        teamStatistics.rebuild();
+    }
+
+    @Test
+    public void incrementalStatistics() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        Member[] members = new Member[4];
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(teamA);
+            em.persist(teamB);
+            members[0] = new Member("member1", 10, teamA);
+            members[1] = new Member("member2", 20, teamA);
+            members[2] = new Member("member3", 30, teamB);
+            members[3] = new Member("member4", 40, teamB);
+            for (Member m : members) {
+                em.persist(m);
+            }
+        });
+        assertStatistics(teamA.getId(), 2, 30, 20, 10);
+        assertStatistics(teamB.getId(), 2, 70, 40, 30);
+
+        //when 나이 변경, 팀 이동, 삭제
+        transactionTemplate.executeWithoutResult(status -> {
+            em.find(Member.class, members[0].getId()).setAge(15);
+            em.find(Member.class, members[3].getId()).setTeam(em.find(Team.class, teamA.getId()));
+            em.remove(em.find(Member.class, members[2].getId()));
+        });
+
+        //then
+        assertStatistics(teamA.getId(), 3, 75, 40, 15);
+        assertThat(teamStatistics.get(teamB.getId())).isEmpty();
+    }
+
+    @Test
+    public void rolledBackChangeIsIgnored() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(teamA);
+            em.persist(new Member("member1", 10, teamA));
+        });
+
+        //when
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member("member2", 90, em.find(Team.class, teamA.getId())));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        //then
+        assertStatistics(teamA.getId(), 1, 10, 10, 10);
+    }
+
+    @Test
+    public void bulkChangeRebuildsStatistics() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(teamA);
+            for (int i = 1; i <= 10; i++) {
+                em.persist(new Member("member" + i, i, teamA));
+            }
+        });
+
+        //when
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(6);
+        bulkJobService.run(MemberBulkJob.delete(condition));
+
+        //then 1 ~ 5
+        assertStatistics(teamA.getId(), 5, 15, 5, 1);
+    }
+
+    @Test
+    public void querydslBulkClauseRebuildsStatistics() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(teamA);
+            for (int i = 1; i <= 10; i++) {
+                em.persist(new Member("member" + i, i, teamA));
+            }
+        });
+
+        //when 벌크 작업 밖의 update / delete 절
+        transactionTemplate.executeWithoutResult(status -> queryFactory
+                .update(member)
+                .set(member.age, member.age.add(10))
+                .where(member.age.loe(5))
+                .execute());
+        transactionTemplate.executeWithoutResult(status -> queryFactory
+                .delete(member)
+                .where(member.age.eq(15))
+                .execute());
+
+        //then 스케줄 스레드가 한번 다시 만든다, 11 ~ 14, 6 ~ 10
+        teamStatistics.rebuildIfRequested();
+        assertStatistics(teamA.getId(), 9, 90, 14, 6);
+    }
+
+    @Test
+    public void pendingChangesReplayedOnce() throws Exception {
+        //given rebuild 가 읽은 회원 1, 2 (2 는 읽기 전에 커밋돼 이미 들어 있다)
+        Map<Long, MemberState> states = new HashMap<>();
+        states.put(1L, new MemberState(null, 10, 100L));
+        states.put(2L, new MemberState(null, 20, 100L));
+
+        //when 읽는 동안 받은 변경 : 2 생성(이미 반영됨), 3 생성, 1 삭제, 3 나이 변경
+        List<MemberChangedEvent> pending = Arrays.asList(
+                new MemberChangedEvent(MemberChangedEvent.Type.CREATED, 2L, null, new MemberState("member2", 20, 100L)),
+                new MemberChangedEvent(MemberChangedEvent.Type.CREATED, 3L, null, new MemberState("member3", 30, 100L)),
+                new MemberChangedEvent(MemberChangedEvent.Type.DELETED, 1L, new MemberState("member1", 10, 100L), null),
+                new MemberChangedEvent(MemberChangedEvent.Type.UPDATED, 3L,
+                        new MemberState("member3", 30, 100L), new MemberState("member3", 35, 100L)));
+        TeamStatisticsDto statistics = TeamStatistics.aggregate(states, pending).get(100L).snapshot();
+
+        //then 2, 3
+        assertThat(statistics.getCount()).isEqualTo(2);
+        assertThat(statistics.getAgeSum()).isEqualTo(55);
+        assertThat(statistics.getAgeMax()).isEqualTo(35);
+        assertThat(statistics.getAgeMin()).isEqualTo(20);
+    }
+
+    private void assertStatistics(Long teamId, long count, long sum, int max, int min) {
+        TeamStatisticsDto statistics = teamStatistics.get(teamId).get();
+        assertThat(statistics.getCount()).isEqualTo(count);
+        assertThat(statistics.getAgeSum()).isEqualTo(sum);
+        assertThat(statistics.getAgeAvg()).isEqualTo((double) sum / count);
+        assertThat(statistics.getAgeMax()).isEqualTo(max);
+        assertThat(statistics.getAgeMin()).isEqualTo(min);
+    }
+}
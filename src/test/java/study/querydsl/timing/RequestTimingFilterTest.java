@@ -0,0 +1,61 @@
+package study.querydsl.timing;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestTimingFilterTest {
+
+    RequestTimingProperties properties = new RequestTimingProperties();
+    RequestTimingFilter filter = new RequestTimingFilter(properties);
+
+    @Test
+    public void serverTimingForSampledRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v3/members");
+        request.addHeader("X-Request-Timing", "true");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> {
+            //하이버네이트 리스너가 하는 일을 대신한다
+            RequestTiming timing = RequestTiming.current();
+            timing.statementExecuted(2_000_000);
+            timing.statementExecuted(500_000);
+            timing.entityLoaded();
+            timing.serializeStarted();
+            res.getWriter().write("[]");
+        });
+
+        String serverTiming = response.getHeader("Server-Timing");
+        assertThat(serverTiming)
+                .startsWith("db;dur=2.50;desc=\"2 statements\", sql-1;dur=2.00, sql-2;dur=0.50")
+                .contains("load;desc=\"1 entities, 0 collections\"")
+                .contains("serialize;dur=")
+                .contains("total;dur=");
+        assertThat(response.getContentAsString()).isEqualTo("[]");
+        assertThat(RequestTiming.current()).isNull();
+    }
+
+    @Test
+    public void notSampled() throws Exception {
+        properties.setSampleRate(0);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v3/members");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> assertThat(RequestTiming.current()).isNull());
+
+        assertThat(response.getHeader("Server-Timing")).isNull();
+    }
+
+    @Test
+    public void excludedPath() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/members/stream");
+        request.addHeader("X-Request-Timing", "true");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> res.getWriter().write("[]"));
+
+        assertThat(response.getHeader("Server-Timing")).isNull();
+    }
+}
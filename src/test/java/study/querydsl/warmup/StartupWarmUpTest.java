@@ -0,0 +1,63 @@
+package study.querydsl.warmup;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.querydsl.entity.MemberSearchCondition;
+import study.querydsl.statistics.AgeHistogramService;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "querydsl.warm-up.enabled=true",
+        "querydsl.warm-up.iterations=2",
+        "querydsl.warm-up.histogram-widths=5,10"
+})
+class StartupWarmUpTest {
+
+    @Autowired
+    StartupWarmUp startupWarmUp;
+
+    @Autowired
+    ApplicationAvailability availability;
+
+    @Autowired
+    AgeHistogramService ageHistogramService;
+
+    @Test
+    public void readyAfterWarmUp() throws Exception {
+        assertThat(startupWarmUp.isCompleted()).isTrue();
+        assertThat(startupWarmUp.getDurationMillis()).isNotNegative();
+        //워밍업 동안에는 트래픽을 받지 않았다
+        assertThat(startupWarmUp.getReadinessDuringWarmUp()).isEqualTo(ReadinessState.REFUSING_TRAFFIC);
+        assertThat(availability.getReadinessState()).isEqualTo(ReadinessState.ACCEPTING_TRAFFIC);
+    }
+
+    @Test
+    public void histogramCacheFilled() throws Exception {
+        assertThat(ageHistogramService.isCached(5)).isTrue();
+        assertThat(ageHistogramService.isCached(10)).isTrue();
+    }
+
+    @Test
+    public void everyConditionShape() throws Exception {
+        List<MemberSearchCondition> conditions = StartupWarmUp.conditions();
+
+        //회원명 없는 8개 + 회원명 있는 8개 x 비교 방식 3개
+        assertThat(conditions).hasSize(32);
+        assertThat(conditions).doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void syntheticRequestsAreFiltered() throws Exception {
+        //합성 요청은 모두 맞는 회원이 없는 회원명/팀명 조건을 붙인다
+        assertThat(StartupWarmUp.syntheticUris())
+                .allMatch(uri -> uri.contains("userName=warm-up") || uri.contains("teamName=warm-up"));
+        //조건 없는 모양은 하나뿐이고, 그 모양으로는 search 를 돌리지 않는다
+        assertThat(StartupWarmUp.conditions()).filteredOn(StartupWarmUp::unfiltered).hasSize(1);
+    }
+}
@@ -0,0 +1,216 @@
+package study.querydsl.writebehind;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.sql.SQLQueryFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.statistics.TeamMemberCounter;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+//flush 는 자기 트랜잭션으로 커밋하기 때문에 테스트 트랜잭션으로 감싸지 않는다
+@SpringBootTest(properties = "querydsl.write-behind.flush-interval-millis=3600000")
+class MemberWriteBehindBufferTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    SQLQueryFactory sqlQueryFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    ApplicationEventPublisher publisher;
+
+    @Autowired
+    MemberWriteBehindBuffer buffer;
+
+    @Autowired
+    TeamMemberCounter teamMemberCounter;
+
+    Team teamA;
+    Team teamB;
+    Member member1;
+
+    @BeforeEach
+    public void before() {
+        teamA = new Team("teamA");
+        teamB = new Team("teamB");
+        member1 = new Member("member1", 10, teamA);
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(member1);
+        });
+        teamMemberCounter.flush();
+    }
+
+    @AfterEach
+    public void after() {
+        buffer.flush();
+        transactionTemplate.executeWithoutResult(status -> {
+            queryFactory.delete(member).execute();
+            queryFactory.delete(team).execute();
+        });
+        teamMemberCounter.flush();
+    }
+
+    @Test
+    public void coalescesToLastValue() throws Exception {
+        //when
+        buffer.updateAge(member1.getId(), 11);
+        buffer.updateAge(member1.getId(), 12);
+        buffer.changeTeam(member1.getId(), teamB.getId());
+        buffer.updateAge(member1.getId(), 13);
+
+        //then flush 전에는 DB 는 그대로, pending 으로는 보인다
+        assertThat(buffer.getPendingCount()).isEqualTo(1);
+        assertThat(buffer.pending(member1.getId()).get().getAge()).isEqualTo(13);
+        assertThat(buffer.pending(member1.getId()).get().getTeamId()).isEqualTo(teamB.getId());
+        assertThat(ageOf(member1.getId())).isEqualTo(10);
+
+        buffer.flush();
+
+        assertThat(buffer.getPendingCount()).isZero();
+        assertThat(ageOf(member1.getId())).isEqualTo(13);
+        assertThat(teamIdOf(member1.getId())).isEqualTo(teamB.getId());
+    }
+
+    @Test
+    public void publishesMemberChangedEvents() throws Exception {
+        //when
+        buffer.changeTeam(member1.getId(), teamB.getId());
+        buffer.flush();
+        teamMemberCounter.flush();
+
+        //then 엔티티 변경과 같이 팀 인원수가 옮겨간다
+        assertThat(memberCount(teamA)).isEqualTo(0);
+        assertThat(memberCount(teamB)).isEqualTo(1);
+    }
+
+    @Test
+    public void removeFromTeam() throws Exception {
+        buffer.changeTeam(member1.getId(), null);
+        buffer.flush();
+
+        assertThat(teamIdOf(member1.getId())).isNull();
+    }
+
+    @Test
+    public void dropsMissingMemberAndTeam() throws Exception {
+        buffer.updateAge(-1L, 30);
+        buffer.changeTeam(member1.getId(), -1L);
+        buffer.updateAge(member1.getId(), 20);
+
+        buffer.flush();
+
+        //없는 팀으로의 변경은 같은 회원의 다른 변경과 함께 버린다
+        assertThat(buffer.getPendingCount()).isZero();
+        assertThat(teamIdOf(member1.getId())).isEqualTo(teamA.getId());
+        assertThat(ageOf(member1.getId())).isEqualTo(10);
+    }
+
+    @Test
+    public void keepsInterleavedJpaUpdate() throws Exception {
+        //given 나이 변경이 대기 중
+        buffer.updateAge(member1.getId(), 20);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+
+        //when JPA 트랜잭션이 팀을 바꾸고 커밋하기 전에 flush 가 시작된다
+        Future<?> jpa = pool.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            em.find(Member.class, member1.getId()).setTeam(em.find(Team.class, teamB.getId()));
+            em.flush();
+            locked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertThat(locked.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<?> flush = pool.submit(() -> buffer.flush());
+        Thread.sleep(300);
+        release.countDown();
+        jpa.get(5, TimeUnit.SECONDS);
+        flush.get(5, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        //then flush 가 커밋된 팀을 옛 값으로 되돌리지 않는다
+        assertThat(ageOf(member1.getId())).isEqualTo(20);
+        assertThat(teamIdOf(member1.getId())).isEqualTo(teamB.getId());
+    }
+
+    @Test
+    public void closeFlushesAndRejects() throws Exception {
+        //given 빈과 별개의 버퍼
+        MemberWriteBehindBuffer local = new MemberWriteBehindBuffer(sqlQueryFactory, transactionManager, publisher,
+                new WriteBehindProperties(), new SimpleMeterRegistry());
+        local.updateAge(member1.getId(), 55);
+
+        //when
+        local.close();
+
+        //then
+        assertThat(ageOf(member1.getId())).isEqualTo(55);
+        assertThatThrownBy(() -> local.updateAge(member1.getId(), 56))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void flushesWhenFull() throws Exception {
+        WriteBehindProperties properties = new WriteBehindProperties();
+        properties.setMaxPending(2);
+        MemberWriteBehindBuffer local = new MemberWriteBehindBuffer(sqlQueryFactory, transactionManager, publisher,
+                properties, new SimpleMeterRegistry());
+
+        local.updateAge(member1.getId(), 20);
+        local.updateAge(-1L, 1);
+
+        assertThat(local.getPendingCount()).isZero();
+        assertThat(ageOf(member1.getId())).isEqualTo(20);
+    }
+
+    private int ageOf(Long memberId) {
+        return transactionTemplate.execute(status -> queryFactory
+                .select(member.age).from(member).where(member.id.eq(memberId)).fetchOne());
+    }
+
+    private Long teamIdOf(Long memberId) {
+        return transactionTemplate.execute(status -> queryFactory
+                .select(member.team.id).from(member).where(member.id.eq(memberId)).fetchOne());
+    }
+
+    private long memberCount(Team t) {
+        return transactionTemplate.execute(status -> queryFactory
+                .select(team.memberCount).from(team).where(team.id.eq(t.getId())).fetchOne());
+    }
+}